@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.spi.ToolProvider;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 构建期工具：用 jdeps 分析服务 JAR 实际用到的 JDK 模块，再用 jlink 生成只含这些模块的精简运行时，
+ * 代替完整 JDK 随安装包嵌入。通过 JDK 单文件源码方式运行：
+ * <pre>java src/build/java/JlinkRuntime.java &lt;serviceJar&gt; &lt;outputDir&gt; [extraModules] [cds]</pre>
+ * jdeps 与 jlink 取自运行本脚本的 JDK，生成的运行时版本与它一致；要换成更新的 LTS，用那个 JDK 的 java 运行即可。
+ * 注意这会把服务从内置的 JDK 8 换到该版本上运行，因此生成前先做兼容性检查，任一项不通过即失败：
+ * <ul>
+ *     <li>JAR 中类文件的版本不能高于该 JDK；</li>
+ *     <li>jdeps --jdk-internals 不能报告已被移除的 JDK 内部 API（例如 sun.misc.BASE64Encoder）。</li>
+ * </ul>
+ * 其他行为：
+ * <ul>
+ *     <li>Spring Boot 可执行 JAR 会先解开 BOOT-INF/classes 与 BOOT-INF/lib/*.jar 再分析，依赖库用到的模块也计入；</li>
+ *     <li>extraModules（逗号分隔）补上 jdeps 看不到的模块，例如通过 ServiceLoader 加载的 jdk.crypto.ec；</li>
+ *     <li>cds 为 true 时用生成的运行时执行 -Xshare:dump，附带默认 CDS 归档以缩短子 JVM 启动；
+ *     须在目标平台上构建（交叉生成其他平台的运行时时关闭）。</li>
+ * </ul>
+ * 输入 JAR 与参数不变且输出目录已存在时跳过，stamp 写在输出目录旁（outputDir.args），不进入运行时本身。
+ */
+public class JlinkRuntime {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("usage: JlinkRuntime <serviceJar> <outputDir> [extraModules] [cds]");
+            System.exit(2);
+        }
+        Path jar = Paths.get(args[0]).toAbsolutePath().normalize();
+        Path out = Paths.get(args[1]).toAbsolutePath().normalize();
+        String extra = args.length > 2 ? args[2].trim() : "";
+        boolean cds = args.length > 3 && Boolean.parseBoolean(args[3].trim());
+        if (!Files.isRegularFile(jar)) {
+            System.err.println("Service JAR not found: " + jar);
+            System.exit(1);
+        }
+        int feature = Runtime.version().feature();
+        Path stamp = out.resolveSibling(out.getFileName() + ".args");
+        String stampText = jar + "|" + Files.size(jar) + "|" + Files.getLastModifiedTime(jar).toMillis()
+                + "|" + Runtime.version() + "|" + extra + "|" + cds;
+        if (Files.isDirectory(out) && Files.isRegularFile(stamp)
+                && Files.readString(stamp, StandardCharsets.UTF_8).equals(stampText)) {
+            System.out.println("Runtime up to date: " + out);
+            return;
+        }
+
+        Path work = Files.createTempDirectory("jlink-runtime");
+        try {
+            List<String> targets = analysisTargets(jar, work);
+            checkCompatible(targets, feature);
+            TreeSet<String> modules = new TreeSet<>(moduleDeps(targets, feature));
+            for (String m : extra.split(",")) {
+                if (!m.isBlank()) {
+                    modules.add(m.trim());
+                }
+            }
+            if (modules.isEmpty()) {
+                modules.add("java.base");
+            }
+            System.out.println("Runtime modules: " + String.join(",", modules));
+
+            deleteRecursively(out);
+            Files.deleteIfExists(stamp);
+            List<String> jlink = new ArrayList<>(List.of(
+                    "--add-modules", String.join(",", modules),
+                    "--output", out.toString(),
+                    "--strip-debug", "--no-man-pages", "--no-header-files",
+                    // JDK 21 起 --compress=2 已弃用，改用 zip-N 的写法
+                    "--compress=" + (feature >= 21 ? "zip-6" : "2")));
+            Path jmods = Paths.get(System.getProperty("java.home"), "jmods");
+            if (Files.isDirectory(jmods)) {
+                jlink.add(0, jmods.toString());
+                jlink.add(0, "--module-path");
+            }
+            run("jlink", jlink);
+            if (cds) {
+                dumpCds(out);
+            }
+        } finally {
+            deleteRecursively(work);
+        }
+        Files.writeString(stamp, stampText, StandardCharsets.UTF_8);
+        long[] size = new long[2];
+        try (Stream<Path> walk = Files.walk(out)) {
+            walk.filter(Files::isRegularFile).forEach(p -> {
+                size[0]++;
+                size[1] += p.toFile().length();
+            });
+        }
+        System.out.println("Wrote " + out + ": " + size[0] + " files, " + size[1] + " bytes (JDK " + Runtime.version() + ")");
+    }
+
+    /** jdeps 的分析对象：普通 JAR 本身，或 Spring Boot JAR 解开后的 classes 目录与各依赖库。 */
+    static List<String> analysisTargets(Path jar, Path work) throws IOException {
+        List<String> targets = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            if (zip.getEntry("BOOT-INF/") != null || zip.getEntry("BOOT-INF/classes/") != null) {
+                Path classes = work.resolve("classes");
+                Path lib = work.resolve("lib");
+                Files.createDirectories(classes);
+                Files.createDirectories(lib);
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry e = entries.nextElement();
+                    String name = e.getName();
+                    if (e.isDirectory()) {
+                        continue;
+                    }
+                    Path target = null;
+                    if (name.startsWith("BOOT-INF/classes/")) {
+                        target = classes.resolve(name.substring("BOOT-INF/classes/".length()));
+                    } else if (name.startsWith("BOOT-INF/lib/") && name.endsWith(".jar")) {
+                        target = lib.resolve(name.substring("BOOT-INF/lib/".length()));
+                    }
+                    if (target != null && target.normalize().startsWith(work)) {
+                        Files.createDirectories(target.getParent());
+                        try (InputStream in = zip.getInputStream(e)) {
+                            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+                targets.add(classes.toString());
+                try (Stream<Path> jars = Files.list(lib)) {
+                    jars.sorted().forEach(p -> targets.add(p.toString()));
+                }
+            } else {
+                targets.add(jar.toString());
+            }
+        }
+        return targets;
+    }
+
+    /** 服务原本运行在 JDK 8 上：确认它能在本 JDK 生成的运行时上运行，否则中止构建。 */
+    static void checkCompatible(List<String> targets, int feature) throws IOException {
+        int major = maxClassMajor(targets);
+        int required = major > 44 ? major - 44 : 8;
+        System.out.println("Service classes target Java " + required + "; the trimmed runtime is JDK " + Runtime.version()
+                + " (the service will no longer run on the bundled JDK 8)");
+        if (required > feature) {
+            throw new IllegalStateException("Service JAR needs Java " + required + " but -Djlink.jdk is JDK " + feature);
+        }
+        List<String> jdeps = new ArrayList<>(List.of("--jdk-internals", "--ignore-missing-deps",
+                "--multi-release", Integer.toString(feature)));
+        jdeps.addAll(targets);
+        String output = run("jdeps", jdeps);
+        if (output.contains("JDK removed internal API")) {
+            System.err.print(output);
+            throw new IllegalStateException("Service uses JDK internal APIs removed in JDK " + feature
+                    + "; keep the bundled JDK 8 (build without -Djlink.runtime) or use an older -Djlink.jdk");
+        }
+        if (!output.isBlank()) {
+            System.out.print(output);
+        }
+    }
+
+    /** 分析对象（JAR 或解开的 classes 目录）中最高的类文件主版本号，忽略多版本 JAR 的 META-INF/versions。 */
+    static int maxClassMajor(List<String> targets) throws IOException {
+        int max = 0;
+        for (String target : targets) {
+            Path path = Paths.get(target);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    for (Path p : walk.filter(f -> isClassFile(f.toString())).collect(Collectors.toList())) {
+                        try (InputStream in = Files.newInputStream(p)) {
+                            max = Math.max(max, classMajor(in));
+                        }
+                    }
+                }
+                continue;
+            }
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry e = entries.nextElement();
+                    if (isClassFile(e.getName())) {
+                        try (InputStream in = zip.getInputStream(e)) {
+                            max = Math.max(max, classMajor(in));
+                        }
+                    }
+                }
+            }
+        }
+        return max;
+    }
+
+    private static boolean isClassFile(String name) {
+        name = name.replace('\\', '/');
+        return name.endsWith(".class") && !name.contains("META-INF/versions/") && !name.endsWith("module-info.class");
+    }
+
+    private static int classMajor(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(8);
+        if (header.length == 8 && (header[0] & 0xFF) == 0xCA && (header[1] & 0xFF) == 0xFE) {
+            return ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
+        }
+        return 0;
+    }
+
+    /** 用 jdeps 求服务 JAR（及其内嵌依赖库）需要的 JDK 模块。 */
+    static List<String> moduleDeps(List<String> targets, int feature) {
+        List<String> jdeps = new ArrayList<>(List.of(
+                "--print-module-deps", "--ignore-missing-deps", "-q",
+                "--multi-release", Integer.toString(feature)));
+        jdeps.addAll(targets);
+        String output = run("jdeps", jdeps);
+        List<String> modules = new ArrayList<>();
+        for (String line : output.split("\\R")) {
+            line = line.trim();
+            // --print-module-deps 只输出一行逗号分隔的模块名，其余行是警告
+            if (!line.isEmpty() && line.matches("[\\w.]+(,[\\w.]+)*")) {
+                for (String m : line.split(",")) {
+                    modules.add(m);
+                }
+            }
+        }
+        return modules;
+    }
+
+    /** 为精简运行时生成默认 CDS 归档（lib/server/classes.jsa）。 */
+    static void dumpCds(Path runtime) throws IOException, InterruptedException {
+        Path java = runtime.resolve("bin").resolve(
+                Files.exists(runtime.resolve("bin/java.exe")) ? "java.exe" : "java");
+        Process p = new ProcessBuilder(java.toString(), "-Xshare:dump")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int code = p.waitFor();
+        if (code != 0) {
+            throw new IllegalStateException(java + " -Xshare:dump failed with exit code " + code);
+        }
+    }
+
+    static String run(String tool, List<String> args) {
+        ToolProvider provider = ToolProvider.findFirst(tool)
+                .orElseThrow(() -> new IllegalStateException(tool + " is not available in " + System.getProperty("java.home")));
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        int code;
+        try (PrintWriter o = new PrintWriter(out); PrintWriter e = new PrintWriter(err)) {
+            code = provider.run(o, e, args.toArray(new String[0]));
+        }
+        if (code != 0) {
+            System.err.print(out);
+            System.err.print(err);
+            throw new IllegalStateException(tool + " failed with exit code " + code);
+        }
+        System.err.print(err);
+        return out.toString();
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 构建期工具：为需要随安装包嵌入的目录生成解压清单。
+ * 通过 JDK 单文件源码方式运行，不进入最终产物：
+ * <pre>java src/build/java/ResourceManifest.java &lt;sourceDirOrFile&gt; &lt;manifestFile&gt;</pre>
+ * 清单格式（路径使用 / 分隔，按字典序排列）：
+ * <pre>
+ * digest &lt;所有条目的 sha256&gt;
+ * D bin/
+ * F &lt;size&gt; &lt;sha256&gt; bin/java.exe
+ * </pre>
+ */
+public class ResourceManifest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("usage: ResourceManifest <sourceDirOrFile> <manifestFile>");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]).toAbsolutePath().normalize();
+        Path out = Paths.get(args[1]).toAbsolutePath();
+        List<String> lines = new ArrayList<>();
+        List<Path> paths;
+        Path base;
+        if (Files.isRegularFile(root)) {
+            // 单个文件：清单只有一个以文件名命名的条目
+            base = root.getParent();
+            paths = List.of(root);
+        } else {
+            base = root;
+            try (Stream<Path> walk = Files.walk(root)) {
+                paths = walk.filter(p -> !p.equals(root)).sorted().toList();
+            }
+        }
+        MessageDigest total = MessageDigest.getInstance("SHA-256");
+        long totalBytes = 0;
+        int fileCount = 0;
+        for (Path p : paths) {
+            String rel = base.relativize(p).toString().replace('\\', '/');
+            String line;
+            if (Files.isDirectory(p)) {
+                line = "D " + rel + "/";
+            } else {
+                long size = Files.size(p);
+                line = "F " + size + " " + sha256(p) + " " + rel;
+                totalBytes += size;
+                fileCount++;
+            }
+            lines.add(line);
+            total.update(line.getBytes(StandardCharsets.UTF_8));
+            total.update((byte) '\n');
+        }
+        Files.createDirectories(out.getParent());
+        try (Writer w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            w.write("digest " + HexFormat.of().formatHex(total.digest()) + "\n");
+            for (String line : lines) {
+                w.write(line);
+                w.write('\n');
+            }
+        }
+        System.out.println("Wrote " + out + ": " + fileCount + " files, " + totalBytes + " bytes");
+    }
+
+    static String sha256(Path file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                md.update(buf, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * 构建期工具：把一个目录打包成单个分块压缩的资源文件，运行时由 PackedResourceSource 解包。
+ * 通过 JDK 单文件源码方式运行：
+ * <pre>java src/build/java/ResourcePack.java &lt;sourceDir&gt; &lt;packFile&gt; [blockSizeKb]</pre>
+ * 格式（大端）：
+ * <pre>
+ * "JSPACK01"  int blockSize  int entryCount
+ * 每个条目：UTF path  long size  int blockCount  [byte method  long offset  int length] * blockCount
+ * 数据区：各块依次排列，offset 相对数据区起点；method 0 = 原样存储，1 = deflate
+ * </pre>
+ * 每块独立压缩，运行时可以并行解压同一个大文件的不同块。压缩后不变小的块以及 zip/gz 等已压缩文件直接存储，
+ * 运行时可用 transferTo 零拷贝写出。
+ */
+public class ResourcePack {
+
+    static final class Block {
+        int method;
+        long offset;
+        int length;
+    }
+
+    static final class Entry {
+        String path;
+        long size;
+        List<Block> blocks = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: ResourcePack <sourceDir> <packFile> [blockSizeKb]");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]).toAbsolutePath().normalize();
+        Path out = Paths.get(args[1]).toAbsolutePath();
+        int blockSize = (args.length > 2 ? Integer.parseInt(args[2]) : 4096) * 1024;
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        Files.createDirectories(out.getParent());
+        Path data = Files.createTempFile(out.getParent(), "pack", ".data");
+        List<Entry> entries = new ArrayList<>();
+        long rawBytes = 0;
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] in = new byte[blockSize];
+        byte[] compressed = new byte[blockSize + blockSize / 8 + 64];
+        try (OutputStream dataOut = new BufferedOutputStream(Files.newOutputStream(data), 1 << 20)) {
+            long offset = 0;
+            for (Path file : files) {
+                Entry e = new Entry();
+                e.path = root.relativize(file).toString().replace('\\', '/');
+                e.size = Files.size(file);
+                rawBytes += e.size;
+                boolean store = isCompressed(e.path);
+                try (InputStream fin = Files.newInputStream(file)) {
+                    int n;
+                    while ((n = fin.readNBytes(in, 0, blockSize)) > 0) {
+                        Block b = new Block();
+                        b.offset = offset;
+                        int clen = -1;
+                        if (!store) {
+                            deflater.reset();
+                            deflater.setInput(in, 0, n);
+                            deflater.finish();
+                            clen = deflater.deflate(compressed);
+                            if (!deflater.finished()) {
+                                clen = -1;
+                            }
+                        }
+                        if (clen > 0 && clen < n) {
+                            b.method = 1;
+                            b.length = clen;
+                            dataOut.write(compressed, 0, clen);
+                        } else {
+                            b.method = 0;
+                            b.length = n;
+                            dataOut.write(in, 0, n);
+                        }
+                        offset += b.length;
+                        e.blocks.add(b);
+                    }
+                }
+                entries.add(e);
+            }
+        }
+        deflater.end();
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out), 1 << 20))) {
+            dos.writeBytes("JSPACK01");
+            dos.writeInt(blockSize);
+            dos.writeInt(entries.size());
+            for (Entry e : entries) {
+                dos.writeUTF(e.path);
+                dos.writeLong(e.size);
+                dos.writeInt(e.blocks.size());
+                for (Block b : e.blocks) {
+                    dos.writeByte(b.method);
+                    dos.writeLong(b.offset);
+                    dos.writeInt(b.length);
+                }
+            }
+            Files.copy(data, dos);
+        } finally {
+            Files.deleteIfExists(data);
+        }
+        System.out.println(String.format(Locale.ROOT, "Wrote %s: %d files, %d -> %d bytes (%.1f%%)",
+                out, entries.size(), rawBytes, Files.size(out), 100.0 * Files.size(out) / Math.max(1, rawBytes)));
+    }
+
+    private static boolean isCompressed(String path) {
+        String p = path.toLowerCase(Locale.ROOT);
+        return p.endsWith(".zip") || p.endsWith(".gz") || p.endsWith(".png") || p.endsWith(".jpg")
+                || p.endsWith(".jmod") || p.endsWith(".pack");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.javafxtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * logToFile 的吞吐：多个生产线程同时写启动器日志。
+ * BLOCK 下测到的是写盘的真实吞吐；DROP 下生产者从不阻塞，测到的是入队开销，
+ * 丢弃数在结束时打印。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LogWriterBenchmark {
+
+    /** AsyncLogWriter.OverflowPolicy 的名字（生成的基准代码在子包里，访问不到包内枚举）。 */
+    @Param({"BLOCK", "DROP"})
+    public String policy;
+
+    private Path dir;
+    private AsyncLogWriter writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jmh-log");
+        writer = new AsyncLogWriter(dir.resolve("jar_starter_log.txt"), "[LOG] ",
+                AsyncLogWriter.OverflowPolicy.valueOf(policy), 20L * 1024 * 1024, 5);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        System.out.println("dropped " + writer.getDroppedCount() + " records");
+        ArtifactInstaller.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void log() {
+        writer.log("Service instance-0@12124 health probe ok: HTTP 200 in 3 ms");
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.javafxtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 子进程输出泵：剥离 ANSI 转义、切分行并提交给日志写入器（原 stripAnsi + 逐行写日志的路径）。
+ * 输入是带颜色的 Spring Boot 日志行，结果以每毫秒处理的行数计。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputPumpBenchmark {
+
+    static final int LINES = 10_000;
+
+    private static final String[] TEMPLATES = {
+            "\u001b[2m%s\u001b[0;39m \u001b[32m INFO\u001b[0;39m \u001b[35m12345\u001b[0;39m \u001b[2m---\u001b[0;39m "
+                    + "\u001b[2m[           main]\u001b[0;39m \u001b[36mo.s.b.w.embedded.tomcat.TomcatWebServer  \u001b[0;39m "
+                    + "\u001b[2m:\u001b[0;39m Tomcat started on port(s): 12123 (http) with context path ''",
+            "\u001b[2m%s\u001b[0;39m \u001b[33m WARN\u001b[0;39m \u001b[35m12345\u001b[0;39m \u001b[2m---\u001b[0;39m "
+                    + "\u001b[2m[nio-12123-exec-4]\u001b[0;39m \u001b[36mc.e.vision.sync.FrameAssembler          \u001b[0;39m "
+                    + "\u001b[2m:\u001b[0;39m Frame 48213 arrived 37 ms late, dropping 2 stale tiles",
+            "\u001b[2m%s\u001b[0;39m \u001b[31mERROR\u001b[0;39m \u001b[35m12345\u001b[0;39m \u001b[2m---\u001b[0;39m "
+                    + "\u001b[2m[nio-12123-exec-9]\u001b[0;39m \u001b[36mo.a.c.c.C.[.[.[/].[dispatcherServlet]    \u001b[0;39m "
+                    + "\u001b[2m:\u001b[0;39m Servlet.service() threw exception: 同步会话已关闭",
+            "\tat org.springframework.web.servlet.FrameworkServlet.processRequest(FrameworkServlet.java:1014)",
+    };
+
+    /** plain：服务已关闭颜色输出；ansi：带颜色转义。 */
+    @Param({"ansi", "plain"})
+    public String output;
+
+    private byte[] payload;
+    private Path dir;
+    private AsyncLogWriter sink;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder(LINES * 200);
+        for (int i = 0; i < LINES; i++) {
+            String line = String.format(TEMPLATES[i % TEMPLATES.length],
+                    String.format("2026-10-17 12:%02d:%02d.%03d", i / 60000 % 60, i / 1000 % 60, i % 1000));
+            if (output.equals("plain")) {
+                line = line.replaceAll("\u001b\\[[0-9;]*m", "");
+            }
+            sb.append(line).append("\r\n");
+        }
+        payload = sb.toString().getBytes(StandardCharsets.UTF_8);
+        dir = Files.createTempDirectory("jmh-pump");
+        sink = new AsyncLogWriter(dir.resolve("service.log"), "[LOG] ", AsyncLogWriter.OverflowPolicy.DROP,
+                20L * 1024 * 1024, 2);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sink.close();
+        ArtifactInstaller.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long pump() {
+        ProcessOutputPump pump = new ProcessOutputPump(new ByteArrayInputStream(payload), sink, "JAR output: ");
+        pump.run();
+        return pump.getTotalLines();
+    }
+}
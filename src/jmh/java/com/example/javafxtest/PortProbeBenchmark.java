@@ -0,0 +1,103 @@
+package com.example.javafxtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地端口探测的延迟：对打开与关闭的端口分别用阻塞 Socket（原 isPortOpen 的做法）
+ * 和 SocketChannel（健康检查使用的通道）建立连接。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PortProbeBenchmark {
+
+    private static final int TIMEOUT_MS = 500;
+
+    private ServerSocket server;
+    private Thread acceptor;
+    private InetSocketAddress open;
+    private InetSocketAddress closed;
+
+    @Setup
+    public void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        server = new ServerSocket(0, 1024, loopback);
+        open = new InetSocketAddress(loopback, server.getLocalPort());
+        try (ServerSocket s = new ServerSocket(0, 1, loopback)) {
+            closed = new InetSocketAddress(loopback, s.getLocalPort());
+        }
+        acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    server.accept().close();
+                } catch (IOException ignored) {
+                }
+            }
+        }, "jmh-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public boolean socketOpenPort() {
+        return probeSocket(open);
+    }
+
+    @Benchmark
+    public boolean socketClosedPort() {
+        return probeSocket(closed);
+    }
+
+    @Benchmark
+    public boolean channelOpenPort() {
+        return probeChannel(open);
+    }
+
+    @Benchmark
+    public boolean channelClosedPort() {
+        return probeChannel(closed);
+    }
+
+    private static boolean probeSocket(InetSocketAddress address) {
+        try (Socket socket = new Socket()) {
+            socket.connect(address, TIMEOUT_MS);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean probeChannel(InetSocketAddress address) {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            return channel.isConnected();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.javafxtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从类路径解压一棵与 JDK 规模相当的合成目录树：
+ * 逐个 getResourceAsStream + Files.copy（原 extractResourceRecursive 的做法）对比按清单并行解压。
+ * 文件大小按 JDK 的分布生成：大量几 KB 的小文件加少数几十 MB 的大文件。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceExtractionBenchmark {
+
+    private static final String BASE = "embedded-jdk/";
+
+    @Param({"1500"})
+    public int files;
+
+    @Param({"200"})
+    public int totalMb;
+
+    private Path root;
+    private Path source;
+    private Path target;
+    private URLClassLoader loader;
+    private ExtractionManifest manifest;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("jmh-extract");
+        source = root.resolve("classpath");
+        Random random = new Random(42);
+        long budget = (long) totalMb * 1024 * 1024;
+        int large = Math.max(1, files / 100);
+        StringBuilder text = new StringBuilder();
+        List<String> dirs = new ArrayList<>();
+        byte[] chunk = new byte[64 * 1024];
+        for (int i = 0; i < files; i++) {
+            String dir = (i % 7 == 0 ? "bin/" : i % 7 < 4 ? "lib/" : "jre/lib/") + "d" + (i % 23) + "/";
+            if (!dirs.contains(dir)) {
+                dirs.add(dir);
+            }
+            String path = dir + "f" + i + (i % 11 == 0 ? ".dll" : ".class");
+            // 1% 的文件分掉 80% 的字节
+            long size = i < large ? budget * 8 / 10 / large
+                    : Math.max(1, (long) (random.nextDouble() * 2 * (budget * 2 / 10) / (files - large)));
+            Path file = source.resolve(BASE + path);
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (long left = size; left > 0; left -= chunk.length) {
+                    random.nextBytes(chunk);
+                    out.write(chunk, 0, (int) Math.min(chunk.length, left));
+                }
+            }
+            String sha;
+            try (InputStream in = Files.newInputStream(file)) {
+                sha = ArtifactInstaller.sha256(in);
+            }
+            text.append("F ").append(size).append(' ').append(sha).append(' ').append(path).append('\n');
+        }
+        StringBuilder header = new StringBuilder("digest synthetic\n");
+        for (String dir : dirs) {
+            header.append("D ").append(dir).append('\n');
+        }
+        manifest = ExtractionManifest.parse(new BufferedReader(new StringReader(header.append(text).toString())));
+        loader = new URLClassLoader(new URL[]{source.toUri().toURL()}, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        loader.close();
+        ArtifactInstaller.deleteRecursively(root);
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanTarget() throws IOException {
+        target = root.resolve("target");
+        if (Files.exists(target)) {
+            ArtifactInstaller.deleteRecursively(target);
+        }
+    }
+
+    @Benchmark
+    public long sequentialResourceCopy() throws IOException {
+        long bytes = 0;
+        for (String dir : manifest.getDirectories()) {
+            Files.createDirectories(target.resolve(dir));
+        }
+        for (ExtractionManifest.FileEntry entry : manifest.getFiles()) {
+            try (InputStream in = loader.getResourceAsStream(BASE + entry.path)) {
+                Path file = target.resolve(entry.path);
+                Files.createDirectories(file.getParent());
+                bytes += Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long manifestExtractor() throws IOException {
+        ManifestExtractor extractor = new ManifestExtractor(path -> loader.getResourceAsStream(BASE + path));
+        return extractor.extractAll(manifest, target).bytes;
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按内容哈希增量安装已解压的 JDK 与服务 JAR。
+ * <p>
+ * 每个安装产物旁边写一个 stamp 文件（内容即安装时所用的清单），启动时与构建期嵌入的清单比较：
+ * 摘要一致则直接复用，不一致则只重新解压变化的条目。所有写入都先落到临时目录/文件，
+ * 再原子重命名到位，stamp 最后写入，中途失败下次启动会重新比较。增量更新要把变化的条目逐个移入
+ * 正在使用的目录，因此移动前先删除 stamp：中途被杀掉时新旧文件混杂的目录不会被当作已安装，下次启动走完整安装。
+ */
+final class ArtifactInstaller {
+
+    static final String STAMP_SUFFIX = ".stamp";
+
+    private final AsyncLogWriter log;
+
+    ArtifactInstaller(AsyncLogWriter log) {
+        this.log = log;
+    }
+
+    static Path stampFile(Path artifact) {
+        return artifact.resolveSibling(artifact.getFileName() + STAMP_SUFFIX);
+    }
+
+    /** 读取已安装产物的内容摘要，未安装或 stamp 缺失时返回 null。 */
+    static String installedDigest(Path artifact) {
+        ExtractionManifest stamp = ExtractionManifest.loadFile(stampFile(artifact));
+        return stamp != null && Files.exists(artifact) ? stamp.getDigest() : null;
+    }
+
+    /** 目录型产物是否已按该清单安装。 */
+    static boolean isInstalled(ExtractionManifest manifest, Path targetDir) {
+        String digest = installedDigest(targetDir);
+        return digest != null && Files.isDirectory(targetDir) && digest.equals(manifest.getDigest());
+    }
+
+    /**
+     * 安装目录型产物（如 JDK）。
+     *
+     * @return true 表示有文件被写入，false 表示已是最新
+     */
+    boolean installTree(ExtractionManifest manifest, ManifestExtractor.Source source, Path targetDir) throws IOException {
+        Path stampPath = stampFile(targetDir);
+        ExtractionManifest installed = ExtractionManifest.loadFile(stampPath);
+        if (isInstalled(manifest, targetDir)) {
+            log.log("Installed " + targetDir.getFileName() + " is up to date (" + shortDigest(manifest.getDigest()) + ").");
+            return false;
+        }
+
+        ManifestExtractor extractor = new ManifestExtractor(source);
+        if (installed == null || !Files.isDirectory(targetDir)) {
+            // 首次安装或旧版本没有 stamp：完整解压到临时目录后整体替换
+            Path staging = siblingTemp(targetDir, "tmp");
+            long t0 = Trace.begin();
+            ManifestExtractor.Result result = extractStaged(staging, () -> extractor.extractAll(manifest, staging));
+            Trace.end("install.full", targetDir.getFileName().toString(), t0);
+            Path old = null;
+            if (Files.exists(targetDir)) {
+                old = siblingTemp(targetDir, "old");
+                move(targetDir, old);
+            }
+            move(staging, targetDir);
+            writeStamp(stampPath, manifest);
+            if (old != null) {
+                deleteRecursively(old);
+            }
+            log.log("Installed " + targetDir.getFileName() + " " + shortDigest(manifest.getDigest()) + ": " + result);
+            return true;
+        }
+
+        // 增量更新：只解压哈希变化或新增的条目，删除已不存在的条目
+        Map<String, String> oldHashes = new HashMap<>();
+        for (ExtractionManifest.FileEntry f : installed.getFiles()) {
+            oldHashes.put(f.path, f.sha256);
+        }
+        List<ExtractionManifest.FileEntry> changed = new ArrayList<>();
+        for (ExtractionManifest.FileEntry f : manifest.getFiles()) {
+            String previous = oldHashes.remove(f.path);
+            if (!f.sha256.equals(previous) || !Files.exists(targetDir.resolve(f.path))) {
+                changed.add(f);
+            }
+        }
+        Path staging = siblingTemp(targetDir, "tmp");
+        long t0 = Trace.begin();
+        ManifestExtractor.Result result = extractStaged(staging,
+                () -> extractor.extract(manifest.getDirectories(), changed, staging));
+        Trace.end("install.incremental", targetDir.getFileName().toString(), t0);
+        // 开始改动目录前让 stamp 失效，全部到位后再写新的
+        Files.deleteIfExists(stampPath);
+        for (String dir : manifest.getDirectories()) {
+            Files.createDirectories(targetDir.resolve(dir));
+        }
+        for (ExtractionManifest.FileEntry f : changed) {
+            move(staging.resolve(f.path), targetDir.resolve(f.path));
+        }
+        for (String removed : oldHashes.keySet()) {
+            Files.deleteIfExists(targetDir.resolve(removed));
+        }
+        writeStamp(stampPath, manifest);
+        deleteRecursively(staging);
+        log.log("Updated " + targetDir.getFileName() + " " + shortDigest(installed.getDigest()) + " -> "
+                + shortDigest(manifest.getDigest()) + ": " + result + ", " + oldHashes.size() + " removed, "
+                + (manifest.getFiles().size() - changed.size()) + " unchanged");
+        return true;
+    }
+
+    /**
+     * 安装单文件产物（如 myJar.jar）。manifest 为 null 时直接对资源计算哈希。
+     *
+     * @return true 表示文件被写入，false 表示已是最新
+     */
+    boolean installFile(ExtractionManifest manifest, String resourcePath, Path target) throws IOException {
+        String expected = null;
+        ExtractionManifest.FileEntry entry = manifest == null ? null : manifest.find(target.getFileName().toString());
+        if (entry != null) {
+            expected = entry.sha256;
+        } else {
+            try (InputStream in = ArtifactInstaller.class.getResourceAsStream(resourcePath)) {
+                if (in == null) {
+                    throw new IOException("Resource not found: " + resourcePath);
+                }
+                expected = sha256(in);
+            }
+        }
+        String installed = installedDigest(target);
+        if (expected.equals(installed)) {
+            log.log("Installed " + target.getFileName() + " is up to date (" + shortDigest(expected) + ").");
+            return false;
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = siblingTemp(target, "tmp");
+        String actual;
+        long size;
+        try (InputStream in = ArtifactInstaller.class.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + resourcePath);
+            }
+            DigestInputStream digestIn = new DigestInputStream(in, newDigest());
+            size = Files.copy(digestIn, temp);
+            actual = HexFormat.of().formatHex(digestIn.getMessageDigest().digest());
+        }
+        if (!actual.equals(expected)) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Hash mismatch for " + resourcePath + ": expected " + expected + ", got " + actual);
+        }
+        move(temp, target);
+        writeStamp(stampFile(target), "digest " + actual + "\nF " + size + " " + actual + " " + target.getFileName() + "\n");
+        log.log("Installed " + target.getFileName() + " " + shortDigest(installed) + " -> " + shortDigest(actual)
+                + " (" + size + " bytes)");
+        return true;
+    }
+
+    private interface StagedExtraction {
+        ManifestExtractor.Result run() throws IOException;
+    }
+
+    /** 解压失败时清理临时目录，已安装的内容保持不变。 */
+    private static ManifestExtractor.Result extractStaged(Path staging, StagedExtraction extraction) throws IOException {
+        try {
+            return extraction.run();
+        } catch (IOException | RuntimeException e) {
+            try {
+                deleteRecursively(staging);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private static void writeStamp(Path stampPath, ExtractionManifest manifest) throws IOException {
+        writeStamp(stampPath, manifest.toText());
+    }
+
+    private static void writeStamp(Path stampPath, String text) throws IOException {
+        Path temp = siblingTemp(stampPath, "tmp");
+        Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+        move(temp, stampPath);
+    }
+
+    private static Path siblingTemp(Path path, String kind) {
+        return path.resolveSibling(path.getFileName() + "." + kind + "-" + Long.toHexString(System.nanoTime()));
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static String sha256(InputStream in) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buf = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String shortDigest(String digest) {
+        return digest == null ? "none" : digest.substring(0, Math.min(12, digest.length()));
+    }
+}
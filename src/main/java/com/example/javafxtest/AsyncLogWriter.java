@@ -0,0 +1,494 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步批量日志写入器。
+ * <p>
+ * 调用方只把记录放入有界环形队列，由唯一的后台线程持有一个打开的 FileChannel，
+ * 按批量大小或时间间隔刷盘，并按文件大小滚动，保留固定数量的历史文件。
+ * <p>
+ * 写入失败时重新打开文件重试一次，仍失败则丢弃这一批并继续处理后续记录；轮转失败（例如 Windows 上
+ * 日志文件被其他程序占用）时继续追加到当前文件，一分钟后再试。错误只在开始与恢复时各报告一次，写入启动器日志。
+ */
+final class AsyncLogWriter implements Closeable {
+
+    /** 队列已满时的处理策略。 */
+    enum OverflowPolicy {
+        /** 丢弃新记录并计数，调用线程永不阻塞。 */
+        DROP,
+        /** 阻塞调用线程直到队列有空位。 */
+        BLOCK
+    }
+
+    private static final int QUEUE_CAPACITY = 16384;
+    private static final int BATCH_SIZE = 512;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final long MAX_FILE_BYTES = 20L * 1024 * 1024;
+    private static final int RETAINED_FILES = 5;
+    private static final long ROTATE_RETRY_MS = 60_000;
+
+    private static volatile AsyncLogWriter launcherLog;
+    private static volatile AsyncLogWriter errorLog;
+
+    private final Path file;
+    private final String linePrefix;
+    private final OverflowPolicy policy;
+    private final long maxFileBytes;
+    private final int retainedFiles;
+    private final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    // 以下字段只由写线程访问
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+    private final DateTimeFormatter timestampFormat =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).withZone(ZoneId.systemDefault());
+    private FileChannel channel;
+    private long fileSize;
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTimestamp = "";
+    private long rotateRetryAt;
+    private boolean failing;
+
+    private static final class Entry {
+        final long timeMillis;
+        final String text;
+        final boolean raw;
+
+        Entry(long timeMillis, String text, boolean raw) {
+            this.timeMillis = timeMillis;
+            this.text = text;
+            this.raw = raw;
+        }
+    }
+
+    private static final class LinesEntry {
+        final long timeMillis;
+        final String prefix;
+        final String[] lines;
+
+        LinesEntry(long timeMillis, String prefix, String[] lines) {
+            this.timeMillis = timeMillis;
+            this.prefix = prefix;
+            this.lines = lines;
+        }
+    }
+
+    private static final class FlushMarker {
+        final CountDownLatch done = new CountDownLatch(1);
+    }
+
+    AsyncLogWriter(Path file, String linePrefix, OverflowPolicy policy, long maxFileBytes, int retainedFiles) {
+        this.file = file;
+        this.linePrefix = linePrefix;
+        this.policy = policy;
+        this.maxFileBytes = maxFileBytes;
+        this.retainedFiles = retainedFiles;
+        this.writerThread = new Thread(this::runWriter, "log-writer-" + file.getFileName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /** 启动器主日志 ~/jar_starter_log.txt。 */
+    static AsyncLogWriter launcherLog() {
+        AsyncLogWriter w = launcherLog;
+        if (w == null) {
+            synchronized (AsyncLogWriter.class) {
+                w = launcherLog;
+                if (w == null) {
+                    w = create("jar_starter_log.txt", "[LOG] ");
+                    launcherLog = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    /** 启动器错误日志 ~/jar_starter_error.log。 */
+    static AsyncLogWriter errorLog() {
+        AsyncLogWriter w = errorLog;
+        if (w == null) {
+            synchronized (AsyncLogWriter.class) {
+                w = errorLog;
+                if (w == null) {
+                    w = create("jar_starter_error.log", null);
+                    errorLog = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    private static AsyncLogWriter create(String fileName, String linePrefix) {
+        File f = new File(System.getProperty("user.home"), fileName);
+        AsyncLogWriter w = new AsyncLogWriter(f.toPath(), linePrefix, OverflowPolicy.DROP, MAX_FILE_BYTES, RETAINED_FILES);
+        Runtime.getRuntime().addShutdownHook(new Thread(w::close, "log-writer-shutdown"));
+        return w;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /** 当前日志文件及仍保留的轮转文件（从旧到新）。 */
+    List<Path> getAllFiles() {
+        List<Path> files = new ArrayList<>();
+        for (int i = retainedFiles; i >= 1; i--) {
+            Path p = rotatedName(i);
+            if (Files.exists(p)) {
+                files.add(p);
+            }
+        }
+        if (Files.exists(file)) {
+            files.add(file);
+        }
+        return files;
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 写入一行带时间戳的日志。 */
+    void log(String message) {
+        enqueue(new Entry(System.currentTimeMillis(), message, false));
+    }
+
+    /** 原样写入一段文本（不加前缀与时间戳）。 */
+    void logRaw(String text) {
+        enqueue(new Entry(System.currentTimeMillis(), text, true));
+    }
+
+    /**
+     * 非阻塞地提交一批行，每行写成 "prefix + line"。无论溢出策略如何都不会阻塞，
+     * 队列已满时返回 false，由调用方自行统计丢弃数量。
+     */
+    boolean offerLines(String prefix, String[] lines, int count) {
+        if (closed || count == 0) {
+            return count == 0;
+        }
+        return queue.offer(new LinesEntry(System.currentTimeMillis(), prefix, Arrays.copyOf(lines, count)));
+    }
+
+    /** 等待此前提交的记录全部写入文件，最多等待 timeoutMs 毫秒。 */
+    boolean flush(long timeoutMs) {
+        if (closed) {
+            return true;
+        }
+        FlushMarker marker = new FlushMarker();
+        try {
+            if (!queue.offer(marker, timeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            return marker.done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush(2000);
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Object item) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (policy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+            }
+        } else if (!queue.offer(item)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>(BATCH_SIZE);
+        long lastFlush = System.nanoTime();
+        long reportedDropped = 0;
+        try {
+            try {
+                openChannel();
+            } catch (IOException e) {
+                // 写第一批时再试
+                writeFailed(e);
+            }
+            while (!closed || !queue.isEmpty()) {
+                long waitNanos = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS) - (System.nanoTime() - lastFlush);
+                Object first = buffer.position() == 0
+                        ? queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                        : queue.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                List<FlushMarker> markers = null;
+                try {
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+                        for (Object item : batch) {
+                            if (item instanceof Entry) {
+                                append((Entry) item);
+                            } else if (item instanceof LinesEntry) {
+                                append((LinesEntry) item);
+                            } else {
+                                if (markers == null) {
+                                    markers = new ArrayList<>(2);
+                                }
+                                markers.add((FlushMarker) item);
+                            }
+                        }
+                    }
+                    long droppedNow = dropped.get();
+                    if (droppedNow != reportedDropped) {
+                        append(new Entry(System.currentTimeMillis(),
+                                "Log queue overflow, dropped " + (droppedNow - reportedDropped) + " records.", false));
+                        reportedDropped = droppedNow;
+                    }
+                    boolean due = System.nanoTime() - lastFlush >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                    if (markers != null || buffer.position() >= BUFFER_BYTES / 2 || (due && buffer.position() > 0)) {
+                        writeBuffer();
+                        lastFlush = System.nanoTime();
+                    } else if (due) {
+                        lastFlush = System.nanoTime();
+                    }
+                } catch (ClosedByInterruptException e) {
+                    // 关闭时被打断，下面重新打开文件写出剩余内容
+                    throw new InterruptedException();
+                } catch (IOException e) {
+                    // 这一批已丢弃，继续处理后续记录
+                    buffer.clear();
+                    writeFailed(e);
+                    lastFlush = System.nanoTime();
+                } finally {
+                    batch.clear();
+                    if (markers != null) {
+                        for (FlushMarker m : markers) {
+                            m.done.countDown();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // 关闭时退出，下面写出剩余内容
+        } finally {
+            Thread.interrupted();
+            try {
+                Object item;
+                while ((item = queue.poll()) != null) {
+                    if (item instanceof Entry) {
+                        append((Entry) item);
+                    } else if (item instanceof LinesEntry) {
+                        append((LinesEntry) item);
+                    } else {
+                        ((FlushMarker) item).done.countDown();
+                    }
+                }
+                writeBuffer();
+            } catch (IOException e) {
+                writeFailed(e);
+            }
+            closeChannel();
+        }
+    }
+
+    /** 每次连续失败只报告一次；启动器日志自身失败时报告进自己的队列，恢复后写出。 */
+    private void writeFailed(IOException e) {
+        if (failing) {
+            return;
+        }
+        failing = true;
+        report("Log writer for " + file + " failed, dropping records until it recovers: " + e);
+    }
+
+    private void report(String message) {
+        AsyncLogWriter target = launcherLog;
+        if (target != null && target != this) {
+            target.log(message);
+        } else {
+            queue.offer(new Entry(System.currentTimeMillis(), message, false));
+        }
+    }
+
+    private void append(Entry entry) throws IOException {
+        lineBuilder.setLength(0);
+        if (entry.raw || linePrefix == null) {
+            lineBuilder.append(entry.text);
+            if (!entry.raw) {
+                lineBuilder.append(System.lineSeparator());
+            }
+        } else {
+            lineBuilder.append(linePrefix).append(timestamp(entry.timeMillis)).append(": ")
+                    .append(entry.text).append(System.lineSeparator());
+        }
+        appendBuilder();
+    }
+
+    private void append(LinesEntry entry) throws IOException {
+        for (String line : entry.lines) {
+            lineBuilder.setLength(0);
+            if (linePrefix != null) {
+                lineBuilder.append(linePrefix).append(timestamp(entry.timeMillis)).append(": ");
+            }
+            lineBuilder.append(entry.prefix).append(line).append(System.lineSeparator());
+            appendBuilder();
+        }
+    }
+
+    private void appendBuilder() throws IOException {
+        byte[] bytes = lineBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        if (fileSize + buffer.position() + bytes.length > maxFileBytes && System.currentTimeMillis() >= rotateRetryAt) {
+            writeBuffer();
+            rotate();
+        }
+        if (bytes.length > buffer.remaining()) {
+            writeBuffer();
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    private String timestamp(long timeMillis) {
+        long second = timeMillis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = timestampFormat.format(Instant.ofEpochMilli(timeMillis));
+        }
+        return cachedTimestamp;
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /** 写出 src 的剩余内容；失败时重新打开文件，从未写出的部分重试一次。 */
+    private void writeFully(ByteBuffer src) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (channel == null) {
+                    openChannel();
+                }
+                while (src.hasRemaining()) {
+                    fileSize += channel.write(src);
+                }
+                if (failing) {
+                    failing = false;
+                    report("Log writer for " + file + " recovered");
+                }
+                return;
+            } catch (ClosedByInterruptException e) {
+                channel = null;
+                throw e;
+            } catch (IOException e) {
+                closeChannel();
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            channel = null;
+        }
+    }
+
+    private void openChannel() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    /** 轮转失败时保留当前文件继续追加，ROTATE_RETRY_MS 后再试。 */
+    private void rotate() throws IOException {
+        long now = System.currentTimeMillis();
+        // Windows 上打开着的文件无法移动，先关闭
+        closeChannel();
+        try {
+            if (retainedFiles > 0) {
+                Files.deleteIfExists(rotatedName(retainedFiles));
+                for (int i = retainedFiles - 1; i >= 1; i--) {
+                    Path from = rotatedName(i);
+                    if (Files.exists(from)) {
+                        Files.move(from, rotatedName(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, rotatedName(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            rotateRetryAt = now + ROTATE_RETRY_MS;
+            report("Failed to rotate " + file + ", appending to the current file: " + e);
+        }
+        openChannel();
+    }
+
+    /** jar_starter_log.txt -> jar_starter_log.1.txt */
+    Path rotatedName(int index) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String rotated = dot > 0
+                ? name.substring(0, dot) + "." + index + name.substring(dot)
+                : name + "." + index;
+        return file.resolveSibling(rotated);
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.javafxtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务 JVM 的类数据共享（AppCDS）归档。
+ * <p>
+ * 首次启动时附带训练参数运行服务，之后把归档缓存在 ~/AppData/Local/JarStarter/cds/&lt;key&gt;.jsa，
+ * key 由 JAR 与 JDK 的内容摘要计算，任一变化都会重新训练。按 JDK 版本选择做法：
+ * <ul>
+ * <li>17+（带 jcmd）：-XX:+RecordDynamicDumpInfo 启动，就绪后 jcmd VM.cds dynamic_dump，服务不中断；</li>
+ * <li>13+：-XX:ArchiveClassesAtExit，服务正常退出时写出动态归档；</li>
+ * <li>10~12：-XX:DumpLoadedClassList 记录类列表，退出后再用 -Xshare:dump 生成静态归档；</li>
+ * <li>8/9：OpenJDK 不支持应用类归档（Oracle 8 的 UseAppCDS 是商业特性），不启用。</li>
+ * </ul>
+ * 使用归档时总是带 -Xshare:auto，归档失效时 JVM 自行回退；使用归档的进程在就绪前异常退出时删除归档，
+ * 本次会话不再使用。每次就绪时记录启动耗时，便于与未使用归档时对比。
+ */
+final class CdsArchive {
+
+    enum Mode {
+        OFF, TRAIN, USE
+    }
+
+    enum Strategy {
+        JCMD_DUMP, ARCHIVE_AT_EXIT, CLASS_LIST
+    }
+
+    /** 一次启动所用的 CDS 参数。 */
+    final class Launch {
+        final Mode mode;
+        final List<String> options;
+        private volatile boolean ready;
+
+        Launch(Mode mode, List<String> options) {
+            this.mode = mode;
+            this.options = options;
+        }
+
+        void started(Process p) {
+            launches.put(p.pid(), this);
+            p.onExit().thenAccept(exited -> onExit(this, exited));
+        }
+    }
+
+    private final AsyncLogWriter log;
+    private final String javaPath;
+    private final File jar;
+    private final int featureVersion;
+    private final Strategy strategy;
+    private final Path dir;
+    private final Path archive;
+    private final Path classList;
+    private final Path baselineFile;
+    private final Path jcmd;
+    private final Map<Long, Launch> launches = new ConcurrentHashMap<>();
+
+    private boolean training;
+    private boolean trainingAttempted;
+    private boolean rejected;
+    private long baselineReadyMs = -1;
+
+    private CdsArchive(AsyncLogWriter log, String javaPath, File jar, int featureVersion, Strategy strategy,
+                       Path dir, String key, Path jcmd) {
+        this.log = log;
+        this.javaPath = javaPath;
+        this.jar = jar;
+        this.featureVersion = featureVersion;
+        this.strategy = strategy;
+        this.dir = dir;
+        this.archive = dir.resolve(key + ".jsa");
+        this.classList = dir.resolve(key + ".classlist");
+        this.baselineFile = dir.resolve(key + ".baseline");
+        this.baselineReadyMs = readBaseline(baselineFile);
+        this.jcmd = jcmd;
+    }
+
+    /** 按配置 cds.enabled 创建；未启用或当前 JDK 不支持时返回 null。 */
+    static CdsArchive fromConfig(LauncherConfig config, String javaPath, File jar, AsyncLogWriter log) {
+        if (!config.getBoolean("cds.enabled", false)) {
+            return null;
+        }
+        File bin = new File(javaPath).getAbsoluteFile().getParentFile();
+        File javaHome = bin != null ? bin.getParentFile() : null;
+        File release = javaHome != null ? new File(javaHome, "release") : null;
+        if (release == null || !release.isFile()) {
+            log.log("CDS disabled: cannot locate the JDK release file for " + javaPath);
+            return null;
+        }
+        String releaseText;
+        try {
+            releaseText = Files.readString(release.toPath(), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            log.log("CDS disabled: " + e.getMessage());
+            return null;
+        }
+        int feature = parseFeatureVersion(releaseText);
+        boolean windows = javaPath.toLowerCase(Locale.ROOT).endsWith(".exe");
+        Path jcmd = new File(bin, windows ? "jcmd.exe" : "jcmd").toPath();
+        Strategy strategy;
+        if (feature >= 17 && Files.isExecutable(jcmd)) {
+            strategy = Strategy.JCMD_DUMP;
+        } else if (feature >= 13) {
+            strategy = Strategy.ARCHIVE_AT_EXIT;
+        } else if (feature >= 10) {
+            strategy = Strategy.CLASS_LIST;
+        } else {
+            log.log("CDS disabled: JDK " + feature + " does not support application class archives");
+            return null;
+        }
+        String jarDigest = ArtifactInstaller.installedDigest(jar.toPath());
+        if (jarDigest == null) {
+            jarDigest = jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+        }
+        String jdkDigest = ArtifactInstaller.installedDigest(javaHome.toPath());
+        if (jdkDigest == null) {
+            jdkDigest = javaHome.getAbsolutePath() + ":" + releaseText;
+        }
+        String key = shortHash(jarDigest + "|" + jdkDigest + "|" + strategy);
+        Path dir = new File(LauncherConfig.dataDir(), "cds").toPath();
+        CdsArchive cds = new CdsArchive(log, javaPath, jar, feature, strategy, dir, key, jcmd);
+        log.log("CDS enabled for JDK " + feature + " using " + strategy + ", archive "
+                + (Files.isRegularFile(cds.archive) ? cds.archive : "not yet trained"));
+        return cds;
+    }
+
+    static int parseFeatureVersion(String releaseText) {
+        int i = releaseText.indexOf("JAVA_VERSION=\"");
+        if (i < 0) {
+            return -1;
+        }
+        String v = releaseText.substring(i + "JAVA_VERSION=\"".length());
+        v = v.substring(0, Math.max(0, v.indexOf('"')));
+        String[] parts = v.split("[._+-]");
+        try {
+            int first = Integer.parseInt(parts[0]);
+            return first == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : first;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    Path getArchive() {
+        return archive;
+    }
+
+    /** 为下一次启动选择参数：已有归档则使用，否则（每次会话最多一次）训练。 */
+    synchronized Launch nextLaunch() {
+        if (!rejected && Files.isRegularFile(archive)) {
+            List<String> options = new ArrayList<>();
+            if (featureVersion == 10) {
+                options.add("-XX:+UseAppCDS");
+            }
+            options.add("-XX:SharedArchiveFile=" + archive);
+            options.add("-Xshare:auto");
+            log.log("Using CDS archive " + archive);
+            return new Launch(Mode.USE, options);
+        }
+        if (rejected || training || trainingAttempted) {
+            return new Launch(Mode.OFF, List.of());
+        }
+        training = true;
+        trainingAttempted = true;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            log.log("CDS training skipped: " + e.getMessage());
+            training = false;
+            return new Launch(Mode.OFF, List.of());
+        }
+        List<String> options = new ArrayList<>();
+        switch (strategy) {
+            case JCMD_DUMP:
+                options.add("-XX:+RecordDynamicDumpInfo");
+                break;
+            case ARCHIVE_AT_EXIT:
+                options.add("-XX:ArchiveClassesAtExit=" + temp(archive));
+                break;
+            default:
+                if (featureVersion == 10) {
+                    options.add("-XX:+UseAppCDS");
+                }
+                options.add("-Xshare:off");
+                options.add("-XX:DumpLoadedClassList=" + classList);
+        }
+        log.log("CDS training run with " + options);
+        return new Launch(Mode.TRAIN, options);
+    }
+
+    /** 服务就绪：记录启动耗时；jcmd 方式在此时生成归档。 */
+    void onReady(Process process, long timeToReadyMs) {
+        Launch launch = process == null ? null : launches.get(process.pid());
+        if (launch == null) {
+            return;
+        }
+        launch.ready = true;
+        synchronized (this) {
+            if (launch.mode == Mode.USE) {
+                log.log("Time to ready with CDS archive: " + timeToReadyMs + " ms"
+                        + (baselineReadyMs > 0 ? String.format(" (without: %d ms, %+d%%)", baselineReadyMs,
+                        100 * (timeToReadyMs - baselineReadyMs) / baselineReadyMs) : ""));
+            } else {
+                baselineReadyMs = timeToReadyMs;
+                log.log("Time to ready without CDS archive: " + timeToReadyMs + " ms");
+                writeBaseline(timeToReadyMs);
+            }
+        }
+        if (launch.mode == Mode.TRAIN && strategy == Strategy.JCMD_DUMP) {
+            Thread t = new Thread(() -> dumpWithJcmd(process), "cds-dump-" + process.pid());
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void onExit(Launch launch, Process exited) {
+        launches.remove(exited.pid());
+        if (launch.mode == Mode.TRAIN) {
+            if (strategy == Strategy.ARCHIVE_AT_EXIT) {
+                publish(temp(archive), "dynamic archive written at exit");
+            } else if (strategy == Strategy.CLASS_LIST) {
+                dumpFromClassList();
+            }
+            synchronized (this) {
+                training = false;
+            }
+        } else if (launch.mode == Mode.USE && !launch.ready && exited.exitValue() != 0) {
+            // 使用归档的进程没能就绪就失败了：很可能是归档被拒绝或损坏，本次会话回退到不使用
+            synchronized (this) {
+                rejected = true;
+            }
+            try {
+                Files.deleteIfExists(archive);
+            } catch (IOException ignore) {
+            }
+            log.log("Service exited with code " + exited.exitValue() + " before becoming ready while using "
+                    + archive + "; archive discarded, later launches run without CDS");
+        }
+    }
+
+    private void dumpWithJcmd(Process process) {
+        Path tmp = temp(archive);
+        List<String> command = List.of(jcmd.toString(), Long.toString(process.pid()), "VM.cds", "dynamic_dump",
+                tmp.toString());
+        if (runTool(command, 120)) {
+            publish(tmp, "dynamic archive dumped via jcmd");
+        }
+        synchronized (this) {
+            training = false;
+        }
+    }
+
+    private void dumpFromClassList() {
+        if (!Files.isRegularFile(classList)) {
+            log.log("CDS training produced no class list (the service did not exit normally)");
+            return;
+        }
+        Path tmp = temp(archive);
+        List<String> command = new ArrayList<>();
+        command.add(javaPath);
+        if (featureVersion == 10) {
+            command.add("-XX:+UseAppCDS");
+        }
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classList);
+        command.add("-XX:SharedArchiveFile=" + tmp);
+        command.add("-cp");
+        command.add(jar.getAbsolutePath());
+        if (runTool(command, 300)) {
+            publish(tmp, "static archive dumped from class list");
+        }
+        try {
+            Files.deleteIfExists(classList);
+        } catch (IOException ignore) {
+        }
+    }
+
+    private boolean runTool(List<String> command, long timeoutSeconds) {
+        long start = System.nanoTime();
+        try {
+            Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = p.getInputStream()) {
+                in.transferTo(out);
+            }
+            if (!p.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                log.log("CDS dump timed out: " + command);
+                return false;
+            }
+            if (p.exitValue() != 0) {
+                log.log("CDS dump failed (exit " + p.exitValue() + "): " + out.toString(StandardCharsets.UTF_8).trim());
+                return false;
+            }
+            log.log("CDS dump finished in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (IOException e) {
+            log.log("CDS dump failed: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** 原子地把新归档放到位，并删除旧 key 留下的归档。 */
+    private void publish(Path tmp, String how) {
+        if (!Files.isRegularFile(tmp)) {
+            log.log("CDS training produced no archive (the service did not exit normally)");
+            return;
+        }
+        try {
+            Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.log("CDS archive ready: " + archive + " (" + Files.size(archive) / 1024 + " KB, " + how + ")");
+            try (DirectoryStream<Path> old = Files.newDirectoryStream(dir, "*.{jsa,baseline}")) {
+                for (Path p : old) {
+                    if (!p.equals(archive) && !p.equals(baselineFile)) {
+                        Files.deleteIfExists(p);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.log("Failed to store CDS archive: " + e.getMessage());
+        }
+    }
+
+    /** 未使用归档时的启动耗时跨会话保存，便于与之后的启动对比。 */
+    private static long readBaseline(Path file) {
+        try {
+            return Long.parseLong(Files.readString(file).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void writeBaseline(long ms) {
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(baselineFile, Long.toString(ms));
+        } catch (IOException e) {
+            log.log("Failed to record CDS baseline: " + e.getMessage());
+        }
+    }
+
+    private static Path temp(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private static String shortHash(String text) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(d, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * 本地控制接口，供运维脚本代替界面上的按钮启动、停止与观察服务。挂在 {@link LocalHttpServer} 上（只绑定回环地址），
+ * 配置 control.socket=路径 时再经 {@link TcpFrontProxy} 在该 Unix 域套接字上提供同一套接口。
+ * <ul>
+ *     <li>POST /api/start、/api/stop、/api/restart（?rolling=true 滚动重启）：默认立即以 202 应答，
+ *     带 ?wait=true 时等操作完成（服务就绪或停止）再应答；/api/stop?force=true 不等宽限期直接强制结束；</li>
+ *     <li>GET /api/status：服务状态 JSON，带递增的 version；?since=version 时长轮询，
+ *     状态变化或 timeoutMs（默认 30 秒）到期才应答；</li>
+ *     <li>GET /api/metrics：同 /metrics；</li>
+ *     <li>GET /api/logs/tail?lines=N[&amp;follow=true][&amp;instance=i]：启动器日志（多实例时为实例输出）末尾 N 行，
+ *     follow 时以 chunked 方式持续推送新写入的内容。</li>
+ * </ul>
+ * 等待中的长轮询不占用线程：处理器登记后立即返回，由状态变化或一个共享的定时线程完成应答；
+ * 该线程空闲时自行退出，没有客户端时接口几乎没有开销。每个跟随中的日志流有自己的写线程（最多 control.maxStreams 个），
+ * 慢客户端只会拖住它自己的流。
+ * <p>
+ * 所有请求须带 Authorization: Bearer &lt;token&gt;。没有配置 control.token 时每次启动生成随机令牌，
+ * 写入 ~/AppData/Local/JarStarter/control.token（仅当前用户可读），脚本从该文件读取；
+ * Unix 域套接字只是转发到同一个回环端口，同样需要令牌。带 Origin 头的请求（浏览器跨站请求）一律拒绝。
+ */
+final class ControlApi implements Closeable {
+
+    private static final long DEFAULT_WAIT_MS = 30_000;
+    private static final long MAX_WAIT_MS = 300_000;
+    private static final long TAIL_INTERVAL_MS = 250;
+    private static final int MAX_TAIL_LINES = 10_000;
+    /** 每个日志流每次最多推送的字节数。 */
+    private static final int MAX_TAIL_BYTES_PER_TICK = 1024 * 1024;
+    static final String TOKEN_FILE = "control.token";
+
+    private final LauncherCore core;
+    private final AsyncLogWriter log = AsyncLogWriter.launcherLog();
+    private final String token;
+    /** 本次启动生成的令牌文件，关闭时删除；使用配置的令牌时为 null。 */
+    private Path tokenFile;
+    private final int maxStreams;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final AtomicLong version = new AtomicLong();
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final List<Tail> tails = new CopyOnWriteArrayList<>();
+    private final AtomicLong tailIds = new AtomicLong();
+    /** 同一时刻只允许一次普通重启，重复请求返回 409。 */
+    private final AtomicBoolean restarting = new AtomicBoolean();
+    private TcpFrontProxy socketRelay;
+
+    /** 等待某个条件成立的请求。 */
+    private static final class Waiter {
+        final HttpExchange exchange;
+        final BooleanSupplier ready;
+        volatile ScheduledFuture<?> timeout;
+
+        Waiter(HttpExchange exchange, BooleanSupplier ready) {
+            this.exchange = exchange;
+            this.ready = ready;
+        }
+    }
+
+    /** 一个跟随中的日志流，在自己的线程上读写，写阻塞不影响接口的其他部分。 */
+    private final class Tail implements Runnable {
+        final HttpExchange exchange;
+        final OutputStream out;
+        final AsyncLogWriter source;
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        final long initialEnd;
+        long position;
+        Object fileKey;
+        volatile Thread thread;
+        volatile boolean closed;
+
+        Tail(HttpExchange exchange, AsyncLogWriter source, long from, long initialEnd, Object fileKey) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.source = source;
+            this.position = from;
+            this.initialEnd = initialEnd;
+            this.fileKey = fileKey;
+        }
+
+        @Override
+        public void run() {
+            try {
+                position += copy(source.getFile(), position, initialEnd, out, buffer);
+                out.flush();
+                while (!closed) {
+                    pump();
+                    Thread.sleep(TAIL_INTERVAL_MS);
+                }
+            } catch (IOException e) {
+                // 客户端已断开
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeTail(this);
+            }
+        }
+
+        void pump() throws IOException {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(source.getFile(), BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            Object key = attrs.fileKey();
+            if (attrs.size() < position || (fileKey != null && !fileKey.equals(key))) {
+                // 已轮转：先发完旧文件剩下的部分
+                copy(source.rotatedName(1), position, Long.MAX_VALUE, out, buffer);
+                position = 0;
+            }
+            fileKey = key;
+            long n = copy(source.getFile(), position, Math.min(attrs.size(), position + MAX_TAIL_BYTES_PER_TICK), out,
+                    buffer);
+            if (n > 0) {
+                position += n;
+                out.flush();
+            }
+        }
+    }
+
+    private ControlApi(LauncherCore core, String token, LauncherConfig config) {
+        this.core = core;
+        this.token = token;
+        this.maxStreams = config.getInt("control.maxStreams", 8);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "control-api");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /** 令牌无法写出时不安装接口并返回 null。 */
+    static ControlApi install(LauncherCore core, LocalHttpServer http, LauncherConfig config) {
+        String token = config.getString("control.token", null);
+        Path tokenFile = null;
+        if (token == null || token.isEmpty()) {
+            tokenFile = new File(LauncherConfig.dataDir(), TOKEN_FILE).toPath();
+            token = generateToken(tokenFile);
+            if (token == null) {
+                return null;
+            }
+        }
+        ControlApi api = new ControlApi(core, token, config);
+        api.tokenFile = tokenFile;
+        core.addListener(new ServicePool.Listener() {
+            @Override
+            public void onPoolStateChanged(ServicePool pool) {
+                api.stateChanged();
+            }
+
+            @Override
+            public void onRestartScheduled(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, long delayMs) {
+                api.stateChanged();
+            }
+
+            @Override
+            public void onGaveUp(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, String reason) {
+                api.stateChanged();
+            }
+        });
+        http.addAsyncHandler("/api/start", api::handleStart);
+        http.addAsyncHandler("/api/stop", api::handleStop);
+        http.addAsyncHandler("/api/restart", api::handleRestart);
+        http.addAsyncHandler("/api/status", api::handleStatus);
+        http.addAsyncHandler("/api/metrics", api::handleMetrics);
+        http.addAsyncHandler("/api/logs/tail", api::handleTail);
+        String socket = config.getString("control.socket", null);
+        if (socket != null && !socket.isEmpty()) {
+            api.openSocket(Paths.get(socket), http.getPort());
+        }
+        return api;
+    }
+
+    /** 生成随机令牌并写入只有当前用户可读的文件；失败时返回 null。 */
+    private static String generateToken(Path file) {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        String token = sb.toString();
+        AsyncLogWriter log = AsyncLogWriter.launcherLog();
+        try {
+            Files.createDirectories(file.getParent());
+            Files.deleteIfExists(file);
+            Files.createFile(file);
+            restrictToOwner(file);
+            Files.write(file, token.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            log.log("Control API disabled: cannot write token file " + file + ": " + e.getMessage());
+            return null;
+        }
+        log.log("Control API token written to " + file);
+        return token;
+    }
+
+    /** POSIX 上设为 rw-------；Windows 上把 ACL 换成只有文件所有者一项。 */
+    private static void restrictToOwner(Path file) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (posix != null) {
+            posix.setPermissions(PosixFilePermissions.fromString("rw-------"));
+            return;
+        }
+        AclFileAttributeView acl = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (acl == null) {
+            throw new IOException("cannot restrict file permissions");
+        }
+        UserPrincipal owner = acl.getOwner();
+        acl.setAcl(List.of(AclEntry.newBuilder()
+                .setType(AclEntryType.ALLOW)
+                .setPrincipal(owner)
+                .setPermissions(AclEntryPermission.values())
+                .build()));
+    }
+
+    /** 在 Unix 域套接字上转发到回环 HTTP 端口（单个 NIO 线程）。 */
+    private void openSocket(Path path, int httpPort) {
+        TcpFrontProxy relay = new TcpFrontProxy(UnixDomainSocketAddress.of(path), log);
+        relay.addBackend("control-http", "127.0.0.1", httpPort).healthy = true;
+        try {
+            relay.start();
+            socketRelay = relay;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.log("Control socket " + path + " not available: " + e.getMessage());
+        }
+    }
+
+    private void stateChanged() {
+        version.incrementAndGet();
+        if (!waiters.isEmpty()) {
+            // 不在服务池的监视线程上写响应
+            scheduler.execute(this::wakeWaiters);
+        }
+    }
+
+    private void wakeWaiters() {
+        for (Waiter w : waiters) {
+            if (w.ready.getAsBoolean()) {
+                finish(w);
+            }
+        }
+    }
+
+    private void await(HttpExchange exchange, BooleanSupplier ready, long timeoutMs) throws IOException {
+        if (ready.getAsBoolean()) {
+            respondStatus(exchange, 200);
+            return;
+        }
+        Waiter w = new Waiter(exchange, ready);
+        waiters.add(w);
+        w.timeout = scheduler.schedule(() -> finish(w), timeoutMs, TimeUnit.MILLISECONDS);
+        // 登记期间状态可能已经变化
+        if (ready.getAsBoolean()) {
+            scheduler.execute(() -> finish(w));
+        }
+    }
+
+    private void finish(Waiter w) {
+        if (!waiters.remove(w)) {
+            return;
+        }
+        ScheduledFuture<?> timeout = w.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        try {
+            respondStatus(w.exchange, 200);
+        } catch (IOException e) {
+            w.exchange.close();
+        }
+    }
+
+    private void handleStart(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        log.log("Control API: start requested");
+        try {
+            if (core.startIfStopped() == null) {
+                respondError(exchange, 409, "service is already running");
+                return;
+            }
+        } catch (IOException e) {
+            respondError(exchange, 503, "start failed: " + e.getMessage());
+            return;
+        }
+        if (Boolean.parseBoolean(query.get("wait"))) {
+            await(exchange, this::settled, waitMs(query));
+        } else {
+            respondStatus(exchange, 202);
+        }
+    }
+
+    private void handleStop(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        log.log("Control API: stop requested");
+        CompletableFuture<Void> stopped = core.stopService();
+        if (Boolean.parseBoolean(query.get("force"))) {
+            core.forceStop();
+        }
+        if (Boolean.parseBoolean(query.get("wait"))) {
+            respondWhenDone(exchange, stopped, waitMs(query));
+        } else {
+            respondStatus(exchange, 202);
+        }
+    }
+
+    private void handleRestart(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        boolean wait = Boolean.parseBoolean(query.get("wait"));
+        if (Boolean.parseBoolean(query.get("rolling"))) {
+            log.log("Control API: rolling restart requested");
+            CompletableFuture<ServicePool.RolloutReport> rollout = core.rollingRestart();
+            if (rollout == null) {
+                respondError(exchange, 409, "service is not running or a rolling restart is in progress");
+            } else if (wait) {
+                respondWhenDone(exchange, rollout, waitMs(query));
+            } else {
+                respondStatus(exchange, 202);
+            }
+            return;
+        }
+        if (!restarting.compareAndSet(false, true)) {
+            respondError(exchange, 409, "a restart is already in progress");
+            return;
+        }
+        log.log("Control API: restart requested");
+        CompletableFuture<Void> restarted;
+        try {
+            // 停止之后服务可能已被其他入口重新启动，startIfStopped 不会替换（并遗留）正在运行的服务池
+            restarted = core.stopService().thenRun(() -> {
+                try {
+                    core.startIfStopped();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            restarting.set(false);
+            throw e;
+        }
+        restarted.whenComplete((r, e) -> restarting.set(false));
+        if (!wait) {
+            respondStatus(exchange, 202);
+            return;
+        }
+        long timeoutMs = waitMs(query);
+        restarted.whenComplete((r, e) -> {
+            try {
+                if (e != null) {
+                    respondError(exchange, 503, "restart failed: " + StartupPipeline.unwrap(e).getMessage());
+                } else {
+                    await(exchange, this::settled, timeoutMs);
+                }
+            } catch (IOException io) {
+                exchange.close();
+            }
+        });
+    }
+
+    private void respondWhenDone(HttpExchange exchange, CompletableFuture<?> future, long timeoutMs) {
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenCompleteAsync((r, e) -> {
+            try {
+                Throwable cause = e == null ? null : StartupPipeline.unwrap(e);
+                if (cause != null && !(cause instanceof TimeoutException)) {
+                    respondError(exchange, 500, String.valueOf(cause.getMessage()));
+                } else {
+                    respondStatus(exchange, 200);
+                }
+            } catch (IOException io) {
+                exchange.close();
+            }
+        }, scheduler);
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange, "GET")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        String since = query.get("since");
+        if (since == null) {
+            respondStatus(exchange, 200);
+            return;
+        }
+        long seen;
+        try {
+            seen = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            respondError(exchange, 400, "invalid since: " + since);
+            return;
+        }
+        await(exchange, () -> version.get() != seen, waitMs(query));
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!checkRequest(exchange, "GET")) {
+                return;
+            }
+            StringBuilder body = new StringBuilder(4096);
+            core.getSampler().writePrometheus(body);
+            LocalHttpServer.respond(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", body.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleTail(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange, "GET")) {
+            return;
+        }
+        Map<String, String> query = query(exchange);
+        AsyncLogWriter source = log;
+        ServicePool pool = core.getPool();
+        if (query.containsKey("instance")) {
+            int index = parseInt(query.get("instance"), -1);
+            if (pool == null || index < 0 || index >= pool.size()) {
+                respondError(exchange, 404, "no such instance: " + query.get("instance"));
+                return;
+            }
+            source = pool.getInstances().get(index).getOutputLog();
+        }
+        boolean follow = Boolean.parseBoolean(query.get("follow"));
+        if (follow && tails.size() >= maxStreams) {
+            respondError(exchange, 503, "too many log streams");
+            return;
+        }
+        int lines = Math.max(0, Math.min(MAX_TAIL_LINES, parseInt(query.get("lines"), 100)));
+        source.flush(500);
+        Path file = source.getFile();
+        BasicFileAttributes attrs = Files.exists(file) ? Files.readAttributes(file, BasicFileAttributes.class) : null;
+        long size = attrs != null ? attrs.size() : 0;
+        long from = attrs != null ? tailOffset(file, size, lines) : 0;
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        if (!follow) {
+            OutputStream out = exchange.getResponseBody();
+            if (attrs != null) {
+                copy(file, from, size, out, ByteBuffer.allocate(64 * 1024));
+            }
+            out.flush();
+            exchange.close();
+            return;
+        }
+        // 已有内容也由流自己的线程发送，不占用 HTTP 处理线程
+        Tail tail = new Tail(exchange, source, from, size, attrs != null ? attrs.fileKey() : null);
+        Thread t = new Thread(tail, "control-api-tail-" + tailIds.incrementAndGet());
+        t.setDaemon(true);
+        tail.thread = t;
+        tails.add(tail);
+        t.start();
+    }
+
+    private void closeTail(Tail t) {
+        t.closed = true;
+        if (tails.remove(t)) {
+            Thread thread = t.thread;
+            if (thread != null && thread != Thread.currentThread()) {
+                // 打断阻塞在 sleep 上的线程；阻塞在写上的由关闭连接解除
+                thread.interrupt();
+            }
+            t.exchange.close();
+        }
+    }
+
+    /** 把 [from, to) 写到 out，返回写出的字节数；to 为 Long.MAX_VALUE 表示到文件末尾。 */
+    private static long copy(Path file, long from, long to, OutputStream out, ByteBuffer copyBuffer)
+            throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long copied = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = Math.min(to, ch.size());
+            long pos = from;
+            while (pos < end) {
+                copyBuffer.clear();
+                copyBuffer.limit((int) Math.min(copyBuffer.capacity(), end - pos));
+                int n = ch.read(copyBuffer, pos);
+                if (n <= 0) {
+                    break;
+                }
+                out.write(copyBuffer.array(), 0, n);
+                pos += n;
+                copied += n;
+            }
+        }
+        return copied;
+    }
+
+    /** 倒数第 lines 行的起始偏移（从文件末尾向前按块查找换行符）。 */
+    private static long tailOffset(Path file, long size, int lines) throws IOException {
+        if (lines == 0 || size == 0) {
+            return size;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = size;
+            int needed = lines + 1;
+            while (end > 0) {
+                long start = Math.max(0, end - buf.capacity());
+                buf.clear();
+                buf.limit((int) (end - start));
+                while (buf.hasRemaining() && ch.read(buf, start + buf.position()) > 0) {
+                    // 读满这一块
+                }
+                for (int i = buf.position() - 1; i >= 0; i--) {
+                    // 文件末尾的换行符不算一行的开始
+                    if (buf.get(i) == '\n' && start + i != size - 1 && --needed == 1) {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+        }
+        return 0;
+    }
+
+    /** 汇总状态已不在变化中：就绪、无响应，或已停止且没有待执行的重启。 */
+    private boolean settled() {
+        ServicePool pool = core.getPool();
+        if (pool == null) {
+            return true;
+        }
+        ServiceHealthMonitor.State state = pool.aggregateState();
+        return state == ServiceHealthMonitor.State.READY || state == ServiceHealthMonitor.State.UNRESPONSIVE
+                || (state != ServiceHealthMonitor.State.STARTING && !pool.isRestartPending());
+    }
+
+    private boolean checkRequest(HttpExchange exchange, String method) throws IOException {
+        if (exchange.getRequestHeaders().getFirst("Origin") != null) {
+            respondError(exchange, 403, "cross-origin requests are not allowed");
+            return false;
+        }
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        if (auth == null || !MessageDigest.isEqual(("Bearer " + token).getBytes(StandardCharsets.UTF_8),
+                auth.getBytes(StandardCharsets.UTF_8))) {
+            respondError(exchange, 401, "missing or invalid token");
+            return false;
+        }
+        if (!method.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            respondError(exchange, 405, method + " required");
+            return false;
+        }
+        return true;
+    }
+
+    private void respondStatus(HttpExchange exchange, int code) throws IOException {
+        respondJson(exchange, code, statusJson());
+    }
+
+    private static void respondError(HttpExchange exchange, int code, String message) throws IOException {
+        respondJson(exchange, code, "{\"error\":" + quote(message) + "}");
+    }
+
+    private static void respondJson(HttpExchange exchange, int code, String json) throws IOException {
+        try {
+            LocalHttpServer.respond(exchange, code, "application/json; charset=utf-8", json + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String statusJson() {
+        ServicePool pool = core.getPool();
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"version\":").append(version.get());
+        sb.append(",\"state\":\"").append(pool != null ? pool.aggregateState() : ServiceHealthMonitor.State.STOPPED)
+                .append('"');
+        sb.append(",\"running\":").append(pool != null && pool.isRunning());
+        sb.append(",\"restartPending\":").append(pool != null && pool.isRestartPending());
+        sb.append(",\"rollingRestart\":").append(pool != null && pool.isRollingRestart());
+        sb.append(",\"jarReady\":").append(core.hasJar());
+        if (pool != null) {
+            sb.append(",\"jvmProfile\":\"").append(pool.getTuning().getProfile().key()).append('"');
+        }
+        sb.append(",\"instances\":[");
+        if (pool != null) {
+            String sep = "";
+            for (ServiceInstance i : pool.getInstances()) {
+                Process p = i.getProcess();
+                sb.append(sep).append("{\"index\":").append(i.getIndex())
+                        .append(",\"port\":").append(i.getPort())
+                        .append(",\"state\":\"").append(i.getState()).append('"')
+                        .append(",\"pid\":").append(p != null && p.isAlive() ? p.pid() : -1)
+                        .append(",\"timeToReadyMs\":").append(i.getMonitor().getTimeToReadyMs())
+                        .append('}');
+                sep = ",";
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            params.put(key, eq < 0 ? "true" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static long waitMs(Map<String, String> query) {
+        String v = query.get("timeoutMs");
+        long ms = DEFAULT_WAIT_MS;
+        if (v != null) {
+            try {
+                ms = Long.parseLong(v);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return Math.max(0, Math.min(MAX_WAIT_MS, ms));
+    }
+
+    private static int parseInt(String v, int defaultValue) {
+        if (v == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (socketRelay != null) {
+            socketRelay.close();
+        }
+        for (Tail t : tails) {
+            closeTail(t);
+        }
+        for (Waiter w : waiters) {
+            if (waiters.remove(w)) {
+                w.exchange.close();
+            }
+        }
+        scheduler.shutdownNow();
+        if (tokenFile != null) {
+            try {
+                Files.deleteIfExists(tokenFile);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
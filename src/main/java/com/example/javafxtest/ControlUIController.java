@@ -2,42 +2,45 @@ package com.example.javafxtest;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.concurrent.Task;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.io.InputStream;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.Enumeration;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.io.PrintWriter;
-import java.io.FileWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.io.FileOutputStream;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
-import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import javafx.animation.KeyFrame;
 import javafx.animation.ScaleTransition;
+import javafx.animation.Timeline;
 import javafx.animation.FadeTransition;
 import javafx.animation.ParallelTransition;
 import javafx.animation.PauseTransition;
 import javafx.util.Duration;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.Color;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class ControlUIController {
 
@@ -47,57 +50,138 @@ public class ControlUIController {
     @FXML
     private Button stopButton;
     @FXML
+    private Button rollingRestartButton;
+    @FXML
     private Label statusLabel;
     @FXML
     private Label networkInfoLabel;
+    @FXML
+    private Label subtitleLabel;
+    @FXML
+    private Label footerLabel;
+    @FXML
+    private Sparkline cpuSparkline;
+    @FXML
+    private Sparkline memorySparkline;
+    @FXML
+    private Sparkline threadSparkline;
 
-    private File embeddedJar;
-    private Process runningProcess;
-    private String bundledJavaPath;
     private ParallelTransition startButtonEffect;
     private PauseTransition startButtonEffectStopTimer;
-    private final int servicePort = 12123; // 依据你的服务端口，可按需修改或读取配置
-    private ScheduledExecutorService statusScheduler;
-    private volatile Boolean lastPortOpen = null;
+    private LauncherCore core;
+    /** 停止进行中（只在 FX 线程上读写）；此时再次点击停止按钮会强制结束。 */
+    private boolean stopping;
+
+    /** 走势图显示的采样点数，重绘时复用下面这些数组。 */
+    private static final int SPARKLINE_POINTS = 120;
+    private ProcessMetricsSampler sampler;
+    private final double[] cpuPoints = new double[SPARKLINE_POINTS];
+    private final long[] rssSamples = new long[SPARKLINE_POINTS];
+    private final double[] rssPoints = new double[SPARKLINE_POINTS];
+    private final int[] threadSamples = new int[SPARKLINE_POINTS];
+    private final double[] threadPoints = new double[SPARKLINE_POINTS];
+    private Stage logViewerStage;
 
     @FXML
     public void initialize() {
         logToFile("Initialization started.");
-        updateNetworkInfo();
         statusLabel.setText("状态: 已停止");
-        
-        try {
-            extractEmbeddedJdk();
-            logToFile("JDK extraction completed successfully.");
-        } catch (Exception e) {
-            logToFile("Failed to extract embedded JDK: " + e.getMessage());
-            statusLabel.setText("初始化失败: " + e.getMessage());
-            showErrorDialog("初始化失败", "无法提取嵌入的 JDK: " + e.getMessage());
-        }
-        
-        try {
-            embeddedJar = extractEmbeddedJar("/jar/myJar.jar");
-            if (embeddedJar != null && embeddedJar.exists()) {
-                startButton.setDisable(false);
-                logToFile("Embedded JAR prepared at: " + embeddedJar.getAbsolutePath());
+        // 网络信息与 JDK/JAR 准备在后台并发执行（MainApp.init() 中已启动），界面线程不等待
+        core = new LauncherCore(LauncherConfig.get());
+        core.addListener(new PoolListener());
+        StartupPipeline startup = core.getStartup();
+        if (!startup.launchInputs().isDone()) {
+            showPreparing("正在准备运行环境");
+        }
+        startup.addProgressListener((stage, message) -> {
+            if (!startup.launchInputs().isDone()) {
+                Platform.runLater(() -> showPreparing("正在准备运行环境: " + stage + " " + message));
+            }
+        });
+        startup.network().whenComplete((ip, e) -> Platform.runLater(() -> updateNetworkInfo(ip)));
+        startup.jdk().whenComplete((javaPath, e) -> {
+            if (e != null) {
+                Throwable cause = StartupPipeline.unwrap(e);
+                logToFile("Failed to extract embedded JDK: " + cause.getMessage());
+                Platform.runLater(() -> showErrorDialog("初始化失败", "无法提取嵌入的 JDK: " + cause.getMessage()));
             } else {
-                statusLabel.setText("未找到内置JAR");
-                logToFile("Embedded JAR not found in resources or file system.");
+                logToFile("JDK extraction completed successfully.");
+                int feature = JvmTuning.jdkFeature(javaPath);
+                if (feature > 0 && feature != 8) {
+                    // jlink-runtime 构建：服务运行在精简运行时上，标题与页脚不再写 JDK 8
+                    Platform.runLater(() -> showRuntimeVersion(feature));
+                }
             }
-        } catch (IOException e) {
-            statusLabel.setText("内置JAR准备失败: " + e.getMessage());
-            logToFile("Failed to prepare embedded JAR: " + e.getMessage());
+        });
+        // 预启动的服务池由核心接管，界面随后通过 PoolListener 收到其状态
+        core.start();
+        startMetrics();
+        // 启用了预启动时等它结束（服务池已被接管）再决定是否启用启动按钮，以免在此期间再启动一个服务池
+        startup.launchInputs().whenComplete((inputs, e) -> core.prelaunchSettled().whenComplete((r, pe) ->
+                Platform.runLater(() -> onLaunchInputs(inputs, e))));
+    }
+
+    private void showRuntimeVersion(int feature) {
+        ResourceBundle bundle = ResourceBundle.getBundle("app", Locale.getDefault());
+        subtitleLabel.setText(MessageFormat.format(bundle.getString("ui.subtitle.runtime"), feature));
+        footerLabel.setText(MessageFormat.format(bundle.getString("ui.footer.runtime"), feature));
+    }
+
+    /** 核心在后台采样服务进程的资源占用（并在本地 HTTP 端口提供 /metrics），界面上画走势图。 */
+    private void startMetrics() {
+        sampler = core.getSampler();
+        Timeline redraw = new Timeline(new KeyFrame(Duration.millis(sampler.getIntervalMs()), e -> redrawMetrics()));
+        redraw.setCycleCount(Timeline.INDEFINITE);
+        redraw.play();
+        redrawMetrics();
+    }
+
+    private void redrawMetrics() {
+        int n = sampler.snapshot(SPARKLINE_POINTS, null, cpuPoints, rssSamples, threadSamples, null, null);
+        for (int i = 0; i < n; i++) {
+            rssPoints[i] = rssSamples[i] < 0 ? -1 : rssSamples[i] / (1024.0 * 1024.0);
+            threadPoints[i] = threadSamples[i];
         }
+        boolean has = n > 0;
+        cpuSparkline.draw(cpuPoints, n, 100, has && cpuPoints[n - 1] >= 0
+                ? String.format("CPU %.1f%%", cpuPoints[n - 1]) : "CPU -");
+        memorySparkline.draw(rssPoints, n, 64, has && rssPoints[n - 1] >= 0
+                ? String.format("RSS %.0f MB", rssPoints[n - 1]) : "RSS -");
+        threadSparkline.draw(threadPoints, n, 16, has && threadPoints[n - 1] >= 0
+                ? String.format("线程 %.0f", threadPoints[n - 1]) : "线程 -");
     }
 
-    private void updateNetworkInfo() {
-        try {
-            InetAddress localhost = InetAddress.getLocalHost();
-            String ipAddress = localhost.getHostAddress();
+    private void onLaunchInputs(StartupPipeline.LaunchInputs inputs, Throwable error) {
+        if (error != null) {
+            Throwable cause = StartupPipeline.unwrap(error);
+            updateStatus("内置JAR准备失败: " + cause.getMessage(), false);
+            startButton.setDisable(true);
+            logToFile("Failed to prepare embedded JAR: " + cause.getMessage());
+            return;
+        }
+        if (core.getPool() != null) {
+            return;
+        }
+        if (inputs.jar != null && inputs.jar.exists()) {
+            updateStatus("已停止", false);
+            logToFile("Embedded JAR prepared at: " + inputs.jar.getAbsolutePath());
+        } else {
+            updateStatus("未找到内置JAR", false);
+            startButton.setDisable(true);
+            logToFile("Embedded JAR not found in resources or file system.");
+        }
+    }
+
+    private void showPreparing(String text) {
+        statusLabel.setText("🟡 " + text);
+        statusLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #856404; -fx-background-color: #fff3cd; -fx-background-radius: 12; -fx-padding: 4 12 4 12; -fx-font-weight: bold;");
+    }
+
+    private void updateNetworkInfo(String ipAddress) {
+        if (ipAddress != null) {
             networkInfoLabel.setText(String.format("🌐 %s:10001", ipAddress));
-        } catch (UnknownHostException e) {
+        } else {
             networkInfoLabel.setText("🌐 获取失败:10001");
-            e.printStackTrace();
         }
     }
 
@@ -105,13 +189,22 @@ public class ControlUIController {
 
     @FXML
     private void handleStart() {
-        if (embeddedJar == null || !embeddedJar.exists()) {
+        long t0 = Trace.begin();
+        try {
+            startService();
+        } finally {
+            Trace.end("ui.handleStart", t0);
+        }
+    }
+
+    private void startService() {
+        if (!core.hasJar()) {
             statusLabel.setText("🔴 未找到内置JAR");
             statusLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #dc3545; -fx-background-color: #f8d7da; -fx-background-radius: 12; -fx-padding: 4 12 4 12; -fx-font-weight: bold;");
             return;
         }
 
-        if (runningProcess != null && runningProcess.isAlive()) {
+        if (core.isRunning()) {
             statusLabel.setText("🟡 程序已在运行中");
             statusLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #856404; -fx-background-color: #fff3cd; -fx-background-radius: 12; -fx-padding: 4 12 4 12; -fx-font-weight: bold;");
             return;
@@ -122,58 +215,7 @@ public class ControlUIController {
             statusLabel.setText("🟡 启动中");
             statusLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #856404; -fx-background-color: #fff3cd; -fx-background-radius: 12; -fx-padding: 4 12 4 12; -fx-font-weight: bold;");
             playStartEffectTenSeconds();
-            String javaPath;
-            if (bundledJavaPath != null && !bundledJavaPath.isEmpty()) {
-                javaPath = bundledJavaPath;
-                logToFile("Using bundled JDK to start JAR: " + javaPath);
-            } else {
-                javaPath = findJavaExecutable();
-                logToFile("Bundled JDK not available, falling back to system Java: " + javaPath);
-            }
-            
-            String userHome = System.getProperty("user.home");
-            File workingDir = new File(userHome + "/AppData/Local/JarStarter/logs");
-            if (!workingDir.exists()) {
-                workingDir.mkdirs();
-                logToFile("Created writable working directory: " + workingDir.getAbsolutePath());
-            }
-            logToFile("Setting JAR working directory to: " + workingDir.getAbsolutePath());
-            
-            ProcessBuilder pb = new ProcessBuilder(javaPath, "-Dfile.encoding=UTF-8", "-Dspring.output.ansi.enabled=never", "-jar", embeddedJar.getAbsolutePath());
-            pb.directory(workingDir);
-            pb.redirectErrorStream(true);
-            // Disable ANSI colors via environment variables as an extra safeguard
-            pb.environment().put("SPRING_OUTPUT_ANSI_ENABLED", "never");
-            pb.environment().put("NO_COLOR", "1");
-            pb.environment().put("CLICOLOR", "0");
-            pb.environment().put("ANSICON", "");
-            runningProcess = pb.start();
-            logToFile("JAR process started successfully with PID: " + runningProcess.pid() + " (with -Dfile.encoding=UTF-8)");
-            
-            new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(runningProcess.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String cleaned = stripAnsi(line);
-                        logToFile("JAR output: " + cleaned);
-                    }
-                } catch (IOException e) {
-                    logToFile("Error reading JAR output: " + e.getMessage());
-                }
-            }).start();
-            
-            new Thread(() -> {
-                try {
-                    int exitCode = runningProcess.waitFor();
-                    logToFile("JAR process exited with code: " + exitCode);
-                    // 不直接置为已停止，改由端口检测来最终判定，防止子进程仍在运行
-                } catch (InterruptedException e) {
-                    logToFile("Process monitor interrupted: " + e.getMessage());
-                }
-            }).start();
-            
-            updateStatus("运行中", true);
-            startStatusMonitor();
+            core.startService();
         } catch (IOException e) {
             stopStartEffect();
             startButton.setDisable(false);
@@ -186,80 +228,310 @@ public class ControlUIController {
 
     @FXML
     private void handleStop() {
-        if (runningProcess != null && runningProcess.isAlive()) {
-            runningProcess.destroy();
-            try {
-                runningProcess.waitFor();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        if (stopping) {
+            // 停止过程中再次点击：不再等待宽限期
+            core.forceStop();
+            updateStatusPending("强制停止中");
+            return;
+        }
+        long t0 = Trace.begin();
+        if (core.getPool() == null) {
+            updateStatus("已停止", false);
+            return;
+        }
+        stopping = true;
+        updateStatusPending("停止中");
+        // 排空连接与等待进程退出可能需要数秒，不阻塞界面线程
+        core.stopService((phase, pid, elapsedMs) -> Platform.runLater(() -> showStopPhase(phase)))
+                .whenComplete((r, e) -> Platform.runLater(() -> {
+                    stopping = false;
+                    Trace.end("service.stop", t0);
+                    stopStartEffect();
+                    updateStatus("已停止", false);
+                }));
+    }
+
+    private void showStopPhase(ProcessTerminator.Phase phase) {
+        if (!stopping) {
+            return;
+        }
+        switch (phase) {
+            case GRACEFUL:
+                updateStatusPending("停止中: 等待进程退出 (再次点击停止可强制结束)");
+                break;
+            case FORCED:
+                updateStatusPending("停止中: 强制结束进程");
+                break;
+            case DESCENDANTS:
+                updateStatusPending("停止中: 清理子进程");
+                break;
+            default:
+                break;
+        }
+    }
+
+    @FXML
+    private void handleRollingRestart() {
+        ServicePool current = core.getPool();
+        CompletableFuture<ServicePool.RolloutReport> rollout = core.rollingRestart();
+        if (rollout == null) {
+            return;
         }
-        stopStatusMonitor();
-        updateStatus("已停止", false);
+        updateStatusPending("滚动重启中");
+        rollout.thenAccept(report -> Platform.runLater(() -> {
+            if (report.success) {
+                updateStatus("运行中 (切换 " + report.maxSwitchoverMs + " ms, 丢弃连接 "
+                        + (report.droppedConnections + report.forcedConnections) + ")", true);
+            } else {
+                showPoolState(current);
+                showErrorDialog("滚动重启失败", report.failure);
+            }
+        }));
     }
 
     @FXML
     private void handleDownloadLog() {
-        try {
-            String userHome = System.getProperty("user.home");
-            File logFile = new File(userHome, "jar_starter_log.txt");
-            if (!logFile.exists()) {
-                showErrorDialog("下载失败", "未找到日志文件：" + logFile.getAbsolutePath());
-                return;
+        AsyncLogWriter log = AsyncLogWriter.launcherLog();
+        log.flush(2000);
+        if (log.getAllFiles().isEmpty()) {
+            showErrorDialog("下载失败", "未找到日志文件：" + log.getFile().toAbsolutePath());
+            return;
+        }
+
+        // 导出条件：时间范围、级别、关键字与压缩格式
+        TextField fromField = new TextField();
+        fromField.setPromptText("yyyy-MM-dd HH:mm，留空不限");
+        TextField toField = new TextField();
+        toField.setPromptText("yyyy-MM-dd HH:mm，留空不限");
+        ComboBox<String> levelBox = new ComboBox<>();
+        levelBox.getItems().addAll(LogViewerController.LEVEL_CHOICES);
+        levelBox.getSelectionModel().select(0);
+        TextField keywordField = new TextField();
+        keywordField.setPromptText("留空不限");
+        ComboBox<String> formatBox = new ComboBox<>();
+        formatBox.getItems().addAll("gzip (.log.gz)", "zip (含各实例与错误日志)");
+        formatBox.getSelectionModel().select(0);
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("开始时间:"), fromField);
+        grid.addRow(1, new Label("结束时间:"), toField);
+        grid.addRow(2, new Label("级别:"), levelBox);
+        grid.addRow(3, new Label("关键字:"), keywordField);
+        grid.addRow(4, new Label("格式:"), formatBox);
+        Dialog<ButtonType> options = new Dialog<>();
+        options.setTitle("下载日志");
+        options.setHeaderText(null);
+        options.initOwner(statusLabel.getScene().getWindow());
+        options.getDialogPane().setContent(grid);
+        options.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (options.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+        long fromMillis = fromField.getText().isBlank() ? -1 : LogIndex.parseTime(fromField.getText(), -1);
+        long toMillis = toField.getText().isBlank() ? -1 : LogIndex.parseTime(toField.getText(), -1);
+        if ((!fromField.getText().isBlank() && fromMillis < 0) || (!toField.getText().isBlank() && toMillis < 0)) {
+            showErrorDialog("下载失败", "无法识别的时间，请使用 yyyy-MM-dd HH:mm 格式");
+            return;
+        }
+        String keyword = keywordField.getText();
+        Pattern pattern = keyword == null || keyword.isEmpty() ? null
+                : Pattern.compile(Pattern.quote(keyword), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        LogIndex.Level minLevel = LogViewerController.LEVEL_FILTERS[Math.max(0, levelBox.getSelectionModel().getSelectedIndex())];
+        LogExporter.Format format = formatBox.getSelectionModel().getSelectedIndex() == 1
+                ? LogExporter.Format.ZIP : LogExporter.Format.GZIP;
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("保存日志文件");
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmm").format(new Date());
+        if (format == LogExporter.Format.ZIP) {
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip 文件", "*.zip"));
+            fileChooser.setInitialFileName("jar_starter_log-" + stamp + ".zip");
+        } else {
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Gzip 文件", "*.gz"));
+            fileChooser.setInitialFileName("jar_starter_log-" + stamp + ".log.gz");
+        }
+        File dest = fileChooser.showSaveDialog(statusLabel.getScene().getWindow());
+        if (dest == null) {
+            return;
+        }
+
+        List<LogExporter.Source> sources = new ArrayList<>();
+        sources.add(new LogExporter.Source(log.getFile().getFileName().toString(), log.getAllFiles()));
+        if (format == LogExporter.Format.ZIP) {
+            ServicePool current = core.getPool();
+            if (current != null) {
+                for (ServiceInstance instance : current.getInstances()) {
+                    AsyncLogWriter output = instance.getOutputLog();
+                    if (output != log) {
+                        output.flush(500);
+                        sources.add(new LogExporter.Source("instance-" + instance.getIndex() + "/"
+                                + output.getFile().getFileName(), output.getAllFiles()));
+                    }
+                }
             }
+            AsyncLogWriter errorLog = AsyncLogWriter.errorLog();
+            errorLog.flush(500);
+            sources.add(new LogExporter.Source(errorLog.getFile().getFileName().toString(), errorLog.getAllFiles()));
+        }
+        exportLogs(new LogExporter(sources, fromMillis, toMillis, minLevel, pattern, format, dest.toPath()), dest);
+    }
 
-            FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("保存日志文件");
-            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("文本文件", "*.txt"));
-            fileChooser.setInitialFileName("jar_starter_log.txt");
-            Stage stage = (Stage) statusLabel.getScene().getWindow();
-            File dest = fileChooser.showSaveDialog(stage);
-            if (dest == null) {
-                return;
+    /** 在后台线程执行导出，显示进度，可取消。 */
+    private void exportLogs(LogExporter exporter, File dest) {
+        Task<LogExporter.Result> task = new Task<>() {
+            @Override
+            protected LogExporter.Result call() throws Exception {
+                updateMessage("正在定位时间范围");
+                return exporter.export((done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage(String.format("已处理 %.1f / %.1f MB", done / 1048576.0, total / 1048576.0));
+                });
             }
-            dest.getParentFile().mkdirs();
-            Files.copy(logFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
+            @Override
+            protected void cancelled() {
+                exporter.cancel();
+            }
+        };
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+        ProgressBar progress = new ProgressBar();
+        progress.setPrefWidth(320);
+        progress.progressProperty().bind(task.progressProperty());
+        Dialog<ButtonType> progressDialog = new Dialog<>();
+        progressDialog.setTitle("正在导出日志");
+        progressDialog.setHeaderText(null);
+        progressDialog.initOwner(statusLabel.getScene().getWindow());
+        progressDialog.getDialogPane().setContent(new VBox(10, message, progress));
+        progressDialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        progressDialog.setOnHidden(e -> {
+            if (task.isRunning()) {
+                task.cancel();
+            }
+        });
+        task.setOnSucceeded(e -> {
+            progressDialog.close();
+            LogExporter.Result result = task.getValue();
+            if (result == null) {
+                return;
+            }
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("下载成功");
             alert.setHeaderText(null);
-            alert.setContentText("日志已保存到：" + dest.getAbsolutePath());
+            alert.setContentText(String.format("日志已保存到：%s%n%,d 行，%.1f MB → %.1f MB，用时 %.1f 秒",
+                    dest.getAbsolutePath(), result.linesWritten, result.bytesScanned / 1048576.0,
+                    result.bytesWritten / 1048576.0, result.elapsedMs / 1000.0));
             alert.showAndWait();
-        } catch (Exception ex) {
-            showErrorDialog("下载失败", ex.getMessage());
-            logToFile("Download log failed: " + ex.getMessage());
-        }
+        });
+        task.setOnFailed(e -> {
+            progressDialog.close();
+            Throwable error = task.getException();
+            showErrorDialog("下载失败", error.getMessage());
+            logToFile("Download log failed: " + error.getMessage());
+        });
+        Thread worker = new Thread(task, "log-export");
+        worker.setDaemon(true);
+        worker.start();
+        progressDialog.show();
     }
 
-    private String stripAnsi(String input) {
-        if (input == null) {
-            return null;
+    @FXML
+    private void handleViewLog() {
+        if (logViewerStage != null) {
+            logViewerStage.toFront();
+            return;
+        }
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("app", Locale.getDefault());
+            FXMLLoader loader = new FXMLLoader(MainApp.class.getResource("LogViewer.fxml"), bundle);
+            Parent root = loader.load();
+            LogViewerController viewer = loader.getController();
+            Stage stage = new Stage();
+            stage.setTitle(bundle.getString("logviewer.title"));
+            stage.setScene(new Scene(root, 1000, 640));
+            stage.initOwner(statusLabel.getScene().getWindow());
+            stage.setOnHidden(e -> {
+                viewer.close();
+                logViewerStage = null;
+            });
+            viewer.setSources(logSources());
+            logViewerStage = stage;
+            stage.show();
+        } catch (IOException | RuntimeException ex) {
+            showErrorDialog("打开日志失败", ex.getMessage());
+            logToFile("Open log viewer failed: " + ex.getMessage());
         }
-        // Remove ANSI escape sequences like \u001B[0;39m etc.
-        return input.replaceAll("\u001B\\[[;\\d]*m", "");
     }
 
-    private String findJavaExecutable() {
-        // 常见的JDK 8路径
-        String[] possiblePaths = {
-            "java", // 系统PATH中的java
-            System.getProperty("java.home") + "\\bin\\java.exe",
-            "C:\\Program Files\\Java\\jdk1.8.0_*\\bin\\java.exe",
-            "C:\\Program Files (x86)\\Java\\jdk1.8.0_*\\bin\\java.exe",
-            System.getProperty("java.home") + "\\bin\\java"
-        };
-        
-        for (String path : possiblePaths) {
-            if (path.contains("*")) {
-                continue; // 跳过通配符路径，需要更复杂的查找
+    /** 启动器日志（含轮转文件）、错误日志，以及多实例时各实例的服务输出。 */
+    private List<LogViewerController.LogSource> logSources() {
+        List<LogViewerController.LogSource> sources = new ArrayList<>();
+        List<Path> seen = new ArrayList<>();
+        addLogSources(sources, seen, "启动器日志", AsyncLogWriter.launcherLog());
+        ServicePool current = core.getPool();
+        if (current != null) {
+            for (ServiceInstance instance : current.getInstances()) {
+                addLogSources(sources, seen, "实例 " + instance.getIndex() + " 输出", instance.getOutputLog());
             }
-            File javaFile = new File(path);
-            if (path.equals("java") || (javaFile.exists() && javaFile.canExecute())) {
-                return path;
+        }
+        addLogSources(sources, seen, "错误日志", AsyncLogWriter.errorLog());
+        return sources;
+    }
+
+    private static void addLogSources(List<LogViewerController.LogSource> sources, List<Path> seen, String name,
+                                      AsyncLogWriter log) {
+        log.flush(500);
+        List<Path> files = log.getAllFiles();
+        if (files.isEmpty() || seen.contains(log.getFile())) {
+            return;
+        }
+        seen.add(log.getFile());
+        // 当前文件在前，轮转文件从新到旧
+        for (int i = files.size() - 1; i >= 0; i--) {
+            Path p = files.get(i);
+            sources.add(new LogViewerController.LogSource(
+                    p.equals(log.getFile()) ? name : name + " (" + p.getFileName() + ")", p));
+        }
+    }
+
+    @FXML
+    private void handleExportDiagnostics() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("导出诊断信息");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip 文件", "*.zip"));
+        fileChooser.setInitialFileName("jarstarter-diagnostics.zip");
+        File dest = fileChooser.showSaveDialog(statusLabel.getScene().getWindow());
+        if (dest == null) {
+            return;
+        }
+        DiagnosticsExporter exporter = new DiagnosticsExporter();
+        ServicePool current = core.getPool();
+        if (current != null) {
+            for (ServiceInstance i : current.getInstances()) {
+                exporter.addLog(i.getOutputLog());
             }
         }
-        
-        return "java"; // 默认返回系统PATH中的java
+        CompletableFuture.runAsync(() -> {
+            try {
+                exporter.export(dest.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((r, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                Throwable cause = StartupPipeline.unwrap(e);
+                cause = cause instanceof UncheckedIOException ? cause.getCause() : cause;
+                showErrorDialog("导出失败", cause.getMessage());
+                logToFile("Export diagnostics failed: " + cause.getMessage());
+                return;
+            }
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("导出成功");
+            alert.setHeaderText(null);
+            alert.setContentText("诊断信息已保存到：" + dest.getAbsolutePath());
+            alert.showAndWait();
+        }));
     }
 
     private void updateStatus(String status, boolean isRunning) {
@@ -273,159 +545,22 @@ public class ControlUIController {
             }
             startButton.setDisable(isRunning);
             stopButton.setDisable(!isRunning);
+            rollingRestartButton.setDisable(!isRunning);
         });
     }
 
-    private void extractResourceDirectory(String resourcePath, File targetDir) throws IOException {
-        ClassLoader loader = getClass().getClassLoader();
-        Enumeration<URL> resources = loader.getResources(resourcePath.substring(1) + "/");
-        int extractedCount = 0;
-        
-        while (resources.hasMoreElements()) {
-            URL url = resources.nextElement();
-            try (InputStream is = url.openStream()) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    // This is for directories, but since it's a flat list, we need a different approach
-                    // Actually, for embedded resources, we need to list all possible paths
-                }
-            }
-        } 
-        
-        // Revert to predefined list with recursive extraction
-        extractResourceRecursive(resourcePath, targetDir, "");
-    }
-    
-    private void extractResourceRecursive(String basePath, File targetDir, String currentPath) throws IOException {
-        InputStream dirStream = getClass().getResourceAsStream(basePath + currentPath);
-        if (dirStream != null) {
-            logToFile("Extracting directory: " + basePath + currentPath);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(dirStream));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isEmpty()) continue;
-                String fullPath = currentPath + line;
-                if (line.endsWith("/")) {
-                    File newDir = new File(targetDir, fullPath);
-                    newDir.mkdirs();
-                    logToFile("Created directory: " + newDir.getAbsolutePath());
-                    extractResourceRecursive(basePath, targetDir, fullPath);
-                } else {
-                    InputStream fileStream = getClass().getResourceAsStream(basePath + fullPath);
-                    if (fileStream != null) {
-                        File targetFile = new File(targetDir, fullPath);
-                        targetFile.getParentFile().mkdirs();
-                        Files.copy(fileStream, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                        logToFile("Extracted file: " + targetFile.getAbsolutePath());
-                        if (fullPath.endsWith(".exe")) {
-                            targetFile.setExecutable(true);
-                        }
-                    } else {
-                        logToFile("Resource not found: " + basePath + fullPath);
-                    }
-                }
-            }
-        } else {
-            logToFile("Directory stream not found for: " + basePath + currentPath);
-        }
-    }
-    
-    private void logToFile(String message) {
-        String userHome = System.getProperty("user.home");
-        File logFile = new File(userHome, "jar_starter_log.txt");
-        try (PrintWriter writer = new PrintWriter(new FileWriter(logFile, true))) {
-            writer.println("[LOG] " + new Date() + ": " + message);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void extractEmbeddedJdk() throws IOException {
-        logToFile("Starting JDK extraction process.");
-        
-        String userHome = System.getProperty("user.home");
-        File appDataDir = new File(userHome, "JarStarter");
-        if (!appDataDir.exists()) {
-            appDataDir.mkdirs();
-            logToFile("Created app data directory: " + appDataDir.getAbsolutePath());
-        }
-        
-        File jdkDir = new File(appDataDir, "jdk1.8.0_202");
-        if (jdkDir.exists() && new File(jdkDir, "bin/java.exe").exists()) {
-            logToFile("JDK already exists at: " + jdkDir.getAbsolutePath() + ". Skipping extraction.");
-            bundledJavaPath = new File(jdkDir, "bin/java.exe").getAbsolutePath();
-            return;
-        }
-        
-        logToFile("JDK not found. Starting extraction to: " + jdkDir.getAbsolutePath());
-        extractResourceDirectory("/embedded-jdk/", jdkDir);
-        
-        File extractedJava = new File(jdkDir, "bin/java.exe");
-        if (extractedJava.exists()) {
-            extractedJava.setExecutable(true);
-            bundledJavaPath = extractedJava.getAbsolutePath();
-            logToFile("JDK extraction successful. Java path: " + bundledJavaPath);
-        } else {
-            logToFile("JDK extraction failed: java.exe not found after extraction.");
-            throw new IOException("JDK extraction failed: java.exe not found.");
-        }
+    private void updateStatusPending(String status) {
+        Platform.runLater(() -> {
+            statusLabel.setText("🟡 " + status);
+            statusLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #856404; -fx-background-color: #fff3cd; -fx-background-radius: 12; -fx-padding: 4 12 4 12; -fx-font-weight: bold;");
+            startButton.setDisable(true);
+            stopButton.setDisable(false);
+            rollingRestartButton.setDisable(true);
+        });
     }
 
-    private File extractEmbeddedJar(String resourcePath) throws IOException {
-        // 1) 如果之前已解压过，直接使用
-        String userHome = System.getProperty("user.home");
-        File workDir = new File(userHome + "/AppData/Local/JarStarter/app");
-        if (!workDir.exists()) {
-            workDir.mkdirs();
-            logToFile("Created extraction directory: " + workDir.getAbsolutePath());
-        } else {
-            logToFile("Extraction directory already exists: " + workDir.getAbsolutePath());
-        }
-        File out = new File(workDir, "myJar.jar");
-        if (out.exists()) {
-            logToFile("Found existing extracted JAR: " + out.getAbsolutePath());
-            return out;
-        } else {
-            logToFile("No existing extracted JAR found.");
-        }
-
-        // 2) 尝试从类路径资源复制
-        logToFile("Attempting to load from classpath resource: " + resourcePath);
-        InputStream in = getClass().getResourceAsStream(resourcePath);
-        if (in != null) {
-            logToFile("Classpath resource found, copying to: " + out.getAbsolutePath());
-            Files.copy(in, out.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            in.close();
-            if (out.exists()) {
-                logToFile("Successfully extracted from classpath.");
-                return out;
-            } else {
-                logToFile("Copy from classpath succeeded but file does not exist after copy.");
-            }
-        } else {
-            logToFile("Classpath resource not found: " + resourcePath);
-        }
-
-        // 3) 回退：从文件系统的 target/myJar.jar 复制（便于开发期使用）
-        logToFile("Attempting fallback from file system: target/myJar.jar");
-        File devJar = new File("target/myJar.jar");
-        if (devJar.exists()) {
-            logToFile("File system JAR found, copying to: " + out.getAbsolutePath());
-            Files.copy(devJar.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            if (out.exists()) {
-                logToFile("Successfully copied from file system.");
-                return out;
-            } else {
-                logToFile("Copy from file system succeeded but file does not exist after copy.");
-            }
-        } else {
-            logToFile("File system JAR not found at target/myJar.jar");
-        }
-
-        // 4) 找不到
-        logToFile("No JAR found in any location.");
-        return null;
+    private void logToFile(String message) {
+        AsyncLogWriter.launcherLog().log(message);
     }
 
     private void showErrorDialog(String title, String message) {
@@ -491,38 +626,54 @@ public class ControlUIController {
         }
     }
 
-    private void startStatusMonitor() {
-        stopStatusMonitor();
-        statusScheduler = Executors.newSingleThreadScheduledExecutor();
-        statusScheduler.scheduleAtFixedRate(() -> {
-            boolean open = isPortOpen("127.0.0.1", servicePort, 800);
-            if (lastPortOpen == null || lastPortOpen != open) {
-                lastPortOpen = open;
-                Platform.runLater(() -> {
-                    if (open) {
-                        updateStatus("运行中", true);
-                    } else {
-                        updateStatus("已停止", false);
-                    }
-                });
-            }
-        }, 0, 2, TimeUnit.SECONDS);
-    }
+    private final class PoolListener implements ServicePool.Listener {
+        @Override
+        public void onPoolStateChanged(ServicePool source) {
+            Platform.runLater(() -> showPoolState(source));
+        }
+
+        @Override
+        public void onRestartScheduled(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, long delayMs) {
+            ServicePool current = core.getPool();
+            String who = current != null && current.size() > 1 ? "实例 " + (instance.getIndex() + 1) : "";
+            updateStatusPending(who + "异常退出，" + (delayMs / 1000 + 1) + " 秒后重启");
+        }
 
-    private void stopStatusMonitor() {
-        if (statusScheduler != null) {
-            statusScheduler.shutdownNow();
-            statusScheduler = null;
-            lastPortOpen = null;
+        @Override
+        public void onGaveUp(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, String reason) {
+            Platform.runLater(() -> {
+                ServicePool current = core.getPool();
+                if (current != null && current.isRunning()) {
+                    showPoolState(current);
+                } else {
+                    updateStatus("已停止 (退出码 " + crash.exitCode + ")", false);
+                }
+            });
         }
     }
 
-    private boolean isPortOpen(String host, int port, int timeoutMs) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
-            return true;
-        } catch (Exception e) {
-            return false;
+    private void showPoolState(ServicePool source) {
+        if (source != core.getPool()) {
+            return;
+        }
+        String count = source.size() > 1 ? " (" + source.readyCount() + "/" + source.size() + ")" : "";
+        switch (source.aggregateState()) {
+            case STARTING:
+                updateStatusPending("启动中" + count);
+                break;
+            case READY:
+                updateStatus("运行中" + count, true);
+                break;
+            case UNRESPONSIVE:
+                updateStatusPending("无响应" + count);
+                break;
+            default:
+                if (source.isRestartPending() || stopping) {
+                    // 守护进程已安排重启，或进程仍在终止中：保留当前提示
+                    break;
+                }
+                updateStatus("已停止", false);
+                stopStartEffect();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 把追踪时间线与日志打成一个诊断 zip：trace.json（Chrome trace-event）、launcher.jfr（开启录制时）、
+ * 启动器日志与错误日志（含轮转文件）、各实例的服务输出日志以及 launcher.properties。
+ * 调用方还可以附加内存中的条目（例如 {@link ServiceFlightRecorder} 的输出缓冲、线程转储与指标）。
+ */
+final class DiagnosticsExporter {
+
+    private final List<AsyncLogWriter> extraLogs = new ArrayList<>();
+    private final Map<String, byte[]> extraEntries = new LinkedHashMap<>();
+    private boolean includeLogs = true;
+
+    DiagnosticsExporter() {
+    }
+
+    /** 追加需要一并导出的日志（例如多实例时各实例的 service.log）。 */
+    DiagnosticsExporter addLog(AsyncLogWriter log) {
+        if (!extraLogs.contains(log)) {
+            extraLogs.add(log);
+        }
+        return this;
+    }
+
+    /** 附加一个内存中的条目。 */
+    DiagnosticsExporter addEntry(String name, byte[] data) {
+        extraEntries.put(name, data);
+        return this;
+    }
+
+    DiagnosticsExporter addEntry(String name, String text) {
+        return addEntry(name, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 是否包含日志文件；自动生成的诊断包已带有输出缓冲，不必每次复制全部轮转日志。 */
+    DiagnosticsExporter includeLogs(boolean include) {
+        this.includeLogs = include;
+        return this;
+    }
+
+    /** 写出诊断包，返回写入的条目数。 */
+    int export(Path zipFile) throws IOException {
+        long t0 = Trace.begin();
+        AsyncLogWriter launcherLog = AsyncLogWriter.launcherLog();
+        AsyncLogWriter errorLog = AsyncLogWriter.errorLog();
+        if (includeLogs) {
+            launcherLog.flush(2000);
+            errorLog.flush(2000);
+            for (AsyncLogWriter w : extraLogs) {
+                w.flush(2000);
+            }
+        }
+        Files.createDirectories(zipFile.toAbsolutePath().getParent());
+        int entries = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zip.putNextEntry(new ZipEntry("trace.json"));
+            Writer w = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            Trace.writeChromeTrace(w);
+            w.flush();
+            zip.closeEntry();
+            entries++;
+
+            Path jfr = Files.createTempFile("jarstarter", ".jfr");
+            try {
+                if (Trace.dumpJfr(jfr)) {
+                    entries += addFile(zip, jfr, "launcher.jfr");
+                }
+            } finally {
+                Files.deleteIfExists(jfr);
+            }
+            if (includeLogs) {
+                for (Path p : launcherLog.getAllFiles()) {
+                    entries += addFile(zip, p, "logs/" + p.getFileName());
+                }
+                for (Path p : errorLog.getAllFiles()) {
+                    entries += addFile(zip, p, "logs/" + p.getFileName());
+                }
+                for (AsyncLogWriter extra : extraLogs) {
+                    for (Path p : extra.getAllFiles()) {
+                        entries += addFile(zip, p, "logs/" + p.getParent().getFileName() + "/" + p.getFileName());
+                    }
+                }
+            }
+            for (Map.Entry<String, byte[]> e : extraEntries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(e.getKey()));
+                zip.write(e.getValue());
+                zip.closeEntry();
+                entries++;
+            }
+            File config = LauncherConfig.get().getFile();
+            if (config.isFile()) {
+                entries += addFile(zip, config.toPath(), config.getName());
+            }
+        }
+        Trace.end("diagnostics.export", t0);
+        AsyncLogWriter.launcherLog().log("Exported diagnostics (" + entries + " entries, " + Trace.recordedCount()
+                + " trace spans) to " + zipFile.toAbsolutePath());
+        return entries;
+    }
+
+    private static int addFile(ZipOutputStream zip, Path file, String name) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        zip.putNextEntry(new ZipEntry(name));
+        Files.copy(file, zip);
+        zip.closeEntry();
+        return 1;
+    }
+}
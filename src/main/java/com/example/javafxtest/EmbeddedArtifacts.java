@@ -0,0 +1,225 @@
+package com.example.javafxtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+
+/**
+ * 准备内置的 JDK 与服务 JAR（解压到用户目录），不依赖界面，可在后台线程运行。
+ */
+final class EmbeddedArtifacts {
+
+    private final AsyncLogWriter log;
+
+    EmbeddedArtifacts(AsyncLogWriter log) {
+        this.log = log;
+    }
+
+    /**
+     * 解压（或校验）内置 JDK，返回其 java 可执行文件路径。
+     * 构建时用 jlink 生成了精简运行时（/embedded-runtime，见 pom 的 jlink-runtime profile）时优先使用它。
+     */
+    String prepareJdk() throws IOException {
+        log.log("Starting JDK extraction process.");
+        
+        String userHome = System.getProperty("user.home");
+        File appDataDir = new File(userHome, "JarStarter");
+        if (!appDataDir.exists()) {
+            appDataDir.mkdirs();
+            log.log("Created app data directory: " + appDataDir.getAbsolutePath());
+        }
+
+        ExtractionManifest runtimeManifest = ExtractionManifest.load("/embedded-runtime.manifest");
+        if (runtimeManifest != null) {
+            return prepareRuntime(new File(appDataDir, "runtime"), runtimeManifest);
+        }
+        
+        File jdkDir = new File(appDataDir, "jdk1.8.0_202");
+        ExtractionManifest manifest = ExtractionManifest.load("/embedded-jdk.manifest");
+        if (manifest != null) {
+            // 按内容哈希比较 stamp，只解压变化的条目
+            ArtifactInstaller installer = new ArtifactInstaller(AsyncLogWriter.launcherLog());
+            if (ArtifactInstaller.isInstalled(manifest, jdkDir.toPath())) {
+                log.log("JDK already installed at: " + jdkDir.getAbsolutePath() + ". Skipping extraction.");
+            } else if (EmbeddedArtifacts.class.getResource("/embedded-jdk.pack") != null) {
+                // 单文件压缩包：落盘一次后映射解压
+                try (PackedResourceSource pack = PackedResourceSource.fromClasspath("/embedded-jdk.pack",
+                        appDataDir.toPath())) {
+                    installer.installTree(manifest, pack, jdkDir.toPath());
+                }
+            } else {
+                installer.installTree(manifest, ManifestExtractor.classpath("/embedded-jdk/"), jdkDir.toPath());
+            }
+        } else if (jdkDir.exists() && new File(jdkDir, "bin/java.exe").exists()) {
+            log.log("JDK already exists at: " + jdkDir.getAbsolutePath() + ". Skipping extraction.");
+            return new File(jdkDir, "bin/java.exe").getAbsolutePath();
+        } else {
+            log.log("JDK extraction manifest not found, falling back to directory listing into: " + jdkDir.getAbsolutePath());
+            extractResourceDirectory("/embedded-jdk/", jdkDir);
+        }
+        
+        File extractedJava = new File(jdkDir, "bin/java.exe");
+        if (extractedJava.exists()) {
+            extractedJava.setExecutable(true);
+            log.log("JDK extraction successful. Java path: " + extractedJava.getAbsolutePath());
+            return extractedJava.getAbsolutePath();
+        } else {
+            log.log("JDK extraction failed: java.exe not found after extraction.");
+            throw new IOException("JDK extraction failed: java.exe not found.");
+        }
+    }
+
+    /** 解压（或校验）jlink 生成的精简运行时，返回其 java 可执行文件路径。 */
+    private String prepareRuntime(File runtimeDir, ExtractionManifest manifest) throws IOException {
+        if (ArtifactInstaller.isInstalled(manifest, runtimeDir.toPath())) {
+            log.log("Runtime already installed at: " + runtimeDir.getAbsolutePath() + ". Skipping extraction.");
+        } else {
+            new ArtifactInstaller(AsyncLogWriter.launcherLog())
+                    .installTree(manifest, ManifestExtractor.classpath("/embedded-runtime/"), runtimeDir.toPath());
+        }
+        File java = new File(runtimeDir, "bin/java.exe");
+        if (!java.exists()) {
+            // 非 Windows 构建的运行时：资源解压不保留可执行位，补上 java 与 jspawnhelper 的
+            java = new File(runtimeDir, "bin/java");
+            new File(runtimeDir, "lib/jspawnhelper").setExecutable(true);
+        }
+        if (!java.exists()) {
+            log.log("Runtime extraction failed: java not found in " + runtimeDir.getAbsolutePath());
+            throw new IOException("Runtime extraction failed: java not found.");
+        }
+        java.setExecutable(true);
+        log.log("Runtime ready. Java path: " + java.getAbsolutePath());
+        return java.getAbsolutePath();
+    }
+
+    /** 解压（或校验）内置服务 JAR，找不到时返回 null。 */
+    File prepareJar(String resourcePath) throws IOException {
+        String userHome = System.getProperty("user.home");
+        File workDir = new File(userHome + "/AppData/Local/JarStarter/app");
+        if (!workDir.exists()) {
+            workDir.mkdirs();
+            log.log("Created extraction directory: " + workDir.getAbsolutePath());
+        } else {
+            log.log("Extraction directory already exists: " + workDir.getAbsolutePath());
+        }
+        File out = new File(workDir, "myJar.jar");
+
+        // 1) 类路径资源存在时，按内容哈希与 stamp 比较，变化了才重新解压
+        if (EmbeddedArtifacts.class.getResource(resourcePath) != null) {
+            log.log("Classpath resource found, verifying installed copy: " + out.getAbsolutePath());
+            ExtractionManifest manifest = ExtractionManifest.load("/embedded-jar.manifest");
+            new ArtifactInstaller(AsyncLogWriter.launcherLog()).installFile(manifest, resourcePath, out.toPath());
+            return out;
+        }
+        log.log("Classpath resource not found: " + resourcePath);
+        if (out.exists()) {
+            log.log("Found existing extracted JAR: " + out.getAbsolutePath());
+            return out;
+        }
+
+        // 2) 回退：从文件系统的 target/myJar.jar 复制（便于开发期使用）
+        log.log("Attempting fallback from file system: target/myJar.jar");
+        File devJar = new File("target/myJar.jar");
+        if (devJar.exists()) {
+            log.log("File system JAR found, copying to: " + out.getAbsolutePath());
+            Files.copy(devJar.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (out.exists()) {
+                log.log("Successfully copied from file system.");
+                return out;
+            } else {
+                log.log("Copy from file system succeeded but file does not exist after copy.");
+            }
+        } else {
+            log.log("File system JAR not found at target/myJar.jar");
+        }
+
+        // 3) 找不到
+        log.log("No JAR found in any location.");
+        return null;
+    }
+
+    private void extractResourceDirectory(String resourcePath, File targetDir) throws IOException {
+        ClassLoader loader = EmbeddedArtifacts.class.getClassLoader();
+        Enumeration<URL> resources = loader.getResources(resourcePath.substring(1) + "/");
+        int extractedCount = 0;
+        
+        while (resources.hasMoreElements()) {
+            URL url = resources.nextElement();
+            try (InputStream is = url.openStream()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // This is for directories, but since it's a flat list, we need a different approach
+                    // Actually, for embedded resources, we need to list all possible paths
+                }
+            }
+        } 
+        
+        // Revert to predefined list with recursive extraction
+        extractResourceRecursive(resourcePath, targetDir, "");
+    }
+    
+    private void extractResourceRecursive(String basePath, File targetDir, String currentPath) throws IOException {
+        InputStream dirStream = EmbeddedArtifacts.class.getResourceAsStream(basePath + currentPath);
+        if (dirStream != null) {
+            log.log("Extracting directory: " + basePath + currentPath);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(dirStream));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String fullPath = currentPath + line;
+                if (line.endsWith("/")) {
+                    File newDir = new File(targetDir, fullPath);
+                    newDir.mkdirs();
+                    log.log("Created directory: " + newDir.getAbsolutePath());
+                    extractResourceRecursive(basePath, targetDir, fullPath);
+                } else {
+                    InputStream fileStream = EmbeddedArtifacts.class.getResourceAsStream(basePath + fullPath);
+                    if (fileStream != null) {
+                        File targetFile = new File(targetDir, fullPath);
+                        targetFile.getParentFile().mkdirs();
+                        Files.copy(fileStream, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        log.log("Extracted file: " + targetFile.getAbsolutePath());
+                        if (fullPath.endsWith(".exe")) {
+                            targetFile.setExecutable(true);
+                        }
+                    } else {
+                        log.log("Resource not found: " + basePath + fullPath);
+                    }
+                }
+            }
+        } else {
+            log.log("Directory stream not found for: " + basePath + currentPath);
+        }
+    }
+    
+    /** 内置 JDK 不可用时查找系统 Java。 */
+    static String findJavaExecutable() {
+        // 常见的JDK 8路径
+        String[] possiblePaths = {
+            "java", // 系统PATH中的java
+            System.getProperty("java.home") + "\\bin\\java.exe",
+            "C:\\Program Files\\Java\\jdk1.8.0_*\\bin\\java.exe",
+            "C:\\Program Files (x86)\\Java\\jdk1.8.0_*\\bin\\java.exe",
+            System.getProperty("java.home") + "\\bin\\java"
+        };
+        
+        for (String path : possiblePaths) {
+            if (path.contains("*")) {
+                continue; // 跳过通配符路径，需要更复杂的查找
+            }
+            File javaFile = new File(path);
+            if (path.equals("java") || (javaFile.exists() && javaFile.canExecute())) {
+                return path;
+            }
+        }
+        
+        return "java"; // 默认返回系统PATH中的java
+    }
+}
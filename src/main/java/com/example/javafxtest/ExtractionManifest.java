@@ -0,0 +1,138 @@
+package com.example.javafxtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 构建期生成的解压清单（见 src/build/java/ResourceManifest.java）。
+ * 每个文件条目带有大小与 sha256，目录条目以 / 结尾。
+ */
+final class ExtractionManifest {
+
+    static final class FileEntry {
+        final String path;
+        final long size;
+        final String sha256;
+
+        FileEntry(String path, long size, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+    }
+
+    private final String digest;
+    private final List<String> directories;
+    private final List<FileEntry> files;
+    private final long totalBytes;
+
+    private ExtractionManifest(String digest, List<String> directories, List<FileEntry> files) {
+        this.digest = digest;
+        this.directories = Collections.unmodifiableList(directories);
+        this.files = Collections.unmodifiableList(files);
+        long sum = 0;
+        for (FileEntry f : files) {
+            sum += f.size;
+        }
+        this.totalBytes = sum;
+    }
+
+    /** 从类路径读取清单，资源不存在时返回 null。 */
+    static ExtractionManifest load(String resourcePath) throws IOException {
+        InputStream in = ExtractionManifest.class.getResourceAsStream(resourcePath);
+        if (in == null) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parse(reader);
+        }
+    }
+
+    /** 读取磁盘上的清单（例如已安装目录旁的 stamp 文件），文件不存在或损坏时返回 null。 */
+    static ExtractionManifest loadFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static ExtractionManifest parse(BufferedReader reader) throws IOException {
+        String digest = null;
+        List<String> dirs = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("digest ")) {
+                digest = line.substring(7).trim();
+            } else if (line.startsWith("D ")) {
+                dirs.add(line.substring(2));
+            } else if (line.startsWith("F ")) {
+                int sizeEnd = line.indexOf(' ', 2);
+                int hashEnd = sizeEnd < 0 ? -1 : line.indexOf(' ', sizeEnd + 1);
+                if (hashEnd < 0) {
+                    throw new IOException("Malformed manifest line " + lineNo + ": " + line);
+                }
+                long size = Long.parseLong(line.substring(2, sizeEnd));
+                files.add(new FileEntry(line.substring(hashEnd + 1), size, line.substring(sizeEnd + 1, hashEnd)));
+            } else {
+                throw new IOException("Malformed manifest line " + lineNo + ": " + line);
+            }
+        }
+        return new ExtractionManifest(digest, dirs, files);
+    }
+
+    /** 以与构建工具相同的格式输出清单。 */
+    String toText() {
+        StringBuilder sb = new StringBuilder(64 * (directories.size() + files.size() + 1));
+        sb.append("digest ").append(digest).append('\n');
+        for (String dir : directories) {
+            sb.append("D ").append(dir).append('\n');
+        }
+        for (FileEntry f : files) {
+            sb.append("F ").append(f.size).append(' ').append(f.sha256).append(' ').append(f.path).append('\n');
+        }
+        return sb.toString();
+    }
+
+    FileEntry find(String path) {
+        for (FileEntry f : files) {
+            if (f.path.equals(path)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    String getDigest() {
+        return digest;
+    }
+
+    List<String> getDirectories() {
+        return directories;
+    }
+
+    List<FileEntry> getFiles() {
+        return files;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无界面模式（--headless）：不加载 JavaFX 工具包，作为普通后台服务运行。
+ * <p>
+ * 与图形界面共用 {@link LauncherCore}：准备好内置 JDK/JAR 后启动服务（开启 startup.prelaunch 时直接接管预启动的服务池），
+ * 状态变化写入启动器日志并打印到标准输出，便于服务管理器收集。收到终止信号（SIGTERM、Ctrl+C、Windows 服务停止）时
+ * 排空并停止服务后退出；守护进程放弃重启且没有实例在运行时以退出码 1 退出，交由外部服务管理器处理。
+ */
+final class HeadlessLauncher {
+
+    private final AsyncLogWriter log = AsyncLogWriter.launcherLog();
+    private final LauncherConfig config;
+    private final LauncherCore core;
+    private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+    private ServiceHealthMonitor.State lastState;
+
+    private HeadlessLauncher(LauncherConfig config) {
+        this.config = config;
+        this.core = new LauncherCore(config);
+    }
+
+    static void launch() {
+        LauncherConfig config = LauncherConfig.get();
+        Trace.startRecordingIfConfigured(config);
+        Trace.instant("launcher.init");
+        int code = new HeadlessLauncher(config).run();
+        System.exit(code);
+    }
+
+    private int run() {
+        status("Starting in headless mode");
+        core.addListener(new ServicePool.Listener() {
+            @Override
+            public void onPoolStateChanged(ServicePool pool) {
+                showPoolState(pool);
+            }
+
+            @Override
+            public void onRestartScheduled(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, long delayMs) {
+                status("Instance " + instance.getIndex() + " exited (" + crash + "), restarting in " + delayMs + " ms");
+            }
+
+            @Override
+            public void onGaveUp(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, String reason) {
+                status("Gave up restarting instance " + instance.getIndex() + ": " + reason);
+                ServicePool pool = core.getPool();
+                if (pool == null || !pool.isRunning()) {
+                    exitCode.complete(1);
+                }
+            }
+        });
+        core.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "headless-shutdown"));
+
+        StartupPipeline.LaunchInputs inputs;
+        ServicePool prelaunched;
+        try {
+            inputs = core.getStartup().launchInputs().join();
+            prelaunched = core.getStartup().prelaunchedPool().join();
+        } catch (CompletionException e) {
+            status("Failed to prepare embedded JAR: " + StartupPipeline.unwrap(e).getMessage());
+            return 1;
+        }
+        if (inputs.jdkError != null) {
+            status("Failed to extract embedded JDK: " + inputs.jdkError.getMessage());
+        }
+        if (prelaunched == null) {
+            try {
+                core.startService();
+            } catch (IOException e) {
+                status("Failed to start JAR: " + e.getMessage());
+                return 1;
+            }
+        }
+        return exitCode.join();
+    }
+
+    private synchronized void showPoolState(ServicePool pool) {
+        ServiceHealthMonitor.State state = pool.aggregateState();
+        if (state == lastState) {
+            return;
+        }
+        lastState = state;
+        status("Service " + state + (pool.size() > 1 ? " (" + pool.readyCount() + "/" + pool.size() + " ready)" : ""));
+    }
+
+    /** 关闭钩子：在 JVM 退出前排空并停止服务，避免留下无人管理的服务进程。 */
+    private void shutdown() {
+        exitCode.complete(0);
+        if (core.getPool() != null) {
+            status("Stopping service");
+            try {
+                core.stopService().get(config.getLong("headless.stopTimeoutMs", 30000), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                status("Error while stopping service: " + e);
+            }
+        }
+        core.close();
+        log.flush(2000);
+    }
+
+    private void status(String message) {
+        log.log(message);
+        System.out.println(message);
+    }
+}
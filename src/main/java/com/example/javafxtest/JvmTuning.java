@@ -0,0 +1,415 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import com.sun.management.OperatingSystemMXBean;
+
+/**
+ * 按主机资源为服务 JVM 计算启动参数（堆大小、GC 与 GC 线程数）。
+ * <p>
+ * 配置保存在解压目录旁的 jvm-profiles.properties（不存在时写出带注释的默认文件），
+ * 任一键都可以用 host.&lt;主机名&gt;.&lt;键&gt; 按主机覆盖；launcher.properties 或 -Djarstarter.jvm.profile 指定的配置优先，
+ * 便于临时对比。可选配置：
+ * <ul>
+ *     <li>throughput：ParallelGC，适合批量处理与吞吐优先的服务；</li>
+ *     <li>low-latency：JDK 17+ 用 ZGC（21/22 上启用分代），更早的 JDK 用 G1 并设停顿目标；</li>
+ *     <li>low-memory：SerialGC、小堆、只用 C1 编译并缩小线程栈与代码缓存，适合内存紧张的一体机；</li>
+ *     <li>auto：每实例可用内存不足 1 GB 或不超过 2 个核时选 low-memory，否则选 throughput；</li>
+ *     <li>none（默认）：不加任何参数，由 JVM 自行决定（旧行为）。</li>
+ * </ul>
+ * 按比例算出的堆不超过 {@value #MAX_COMPUTED_HEAP_MB} MB，以保留压缩指针；-Xms 只在配置了 minHeapPercent 时才加
+ * （low-memory 默认为 Xmx 的 25%），不会默认把整个堆预先提交；检测不到物理内存且未配置 heapMb 时不加堆参数。
+ * 可用内存取物理内存与容器（cgroup）限制中较小者，核数取启动器 JVM 看到的可用处理器数（已计入容器配额），
+ * 多实例时二者按实例数均分，并以 -XX:ActiveProcessorCount 告知每个实例。目标 JDK 的版本从其 release 文件读取，
+ * 读不到时按 JDK 8 只使用它也支持的参数。
+ */
+final class JvmTuning {
+
+    static final String FILE_NAME = "jvm-profiles.properties";
+
+    /** 按比例计算的堆上限，低于压缩指针可用的约 32 GB。 */
+    static final long MAX_COMPUTED_HEAP_MB = 30 * 1024;
+
+    enum Profile {
+        THROUGHPUT, LOW_LATENCY, LOW_MEMORY, NONE;
+
+        static Profile parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /** 检测到的主机资源。 */
+    static final class Host {
+        final String name;
+        final int cores;
+        final long physicalMemory;
+        /** 容器内存限制，没有限制时为 -1。 */
+        final long containerMemoryLimit;
+        /** 容器 CPU 配额（核数），没有配额时为 -1。 */
+        final double containerCpuQuota;
+
+        Host(String name, int cores, long physicalMemory, long containerMemoryLimit, double containerCpuQuota) {
+            this.name = name;
+            this.cores = cores;
+            this.physicalMemory = physicalMemory;
+            this.containerMemoryLimit = containerMemoryLimit;
+            this.containerCpuQuota = containerCpuQuota;
+        }
+
+        long effectiveMemory() {
+            return containerMemoryLimit > 0 && containerMemoryLimit < physicalMemory ? containerMemoryLimit : physicalMemory;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + cores + " cores" + (containerCpuQuota > 0 ? " (quota " + containerCpuQuota + ")" : "")
+                    + ", " + physicalMemory / (1024 * 1024) + " MB"
+                    + (containerMemoryLimit > 0 ? " (limit " + containerMemoryLimit / (1024 * 1024) + " MB)" : "");
+        }
+    }
+
+    private final Profile profile;
+    private final List<String> options;
+    private final Host host;
+    private final int jdkFeature;
+
+    private JvmTuning(Profile profile, List<String> options, Host host, int jdkFeature) {
+        this.profile = profile;
+        this.options = Collections.unmodifiableList(options);
+        this.host = host;
+        this.jdkFeature = jdkFeature;
+    }
+
+    static JvmTuning fromConfig(LauncherConfig config, String javaPath, int instances, AsyncLogWriter log) {
+        Host host = host();
+        Properties profiles = loadProfiles(new File(LauncherConfig.appDir(), FILE_NAME), log);
+        int feature = jdkFeature(javaPath);
+        String selected = config.getString("jvm.profile", null);
+        if (selected == null) {
+            selected = lookup(profiles, host.name, "profile", "none");
+        }
+        Profile profile = Profile.parse(selected);
+        int perInstanceCores = Math.max(1, host.cores / Math.max(1, instances));
+        long perInstanceMemory = host.effectiveMemory() / Math.max(1, instances);
+        if (profile == null && "auto".equalsIgnoreCase(selected.trim())) {
+            profile = perInstanceMemory < 1024L * 1024 * 1024 || perInstanceCores <= 2
+                    ? Profile.LOW_MEMORY : Profile.THROUGHPUT;
+        } else if (profile == null) {
+            log.log("Unknown JVM profile '" + selected + "', using none");
+            profile = Profile.NONE;
+        }
+        List<String> options = compute(profile, profiles, host, feature, instances, perInstanceCores, perInstanceMemory);
+        JvmTuning tuning = new JvmTuning(profile, options, host, feature);
+        log.log("JVM profile " + profile.key() + " for " + host + ", JDK " + (feature > 0 ? feature : "unknown")
+                + ", " + instances + " instance(s): " + (options.isEmpty() ? "(no options)" : String.join(" ", options)));
+        return tuning;
+    }
+
+    Profile getProfile() {
+        return profile;
+    }
+
+    List<String> getOptions() {
+        return options;
+    }
+
+    Host getHost() {
+        return host;
+    }
+
+    int getJdkFeature() {
+        return jdkFeature;
+    }
+
+    static List<String> compute(Profile profile, Properties profiles, Host host, int feature, int instances,
+                                int cores, long memory) {
+        List<String> options = new ArrayList<>();
+        if (profile == Profile.NONE) {
+            return options;
+        }
+        String p = profile.key() + ".";
+        String h = host.name;
+        long memoryMb = memory / (1024 * 1024);
+        long heapMb = parseLong(lookup(profiles, h, p + "heapMb", "0"), 0);
+        if (heapMb <= 0 && memory > 0) {
+            heapMb = memoryMb * parseLong(lookup(profiles, h, p + "heapPercent", defaultHeapPercent(profile)), 50) / 100;
+            long cap = parseLong(lookup(profiles, h, p + "maxHeapMb", profile == Profile.LOW_MEMORY ? "512" : "0"), 0);
+            if (cap > 0) {
+                heapMb = Math.min(heapMb, cap);
+            }
+            heapMb = Math.max(64, Math.min(heapMb, MAX_COMPUTED_HEAP_MB));
+        }
+        // 内存未知且没有固定 heapMb 时不猜堆大小，交给 JVM 的默认值
+        if (heapMb > 0) {
+            long minPercent = parseLong(lookup(profiles, h, p + "minHeapPercent",
+                    profile == Profile.LOW_MEMORY ? "25" : "0"), 0);
+            if (minPercent > 0) {
+                options.add("-Xms" + Math.max(16, Math.min(heapMb, heapMb * minPercent / 100)) + "m");
+            }
+            options.add("-Xmx" + heapMb + "m");
+        }
+
+        String gc = lookup(profiles, h, p + "gc", defaultGc(profile)).trim().toLowerCase(Locale.ROOT);
+        if (gc.equals("z") && feature < 17) {
+            // ZGC 从 JDK 15 起才正式可用，这里从 LTS 17 开始使用；更早或未知版本退回 G1
+            gc = "g1";
+        }
+        int parallelThreads = cores <= 8 ? cores : 8 + (cores - 8) * 5 / 8;
+        switch (gc) {
+            case "serial":
+                options.add("-XX:+UseSerialGC");
+                break;
+            case "parallel":
+                options.add("-XX:+UseParallelGC");
+                options.add("-XX:ParallelGCThreads=" + parallelThreads);
+                break;
+            case "z":
+                options.add("-XX:+UseZGC");
+                if (feature >= 21 && feature < 23) {
+                    options.add("-XX:+ZGenerational");
+                }
+                options.add("-XX:ConcGCThreads=" + Math.max(1, cores / 4));
+                break;
+            default:
+                options.add("-XX:+UseG1GC");
+                options.add("-XX:ParallelGCThreads=" + parallelThreads);
+                options.add("-XX:ConcGCThreads=" + Math.max(1, (parallelThreads + 2) / 4));
+                if (profile == Profile.LOW_LATENCY) {
+                    options.add("-XX:MaxGCPauseMillis=" + lookup(profiles, h, p + "maxPauseMs", "50").trim());
+                }
+                break;
+        }
+        if (profile == Profile.LOW_MEMORY) {
+            options.add("-Xss512k");
+            options.add("-XX:ReservedCodeCacheSize=64m");
+            options.add("-XX:TieredStopAtLevel=1");
+        }
+        if (instances > 1 && feature >= 8) {
+            // 8u191 起支持；内置的 8u202 满足，版本未知时不加，以免旧 JVM 因不认识参数而无法启动
+            options.add("-XX:ActiveProcessorCount=" + cores);
+        }
+        for (String extra : lookup(profiles, h, p + "extraOptions", "").trim().split("\\s+")) {
+            if (!extra.isEmpty()) {
+                options.add(extra);
+            }
+        }
+        return options;
+    }
+
+    private static String defaultHeapPercent(Profile profile) {
+        switch (profile) {
+            case LOW_LATENCY:
+                // ZGC 需要余量，堆给得比吞吐配置小
+                return "50";
+            case LOW_MEMORY:
+                return "25";
+            default:
+                return "60";
+        }
+    }
+
+    private static String defaultGc(Profile profile) {
+        switch (profile) {
+            case LOW_LATENCY:
+                return "z";
+            case LOW_MEMORY:
+                return "serial";
+            default:
+                return "parallel";
+        }
+    }
+
+    /** host.&lt;主机名&gt;.key 优先于 key。 */
+    static String lookup(Properties props, String host, String key, String defaultValue) {
+        String v = props.getProperty("host." + host + "." + key);
+        if (v == null) {
+            v = props.getProperty(key);
+        }
+        return v != null && !v.isBlank() ? v : defaultValue;
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    static Properties loadProfiles(File file, AsyncLogWriter log) {
+        Properties props = new Properties();
+        if (!file.isFile()) {
+            writeTemplate(file, log);
+            return props;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+        } catch (IOException e) {
+            log.log("Failed to read " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+        return props;
+    }
+
+    /** 写出全部键都被注释掉的默认文件，便于现场修改。 */
+    private static void writeTemplate(File file, AsyncLogWriter log) {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        try (Writer w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            w.write("# Service JVM tuning profiles (auto, throughput, low-latency, low-memory, none).\n"
+                    + "# Any key can be overridden per host: host.<hostname>.<key>=...\n"
+                    + "# launcher.properties jvm.profile (or -Djarstarter.jvm.profile) takes precedence over 'profile'.\n"
+                    + "#profile=none\n"
+                    + "#host.KIOSK-01.profile=low-memory\n"
+                    + "#\n"
+                    + "# Per profile: heapMb (fixed -Xmx), heapPercent of available memory per instance,\n"
+                    + "# maxHeapMb (computed heaps are capped at " + MAX_COMPUTED_HEAP_MB + " MB),\n"
+                    + "# minHeapPercent (-Xms as % of -Xmx, only low-memory sets -Xms by default), gc (serial|parallel|g1|z),\n"
+                    + "# maxPauseMs (g1), extraOptions (space separated, appended last).\n"
+                    + "#throughput.heapPercent=60\n"
+                    + "#throughput.gc=parallel\n"
+                    + "#low-latency.heapPercent=50\n"
+                    + "#low-latency.gc=z\n"
+                    + "#low-memory.heapPercent=25\n"
+                    + "#low-memory.maxHeapMb=512\n"
+                    + "#low-memory.gc=serial\n");
+            log.log("Wrote default JVM profiles to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            log.log("Failed to write " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /** 目标 JDK 的主版本号，读不到 release 文件时为 -1。 */
+    static int jdkFeature(String javaPath) {
+        File bin = new File(javaPath).getAbsoluteFile().getParentFile();
+        File release = bin != null && bin.getParentFile() != null ? new File(bin.getParentFile(), "release") : null;
+        if (release == null || !release.isFile()) {
+            return -1;
+        }
+        try {
+            return CdsArchive.parseFeatureVersion(Files.readString(release.toPath(), StandardCharsets.ISO_8859_1));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /** 主机信息每个进程只探测一次：主机名解析可能很慢，{@link StartupPipeline} 会提前在后台线程上触发。 */
+    static Host host() {
+        return HostHolder.HOST;
+    }
+
+    private static final class HostHolder {
+        static final Host HOST = detectHost();
+    }
+
+    static Host detectHost() {
+        long physical = -1;
+        long meminfo = readMeminfoTotal();
+        if (meminfo > 0) {
+            physical = meminfo;
+        } else if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean) {
+            physical = ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalMemorySize();
+        }
+        long limit = -1;
+        double quota = -1;
+        // cgroup v2
+        String memMax = readFirstLine("/sys/fs/cgroup/memory.max");
+        String cpuMax = readFirstLine("/sys/fs/cgroup/cpu.max");
+        if (memMax != null) {
+            limit = parseLong(memMax, -1);
+        } else {
+            // cgroup v1：没有限制时是一个接近 Long.MAX_VALUE 的数
+            limit = readLong("/sys/fs/cgroup/memory/memory.limit_in_bytes", -1);
+        }
+        if (cpuMax != null) {
+            String[] parts = cpuMax.trim().split("\\s+");
+            if (parts.length == 2 && !parts[0].equals("max")) {
+                quota = parseLong(parts[0], -1) / (double) parseLong(parts[1], 100000);
+            }
+        } else {
+            long q = readLong("/sys/fs/cgroup/cpu/cpu.cfs_quota_us", -1);
+            long period = readLong("/sys/fs/cgroup/cpu/cpu.cfs_period_us", 100000);
+            if (q > 0 && period > 0) {
+                quota = q / (double) period;
+            }
+        }
+        if (limit > 0 && physical > 0 && limit >= physical) {
+            limit = -1;
+        }
+        return new Host(hostName(), Runtime.getRuntime().availableProcessors(), physical, limit, quota);
+    }
+
+    private static long readMeminfoTotal() {
+        Path meminfo = Path.of("/proc/meminfo");
+        if (!Files.isReadable(meminfo)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(meminfo, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemTotal:")) {
+                    return parseLong(line.substring("MemTotal:".length()).replace("kB", ""), -1) * 1024;
+                }
+            }
+        } catch (IOException ignore) {
+        }
+        return -1;
+    }
+
+    private static long readLong(String path, long defaultValue) {
+        String line = readFirstLine(path);
+        return line != null ? parseLong(line, defaultValue) : defaultValue;
+    }
+
+    private static String readFirstLine(String path) {
+        Path p = Path.of(path);
+        if (!Files.isReadable(p)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(p, StandardCharsets.US_ASCII);
+            return lines.isEmpty() ? null : lines.get(0);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String hostName() {
+        String name = System.getenv("COMPUTERNAME");
+        if (name == null || name.isEmpty()) {
+            name = System.getenv("HOSTNAME");
+        }
+        if (name == null || name.isEmpty()) {
+            try {
+                name = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                name = "localhost";
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动记录：每个服务进程在 ~/AppData/Local/JarStarter/launch-history.jsonl 追加一行 JSON，
+ * 包括所用的 JVM 配置与完整命令行、就绪耗时，以及就绪后各检查点（history.rssCheckpointsSec，
+ * 默认 0,60,300,900,3600 秒）的 RSS 与其中的峰值，用于比较不同的 {@link JvmTuning} 配置。
+ * <p>
+ * 最后一个检查点到达、进程退出或服务池关闭时写出该行，三者取先；RSS 取自 {@link ProcessMetricsSampler}，
+ * 采样器拿不到 RSS 的系统上记为 -1。
+ */
+final class LaunchHistory implements Closeable {
+
+    private final class Entry {
+        final ServiceInstance instance;
+        final Process process;
+        final long startedAt = System.currentTimeMillis();
+        final List<String> command;
+        final long[] rss = new long[checkpointsSec.length];
+        final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+        long timeToReadyMs = -1;
+        boolean written;
+
+        Entry(ServiceInstance instance, Process process, List<String> command) {
+            this.instance = instance;
+            this.process = process;
+            this.command = command;
+            Arrays.fill(rss, -1);
+        }
+    }
+
+    private final AsyncLogWriter log;
+    private final Path file;
+    private final JvmTuning tuning;
+    private final long[] checkpointsSec;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile ProcessMetricsSampler metrics;
+
+    LaunchHistory(AsyncLogWriter log, Path file, JvmTuning tuning, long[] checkpointsSec) {
+        this.log = log;
+        this.file = file;
+        this.tuning = tuning;
+        this.checkpointsSec = checkpointsSec;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "launch-history");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /** history.enabled=false 时返回 null。 */
+    static LaunchHistory fromConfig(LauncherConfig config, JvmTuning tuning, AsyncLogWriter log) {
+        if (!config.getBoolean("history.enabled", true)) {
+            return null;
+        }
+        String[] parts = config.getString("history.rssCheckpointsSec", "0,60,300,900,3600").split(",");
+        long[] checkpoints = new long[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            try {
+                checkpoints[n] = Math.max(0, Long.parseLong(part.trim()));
+                n++;
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        checkpoints = Arrays.copyOf(checkpoints, n);
+        Arrays.sort(checkpoints);
+        return new LaunchHistory(log, new File(LauncherConfig.dataDir(), "launch-history.jsonl").toPath(), tuning,
+                checkpoints);
+    }
+
+    void setMetrics(ProcessMetricsSampler sampler) {
+        this.metrics = sampler;
+    }
+
+    void onStarted(ServiceInstance instance, Process process) {
+        Entry e = new Entry(instance, process, instance.getLauncher().getLastCommand());
+        entries.put(process.pid(), e);
+        process.onExit().thenAccept(p -> finish(e, "exit"));
+    }
+
+    /** 首次就绪：记下就绪耗时并安排 RSS 检查点。 */
+    void onReady(ServiceInstance instance, ServiceHealthMonitor.Transition t) {
+        Entry e = t.pid >= 0 ? entries.get(t.pid) : null;
+        if (e == null) {
+            return;
+        }
+        synchronized (e) {
+            if (e.timeToReadyMs >= 0 || e.written) {
+                return;
+            }
+            e.timeToReadyMs = t.sinceLaunchMs;
+            if (checkpointsSec.length == 0) {
+                e.tasks.add(executor.schedule(() -> finish(e, "ready"), 0, TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < checkpointsSec.length; i++) {
+                int index = i;
+                e.tasks.add(executor.schedule(() -> checkpoint(e, index), checkpointsSec[i], TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    private void checkpoint(Entry e, int index) {
+        ProcessMetricsSampler sampler = metrics;
+        long rss = sampler != null && e.process.isAlive() ? sampler.latestRss(e.instance) : -1;
+        boolean last;
+        synchronized (e) {
+            e.rss[index] = rss;
+            last = index == checkpointsSec.length - 1;
+        }
+        if (last) {
+            finish(e, "checkpoints");
+        }
+    }
+
+    private void finish(Entry e, String endedBy) {
+        String line;
+        synchronized (e) {
+            if (e.written) {
+                return;
+            }
+            e.written = true;
+            for (ScheduledFuture<?> f : e.tasks) {
+                f.cancel(false);
+            }
+            line = toJson(e, endedBy);
+        }
+        entries.remove(e.process.pid(), e);
+        try {
+            synchronized (this) {
+                Files.createDirectories(file.getParent());
+                Files.write(file, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+        } catch (IOException ex) {
+            log.log("Failed to append launch history: " + ex.getMessage());
+        }
+    }
+
+    private String toJson(Entry e, String endedBy) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"started\":\"").append(Instant.ofEpochMilli(e.startedAt)).append('"');
+        sb.append(",\"host\":").append(ControlApi.quote(tuning.getHost().name));
+        sb.append(",\"profile\":\"").append(tuning.getProfile().key()).append('"');
+        sb.append(",\"jdk\":").append(tuning.getJdkFeature());
+        sb.append(",\"instance\":").append(e.instance.getIndex());
+        sb.append(",\"pid\":").append(e.process.pid());
+        sb.append(",\"jvmOptions\":").append(ControlApi.quote(String.join(" ", tuning.getOptions())));
+        sb.append(",\"command\":").append(ControlApi.quote(e.command != null ? String.join(" ", e.command) : ""));
+        sb.append(",\"timeToReadyMs\":").append(e.timeToReadyMs);
+        sb.append(",\"rssMb\":{");
+        long peak = -1;
+        String sep = "";
+        for (int i = 0; i < checkpointsSec.length; i++) {
+            if (e.rss[i] < 0) {
+                continue;
+            }
+            sb.append(sep).append('"').append(checkpointsSec[i]).append("s\":").append(e.rss[i] / (1024 * 1024));
+            peak = Math.max(peak, e.rss[i]);
+            sep = ",";
+        }
+        sb.append('}');
+        sb.append(",\"peakRssMb\":").append(peak >= 0 ? peak / (1024 * 1024) : -1);
+        sb.append(",\"uptimeMs\":").append(System.currentTimeMillis() - e.startedAt);
+        sb.append(",\"exitCode\":").append(e.process.isAlive() ? "null" : Integer.toString(e.process.exitValue()));
+        sb.append(",\"endedBy\":\"").append(endedBy).append("\"}\n");
+        return sb.toString();
+    }
+
+    /** 写出仍在运行的进程的记录（已有的检查点）。 */
+    @Override
+    public void close() {
+        for (Entry e : entries.values()) {
+            finish(e, "close");
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.javafxtest;
+
+/**
+ * 程序入口。带 --headless 参数时以无界面模式运行（{@link HeadlessLauncher}），不加载任何 JavaFX 类，
+ * 因此 JavaFX 模块不在模块路径上时也能启动；否则启动图形界面 {@link MainApp}。
+ */
+public final class Launcher {
+
+    private Launcher() {
+    }
+
+    public static void main(String[] args) {
+        for (String arg : args) {
+            if ("--headless".equals(arg)) {
+                HeadlessLauncher.launch();
+                return;
+            }
+        }
+        if (ModuleLayer.boot().findModule("javafx.graphics").isEmpty()
+                && Launcher.class.getModule().isNamed()) {
+            System.err.println("JavaFX modules are not available; add them to the module path or run with --headless");
+            System.exit(2);
+        }
+        MainApp.main(args);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * 启动器配置。
+ * <p>
+ * 从解压目录旁的 launcher.properties（~/AppData/Local/JarStarter/app/launcher.properties）读取，
+ * 同名系统属性 -Djarstarter.&lt;key&gt;=... 优先。文件不存在时全部使用默认值。
+ */
+final class LauncherConfig {
+
+    static final String FILE_NAME = "launcher.properties";
+
+    private static volatile LauncherConfig instance;
+
+    private final Properties properties;
+    private final File file;
+
+    private LauncherConfig(File file, Properties properties) {
+        this.file = file;
+        this.properties = properties;
+    }
+
+    static LauncherConfig get() {
+        LauncherConfig c = instance;
+        if (c == null) {
+            synchronized (LauncherConfig.class) {
+                c = instance;
+                if (c == null) {
+                    c = load(new File(appDir(), FILE_NAME));
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    static LauncherConfig load(File file) {
+        Properties props = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                props.load(in);
+            } catch (IOException e) {
+                AsyncLogWriter.launcherLog().log("Failed to read " + file.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+        return new LauncherConfig(file, props);
+    }
+
+    /** 启动器的数据目录 ~/AppData/Local/JarStarter。 */
+    static File dataDir() {
+        return new File(System.getProperty("user.home") + "/AppData/Local/JarStarter");
+    }
+
+    /** 服务 JAR 的解压目录 ~/AppData/Local/JarStarter/app。 */
+    static File appDir() {
+        return new File(dataDir(), "app");
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    String getString(String key, String defaultValue) {
+        String value = System.getProperty("jarstarter." + key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
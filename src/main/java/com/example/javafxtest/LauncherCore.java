@@ -0,0 +1,240 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 与界面无关的启动器核心：内置 JDK/JAR 的准备（{@link StartupPipeline}）、服务池的启动与停止、
+ * 资源采样与本地 HTTP 端口（/metrics 与控制接口 {@link ControlApi}）。
+ * <p>
+ * 图形界面（{@link ControlUIController}）与无界面模式（{@link HeadlessLauncher}）共用同一个核心，
+ * 各自只负责呈现。监听器在服务池的后台线程上被调用，界面需要自行切回 FX 线程。
+ */
+final class LauncherCore implements Closeable {
+
+    private final AsyncLogWriter log = AsyncLogWriter.launcherLog();
+    private final LauncherConfig config;
+    private final StartupPipeline startup;
+    private final int servicePort = StartupPipeline.SERVICE_PORT;
+    private final List<ServicePool.Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ServicePool pool;
+    private ProcessMetricsSampler sampler;
+    private LocalHttpServer httpServer;
+    private ControlApi controlApi;
+    /** 预启动结束且其服务池（如有）已被接管后完成。 */
+    private final CompletableFuture<Void> prelaunchSettled = new CompletableFuture<>();
+
+    LauncherCore(LauncherConfig config) {
+        this.config = config;
+        this.startup = StartupPipeline.start();
+    }
+
+    /** 添加服务池事件的监听器；应在 {@link #start()} 之前添加，以免错过预启动服务池的状态。 */
+    void addListener(ServicePool.Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** 开始采样与本地 HTTP 服务，并在预启动完成后接管预启动的服务池。 */
+    void start() {
+        sampler = ProcessMetricsSampler.fromConfig(config);
+        sampler.start();
+        httpServer = LocalHttpServer.start(config);
+        if (httpServer != null) {
+            ProcessMetricsSampler metrics = sampler;
+            httpServer.addHandler("/metrics", exchange -> {
+                StringBuilder body = new StringBuilder(4096);
+                metrics.writePrometheus(body);
+                LocalHttpServer.respond(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", body.toString());
+            });
+            if (config.getBoolean("control.enabled", true)) {
+                controlApi = ControlApi.install(this, httpServer, config);
+            }
+        }
+        startup.prelaunchedPool().whenComplete((prelaunched, e) -> settlePrelaunch());
+    }
+
+    /**
+     * 预启动已结束时接管其服务池（只接管一次）并返回 true；仍在进行时返回 false。
+     * 启动服务前也调用它，确保预启动的服务池不会在手动启动之后才被接管而覆盖、泄漏掉新启动的服务池。
+     */
+    private synchronized boolean settlePrelaunch() {
+        CompletableFuture<ServicePool> prelaunch = startup.prelaunchedPool();
+        if (!prelaunch.isDone()) {
+            return false;
+        }
+        if (!prelaunchSettled.isDone()) {
+            ServicePool prelaunched = prelaunch.isCompletedExceptionally() ? null : prelaunch.join();
+            if (prelaunched != null) {
+                adoptPool(prelaunched);
+            }
+            prelaunchSettled.complete(null);
+        }
+        return true;
+    }
+
+    /** 预启动结束且已被接管后完成；未启用预启动时在准备完成后完成。界面据此才启用启动按钮。 */
+    CompletableFuture<Void> prelaunchSettled() {
+        return prelaunchSettled;
+    }
+
+    private void adoptPool(ServicePool prelaunched) {
+        pool = prelaunched;
+        sampler.setPool(prelaunched);
+        prelaunched.setMetrics(sampler);
+        prelaunched.setListener(new PoolListener());
+        log.log("Adopted prelaunched service");
+        for (ServicePool.Listener l : listeners) {
+            l.onPoolStateChanged(prelaunched);
+        }
+    }
+
+    StartupPipeline getStartup() {
+        return startup;
+    }
+
+    ProcessMetricsSampler getSampler() {
+        return sampler;
+    }
+
+    LocalHttpServer getHttpServer() {
+        return httpServer;
+    }
+
+    /** 当前服务池；从未启动过时为 null。 */
+    ServicePool getPool() {
+        return pool;
+    }
+
+    boolean isRunning() {
+        ServicePool p = pool;
+        return p != null && p.isRunning();
+    }
+
+    /** 已准备好的内置 JAR；准备尚未完成或失败时为 null。 */
+    File getJar() {
+        StartupPipeline.LaunchInputs inputs = startup.launchInputs().getNow(null);
+        return inputs != null ? inputs.jar : null;
+    }
+
+    boolean hasJar() {
+        File jar = getJar();
+        return jar != null && jar.exists();
+    }
+
+    /**
+     * 用内置 JDK（不可用时回退到系统 Java）启动内置 JAR，替换此前已停止的服务池。
+     * 调用方应先确认服务未在运行；预启动仍在进行时拒绝启动，预启动的服务池已在运行时同样拒绝。
+     */
+    synchronized ServicePool startService() throws IOException {
+        if (!settlePrelaunch()) {
+            throw new IOException("Service is still being prelaunched");
+        }
+        ServicePool adopted = pool;
+        if (adopted != null && adopted.isRunning() && startup.prelaunchedPool().getNow(null) == adopted) {
+            throw new IOException("Prelaunched service is already running");
+        }
+        StartupPipeline.LaunchInputs inputs = startup.launchInputs().getNow(null);
+        if (inputs == null || inputs.jar == null || !inputs.jar.exists()) {
+            throw new FileNotFoundException("Embedded JAR not available");
+        }
+        String javaPath;
+        if (inputs.bundledJava && inputs.javaPath != null && !inputs.javaPath.isEmpty()) {
+            javaPath = inputs.javaPath;
+            log.log("Using bundled JDK to start JAR: " + javaPath);
+        } else {
+            javaPath = EmbeddedArtifacts.findJavaExecutable();
+            log.log("Bundled JDK not available, falling back to system Java: " + javaPath);
+        }
+        ServicePool previous = pool;
+        if (previous != null) {
+            previous.close();
+        }
+        ServicePool created = ServicePool.fromConfig(config, javaPath, inputs.jar, StartupPipeline.serviceWorkingDir(),
+                servicePort, new PoolListener());
+        pool = created;
+        sampler.setPool(created);
+        created.setMetrics(sampler);
+        created.start();
+        return created;
+    }
+
+    /** 服务未在运行时启动它；已在运行或预启动仍在进行时返回 null。 */
+    synchronized ServicePool startIfStopped() throws IOException {
+        return !settlePrelaunch() || isRunning() ? null : startService();
+    }
+
+    /** 排空并停止服务，返回在所有进程退出后完成的 future；没有服务池时立即完成。 */
+    CompletableFuture<Void> stopService() {
+        return stopService(null);
+    }
+
+    /** 同 {@link #stopService()}，progress 接收进程终止各阶段的进度。 */
+    CompletableFuture<Void> stopService(ProcessTerminator.Listener progress) {
+        ServicePool current = pool;
+        return current != null ? current.stopAsync(progress) : CompletableFuture.completedFuture(null);
+    }
+
+    /** 正在进行的停止不再等待宽限期，立即强制结束进程树。 */
+    void forceStop() {
+        ServicePool current = pool;
+        if (current != null) {
+            current.forceStop();
+        }
+    }
+
+    /** 滚动重启；服务未运行或已有滚动重启在进行时返回 null。 */
+    CompletableFuture<ServicePool.RolloutReport> rollingRestart() {
+        ServicePool current = pool;
+        return current != null && current.isRunning() ? current.rollingRestart() : null;
+    }
+
+    @Override
+    public void close() {
+        if (controlApi != null) {
+            controlApi.close();
+        }
+        if (sampler != null) {
+            sampler.close();
+        }
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+        ServicePool current = pool;
+        if (current != null) {
+            current.close();
+            ServiceFlightRecorder recorder = current.getRecorder();
+            if (recorder != null && !recorder.awaitTermination(10000)) {
+                log.log("Diagnostics capture still running at exit");
+            }
+        }
+    }
+
+    /** 把服务池事件转给全部监听器（界面或无界面模式，以及控制接口）。 */
+    private final class PoolListener implements ServicePool.Listener {
+        @Override
+        public void onPoolStateChanged(ServicePool source) {
+            for (ServicePool.Listener l : listeners) {
+                l.onPoolStateChanged(source);
+            }
+        }
+
+        @Override
+        public void onRestartScheduled(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, long delayMs) {
+            for (ServicePool.Listener l : listeners) {
+                l.onRestartScheduled(instance, crash, delayMs);
+            }
+        }
+
+        @Override
+        public void onGaveUp(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, String reason) {
+            for (ServicePool.Listener l : listeners) {
+                l.onGaveUp(instance, crash, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 启动器自带的本地 HTTP 服务（只绑定回环地址），提供 /metrics（Prometheus 文本格式）与 /api 下的控制接口
+ * （见 {@link ControlApi}）。端口由 http.port 配置（默认 12190），http.enabled=false 时不启动。
+ */
+final class LocalHttpServer {
+
+    private static volatile LocalHttpServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private LocalHttpServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /** 启动（或返回已启动的）服务；未启用或端口被占用时返回 null。 */
+    static synchronized LocalHttpServer start(LauncherConfig config) {
+        if (instance != null || !config.getBoolean("http.enabled", true)) {
+            return instance;
+        }
+        int port = config.getInt("http.port", 12190);
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+            AtomicInteger n = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+                Thread t = new Thread(r, "local-http-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            server.setExecutor(executor);
+            server.start();
+            instance = new LocalHttpServer(server, executor);
+            AsyncLogWriter.launcherLog().log("Local HTTP endpoint listening on http://127.0.0.1:" + port + "/");
+        } catch (IOException e) {
+            AsyncLogWriter.launcherLog().log("Local HTTP endpoint not started on port " + port + ": " + e.getMessage());
+        }
+        return instance;
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    void addHandler(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                AsyncLogWriter.launcherLog().log("HTTP " + path + " failed: " + e);
+                throw e;
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * 处理器返回后交换不会被关闭，由处理器在稍后（例如长轮询被唤醒时）自行应答并关闭；
+     * 处理器抛出异常时仍会关闭。
+     */
+    void addAsyncHandler(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                AsyncLogWriter.launcherLog().log("HTTP " + path + " failed: " + e);
+                exchange.close();
+                throw e;
+            }
+        });
+    }
+
+    static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+}
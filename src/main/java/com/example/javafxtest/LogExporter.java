@@ -0,0 +1,361 @@
+package com.example.javafxtest;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 按时间范围、级别与关键字导出日志，边读边压缩。
+ * <p>
+ * 起止位置直接在文件字节偏移上二分查找（读几 KB 的窗口解析行首时间戳），不需要从头扫描，
+ * 也不需要先建立完整的行索引；范围内的字节以大块顺序读出，没有过滤条件时整块写出，
+ * 有过滤条件时逐行判断。输出先写到 .part 临时文件，完成后再改名；取消或失败时删除。
+ * <p>
+ * 本身不依赖界面：界面把 {@link #export} 包进 javafx Task 显示进度，{@link #cancel()} 可从任意线程调用。
+ */
+final class LogExporter {
+
+    enum Format {
+        GZIP, ZIP
+    }
+
+    /** 一路日志：ZIP 中对应一个条目，files 为从旧到新的轮转文件，按顺序拼接。 */
+    static final class Source {
+        final String entryName;
+        final List<Path> files;
+
+        Source(String entryName, List<Path> files) {
+            this.entryName = entryName;
+            this.files = files;
+        }
+    }
+
+    static final class Result {
+        final long bytesScanned;
+        final long bytesWritten;
+        final long linesWritten;
+        final long elapsedMs;
+
+        Result(long bytesScanned, long bytesWritten, long linesWritten, long elapsedMs) {
+            this.bytesScanned = bytesScanned;
+            this.bytesWritten = bytesWritten;
+            this.linesWritten = linesWritten;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    private static final int READ_BYTES = 1024 * 1024;
+    private static final int OUTPUT_BUFFER_BYTES = 1024 * 1024;
+    private static final int PROBE_BYTES = 4096;
+    private static final int PROBE_LINES = 32;
+
+    private final List<Source> sources;
+    private final long fromMillis;
+    private final long toMillis;
+    private final LogIndex.Level minLevel;
+    private final Pattern pattern;
+    private final Format format;
+    private final Path target;
+
+    private final ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+    private long linesWritten;
+    private volatile boolean cancelled;
+    private LogIndex.Progress progress;
+    private Matcher matcher;
+    /** 当前文件中最近一条带级别标记的行的级别。 */
+    private LogIndex.Level currentLevel;
+
+    /**
+     * @param fromMillis 起始时间（含），负数表示不限
+     * @param toMillis   结束时间（不含），负数表示不限
+     * @param minLevel   最低级别，null 表示不限；没有级别标记的行沿用上一行的级别
+     * @param pattern    关键字，null 表示不限
+     */
+    LogExporter(List<Source> sources, long fromMillis, long toMillis, LogIndex.Level minLevel, Pattern pattern,
+                Format format, Path target) {
+        this.sources = sources;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.minLevel = minLevel;
+        this.pattern = pattern;
+        this.format = format;
+        this.target = target;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** 执行导出；被取消时返回 null。progress 收到已处理与总字节数，可为 null。 */
+    Result export(LogIndex.Progress progress) throws IOException {
+        this.progress = progress;
+        long t0 = Trace.begin();
+        // 先定位每个文件的字节范围，总量用于进度
+        long[][] ranges = new long[sources.size()][];
+        long total = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            List<Path> files = sources.get(s).files;
+            ranges[s] = new long[files.size() * 2];
+            for (int f = 0; f < files.size(); f++) {
+                long[] range = locate(files.get(f));
+                ranges[s][f * 2] = range[0];
+                ranges[s][f * 2 + 1] = range[1];
+                total += range[1] - range[0];
+            }
+        }
+
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        long done = 0;
+        boolean completed = false;
+        try {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel),
+                         OUTPUT_BUFFER_BYTES);
+                 // 压缩流自身也要关闭，否则 Deflater 的本地内存要等到 GC 才释放
+                 DeflaterOutputStream out = format == Format.ZIP ? newZip(buffered) : new FastGzipOutputStream(buffered)) {
+                ZipOutputStream zip = out instanceof ZipOutputStream ? (ZipOutputStream) out : null;
+                byte[] buf = new byte[READ_BYTES];
+                for (int s = 0; s < sources.size() && !isCancelled(); s++) {
+                    Source source = sources.get(s);
+                    if (zip != null) {
+                        zip.putNextEntry(new ZipEntry(source.entryName));
+                    }
+                    for (int f = 0; f < source.files.size() && !isCancelled(); f++) {
+                        long from = ranges[s][f * 2];
+                        long to = ranges[s][f * 2 + 1];
+                        if (from < to) {
+                            done = copy(source.files.get(f), from, to, out, buf, done, total);
+                        }
+                    }
+                    if (zip != null) {
+                        zip.closeEntry();
+                    }
+                }
+                if (isCancelled()) {
+                    AsyncLogWriter.launcherLog().log("Log export to " + target + " cancelled");
+                    return null;
+                }
+                out.finish();
+                buffered.flush();
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(part);
+            }
+        }
+        long written = Files.size(target);
+        long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+        Trace.end("log.export", t0);
+        AsyncLogWriter.launcherLog().log("Exported logs to " + target + ": " + done + " bytes scanned, "
+                + linesWritten + " lines, " + written + " bytes written (" + format + ") in " + elapsedMs + " ms");
+        return new Result(done, written, linesWritten, elapsedMs);
+    }
+
+    /** 复制 [from, to)，按条件过滤行；返回累计已处理的字节数。 */
+    private long copy(Path file, long from, long to, OutputStream out, byte[] buf, long done, long total)
+            throws IOException {
+        boolean filtering = minLevel != null || pattern != null;
+        matcher = pattern != null ? pattern.matcher("") : null;
+        currentLevel = null;
+        byte[] carry = new byte[0];
+        int carryLen = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long pos = from;
+            while (pos < to) {
+                if (isCancelled()) {
+                    return done;
+                }
+                ByteBuffer bb = ByteBuffer.wrap(buf, 0, (int) Math.min(buf.length, to - pos));
+                int n = in.read(bb, pos);
+                if (n <= 0) {
+                    break;
+                }
+                pos += n;
+                done += n;
+                if (!filtering) {
+                    out.write(buf, 0, n);
+                    linesWritten += countLines(buf, n);
+                } else {
+                    int lineStart = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (buf[i] != '\n') {
+                            continue;
+                        }
+                        if (carryLen > 0) {
+                            carry = append(carry, carryLen, buf, lineStart, i + 1 - lineStart);
+                            filterLine(carry, 0, carryLen + i + 1 - lineStart, out);
+                            carryLen = 0;
+                        } else {
+                            filterLine(buf, lineStart, i + 1 - lineStart, out);
+                        }
+                        lineStart = i + 1;
+                    }
+                    if (lineStart < n) {
+                        carry = append(carry, carryLen, buf, lineStart, n - lineStart);
+                        carryLen += n - lineStart;
+                    }
+                }
+                if (progress != null) {
+                    progress.onProgress(done, total);
+                }
+            }
+            // 最后一行可能还没写完换行
+            if (carryLen > 0) {
+                filterLine(carry, 0, carryLen, out);
+            }
+        }
+        return done;
+    }
+
+    private void filterLine(byte[] line, int start, int len, OutputStream out) throws IOException {
+        String text = new String(line, start, len, StandardCharsets.UTF_8);
+        if (minLevel != null) {
+            LogIndex.Level level = LogIndex.levelOf(text);
+            if (level != null) {
+                currentLevel = level;
+            }
+            if (currentLevel == null || currentLevel.compareTo(minLevel) < 0) {
+                return;
+            }
+        }
+        if (matcher != null && !matcher.reset(text).find()) {
+            return;
+        }
+        out.write(line, start, len);
+        linesWritten++;
+    }
+
+    /**
+     * 文件中落在时间范围内的字节区间 [start, end)。
+     * 在字节偏移上二分：取中点所在行之后的第一个带时间戳的行，与目标时间比较。
+     */
+    private long[] locate(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long start = fromMillis >= 0 ? lowerBound(in, size, fromMillis) : 0;
+            long end = toMillis >= 0 ? lowerBound(in, size, toMillis) : size;
+            return new long[]{start, Math.max(start, end)};
+        }
+    }
+
+    /** 第一行时间不早于 millis 的行首偏移；没有这样的行时为 size。 */
+    private long lowerBound(FileChannel in, long size, long millis) throws IOException {
+        long lo = 0;
+        long hi = size;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            long lineStart = nextLineStart(in, mid, size);
+            long[] found = timestampFrom(in, lineStart, size);
+            if (found != null && found[1] < millis) {
+                lo = Math.max(mid + 1, found[0] + 1);
+            } else {
+                hi = mid;
+            }
+        }
+        return nextLineStart(in, lo, size);
+    }
+
+    /** pos 为行首时返回 pos，否则返回下一行行首。 */
+    private long nextLineStart(FileChannel in, long pos, long size) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        long p = pos - 1;
+        while (p < size) {
+            probe.clear();
+            int n = in.read(probe, p);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    /** 从行首 pos 起最多探测若干行，返回 {行首偏移, 时间戳}；没有找到时返回 null。 */
+    private long[] timestampFrom(FileChannel in, long pos, long size) throws IOException {
+        for (int line = 0; line < PROBE_LINES && pos < size; line++) {
+            probe.clear();
+            int n = in.read(probe, pos);
+            if (n <= 0) {
+                return null;
+            }
+            int end = 0;
+            while (end < n && probe.get(end) != '\n') {
+                end++;
+            }
+            long t = LogIndex.timestampOf(new String(probe.array(), 0, end, StandardCharsets.UTF_8));
+            if (t >= 0) {
+                return new long[]{pos, t};
+            }
+            if (end == n) {
+                // 超长行：跳到下一行
+                pos = nextLineStart(in, pos + n, size);
+            } else {
+                pos += end + 1;
+            }
+        }
+        return null;
+    }
+
+    private static int countLines(byte[] buf, int n) {
+        int lines = 0;
+        for (int i = 0; i < n; i++) {
+            if (buf[i] == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static byte[] append(byte[] carry, int carryLen, byte[] src, int off, int len) {
+        if (carryLen + len > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carryLen + len, carry.length * 2));
+        }
+        System.arraycopy(src, off, carry, carryLen, len);
+        return carry;
+    }
+
+    /** 日志压缩比高，最快一档已能缩小约一个数量级，且耗时远低于默认级别。 */
+    private static ZipOutputStream newZip(OutputStream out) {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.BEST_SPEED);
+        return zip;
+    }
+
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 大日志文件的行偏移索引。
+ * <p>
+ * 索引只保存每行的起始偏移：每 65536 行一个块，块内以相对块首的 32 位无符号偏移存放，
+ * 每行约 4 字节，几 GB 的日志也只占几十 MB。{@link #refresh(Progress)} 从上次索引到的位置继续扫描，
+ * 因此跟随追加的代价只与新增字节数有关；文件被轮转（换成新文件或变短）时索引整体重建，
+ * 返回 -1 通知调用方。
+ * <p>
+ * 读取走内存映射（按 256 MB 分段映射，按需重映射尾段）；Windows 上映射会阻止日志轮转时的改名，
+ * 所以改用 FileChannel 的定位读。搜索把行区间切成若干段在后台线程池并行匹配。
+ */
+final class LogIndex implements Closeable {
+
+    /** 日志级别，按严重程度递增。 */
+    enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+    interface Progress {
+        void onProgress(long done, long total);
+    }
+
+    /** 一次后台搜索：可取消，可查询进度，结果为按行号升序的匹配行。 */
+    static final class Search {
+        private final CompletableFuture<int[]> result = new CompletableFuture<>();
+        private final AtomicLong scanned = new AtomicLong();
+        private final long total;
+        private volatile boolean cancelled;
+
+        private Search(long total) {
+            this.total = total;
+        }
+
+        CompletableFuture<int[]> result() {
+            return result;
+        }
+
+        double progress() {
+            return total == 0 ? 1 : (double) scanned.get() / total;
+        }
+
+        void cancel() {
+            cancelled = true;
+            result.cancel(false);
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_LINES = 1 << CHUNK_BITS;
+    private static final long SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final int SCAN_BYTES = 4 * 1024 * 1024;
+    /** 单行读取的上限，超长行截断显示与匹配。 */
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int SEARCH_PART_LINES = 32 * 1024;
+    private static final int TIMESTAMP_PROBE_LINES = 32;
+    private static final int LEVEL_LOOKBACK_LINES = 200;
+    private static final boolean MAP_FILES =
+            !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private static final String[] LEVEL_TOKENS =
+            {"TRACE", "DEBUG", "INFO", "WARN", "WARNING", "ERROR", "FATAL", "SEVERE"};
+    private static final Level[] LEVEL_VALUES =
+            {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.WARN, Level.ERROR, Level.ERROR, Level.ERROR};
+    /** 启动器格式 "Wed Oct 17 12:00:00 CST 2026" 或 ISO 格式 "2026-10-17 12:00:00" / "2026-10-17T12:00:00"。 */
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile(
+            "\\b(?:[A-Z][a-z]{2} ([A-Z][a-z]{2}) (\\d{2}) (\\d{2}):(\\d{2}):(\\d{2}) \\S+ (\\d{4})"
+                    + "|(\\d{4})-(\\d{2})-(\\d{2})[ T](\\d{2}):(\\d{2}):(\\d{2}))");
+    private static final List<String> MONTHS =
+            List.of("Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec");
+
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        AtomicInteger n = new AtomicInteger();
+        EXECUTOR = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "log-index-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 行起始偏移表；重建索引时整体替换，读者拿到的始终是一份自洽的表。 */
+    private static final class Offsets {
+        long[] bases = new long[16];
+        int[][] chunks = new int[16][];
+        /** 已完整（以换行结尾）的行数；表中有 count + 1 个起始偏移。 */
+        volatile int count;
+
+        Offsets() {
+            chunks[0] = new int[CHUNK_LINES];
+        }
+
+        long startOf(int line) {
+            int c = line >>> CHUNK_BITS;
+            return bases[c] + Integer.toUnsignedLong(chunks[c][line & (CHUNK_LINES - 1)]);
+        }
+
+        void append(long start) {
+            int slot = count + 1;
+            int c = slot >>> CHUNK_BITS;
+            if (c == chunks.length) {
+                chunks = Arrays.copyOf(chunks, c * 2);
+                bases = Arrays.copyOf(bases, c * 2);
+            }
+            if (chunks[c] == null) {
+                chunks[c] = new int[CHUNK_LINES];
+                bases[c] = start;
+            }
+            chunks[c][slot & (CHUNK_LINES - 1)] = (int) (start - bases[c]);
+            count = slot;
+        }
+    }
+
+    private final Path file;
+    private final Object channelLock = new Object();
+    private final Object refreshLock = new Object();
+    private FileChannel channel;
+    private Object fileKey;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile Offsets offsets = new Offsets();
+    private volatile long indexedBytes;
+    private final byte[] scanBuffer = new byte[SCAN_BYTES];
+
+    LogIndex(Path file) {
+        this.file = file;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int lineCount() {
+        return offsets.count;
+    }
+
+    long indexedBytes() {
+        return indexedBytes;
+    }
+
+    /**
+     * 索引文件新增的内容，返回新增的行数；文件被轮转或截断、索引已重建时返回 -1。
+     */
+    int refresh(Progress progress) throws IOException {
+        synchronized (refreshLock) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                if (channel == null) {
+                    return 0;
+                }
+                reset();
+                return -1;
+            }
+            boolean rotated = channel != null && (attrs.size() < indexedBytes
+                    || (attrs.fileKey() != null && !attrs.fileKey().equals(fileKey)));
+            if (rotated) {
+                reset();
+            }
+            if (channel == null) {
+                open(attrs);
+            }
+            Offsets o = offsets;
+            int before = o.count;
+            long from = indexedBytes;
+            long to = channel.size();
+            long pos = from;
+            while (pos < to) {
+                int len = (int) Math.min(to - pos, SCAN_BYTES);
+                len = readBytes(pos, scanBuffer, 0, len);
+                if (len <= 0) {
+                    break;
+                }
+                for (int i = 0; i < len; i++) {
+                    if (scanBuffer[i] == '\n') {
+                        o.append(pos + i + 1);
+                    }
+                }
+                pos += len;
+                indexedBytes = pos;
+                if (progress != null) {
+                    progress.onProgress(pos - from, to - from);
+                }
+            }
+            return rotated ? -1 : o.count - before;
+        }
+    }
+
+    CompletableFuture<Integer> refreshAsync(Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return refresh(progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /** 读取一行（不含换行符）；行号越界或读取失败时返回空串。 */
+    String readLine(int line) {
+        return read(offsets, line, null);
+    }
+
+    private String read(Offsets o, int line, byte[] scratch) {
+        if (line < 0 || line >= o.count) {
+            return "";
+        }
+        long start = o.startOf(line);
+        int len = (int) Math.min(o.startOf(line + 1) - start, MAX_LINE_BYTES);
+        byte[] buf = scratch != null && scratch.length >= len ? scratch : new byte[len];
+        try {
+            return decode(buf, readBytes(start, buf, 0, len));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /** 搜索 [fromLine, toLine) 内满足级别下限且匹配 pattern 的行；pattern、minLevel 为 null 表示不限。 */
+    Search search(Pattern pattern, Level minLevel, int fromLine, int toLine) {
+        Offsets o = offsets;
+        int from = Math.max(0, fromLine);
+        int to = Math.min(toLine, o.count);
+        Search search = new Search(Math.max(0, to - from));
+        if (from >= to) {
+            search.result.complete(new int[0]);
+            return search;
+        }
+        int parts = Math.max(1, Math.min((to - from + SEARCH_PART_LINES - 1) / SEARCH_PART_LINES,
+                Runtime.getRuntime().availableProcessors() * 4));
+        int step = (to - from + parts - 1) / parts;
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(parts);
+        for (int a = from; a < to; a += step) {
+            int partFrom = a;
+            int partTo = Math.min(to, a + step);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> searchPart(o, search, pattern, minLevel, partFrom, partTo), EXECUTOR));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((r, e) -> {
+            if (e != null) {
+                search.result.completeExceptionally(e);
+                return;
+            }
+            int total = 0;
+            for (CompletableFuture<int[]> f : futures) {
+                total += f.join().length;
+            }
+            int[] merged = new int[total];
+            int n = 0;
+            for (CompletableFuture<int[]> f : futures) {
+                int[] part = f.join();
+                System.arraycopy(part, 0, merged, n, part.length);
+                n += part.length;
+            }
+            search.result.complete(merged);
+        });
+        return search;
+    }
+
+    private int[] searchPart(Offsets o, Search search, Pattern pattern, Level minLevel, int from, int to) {
+        int[] hits = new int[64];
+        int n = 0;
+        byte[] buf = new byte[MAX_LINE_BYTES];
+        Matcher matcher = pattern != null ? pattern.matcher("") : null;
+        // 没有级别标记的行（如异常堆栈）沿用上一条带级别的行
+        Level current = minLevel != null ? levelBefore(o, from) : null;
+        for (int line = from; line < to; line++) {
+            if (search.cancelled) {
+                return new int[0];
+            }
+            if (((line - from) & 4095) == 4095) {
+                search.scanned.addAndGet(4096);
+            }
+            String text = read(o, line, buf);
+            if (minLevel != null) {
+                Level level = levelOf(text);
+                if (level != null) {
+                    current = level;
+                }
+                if (current == null || current.compareTo(minLevel) < 0) {
+                    continue;
+                }
+            }
+            if (matcher != null && !matcher.reset(text).find()) {
+                continue;
+            }
+            if (n == hits.length) {
+                hits = Arrays.copyOf(hits, n * 2);
+            }
+            hits[n++] = line;
+        }
+        search.scanned.addAndGet((to - from) & 4095);
+        return Arrays.copyOf(hits, n);
+    }
+
+    private Level levelBefore(Offsets o, int line) {
+        for (int i = line - 1; i >= 0 && i >= line - LEVEL_LOOKBACK_LINES; i--) {
+            Level level = levelOf(read(o, i, null));
+            if (level != null) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    /** 行内第一个级别标记（只看前 200 个字符）；没有时返回 null。逐字符比较，比正则快一个数量级。 */
+    static Level levelOf(String line) {
+        int limit = Math.min(line.length(), 200);
+        for (int i = 0; i < limit; i++) {
+            char c = line.charAt(i);
+            if (c < 'D' || c > 'W' || (i > 0 && Character.isLetterOrDigit(line.charAt(i - 1)))) {
+                continue;
+            }
+            for (int k = 0; k < LEVEL_TOKENS.length; k++) {
+                String token = LEVEL_TOKENS[k];
+                int end = i + token.length();
+                if (line.startsWith(token, i) && (end == line.length() || !Character.isLetterOrDigit(line.charAt(end)))) {
+                    return LEVEL_VALUES[k];
+                }
+            }
+        }
+        return null;
+    }
+
+    /** 行内时间戳（本地时区的毫秒）；没有时返回 -1。 */
+    static long timestampOf(String line) {
+        Matcher m = TIMESTAMP_PATTERN.matcher(line);
+        if (!m.find() || m.start() > 120) {
+            return -1;
+        }
+        LocalDateTime t;
+        if (m.group(1) != null) {
+            int month = MONTHS.indexOf(m.group(1)) + 1;
+            if (month == 0) {
+                return -1;
+            }
+            t = LocalDateTime.of(Integer.parseInt(m.group(6)), month, Integer.parseInt(m.group(2)),
+                    Integer.parseInt(m.group(3)), Integer.parseInt(m.group(4)), Integer.parseInt(m.group(5)));
+        } else {
+            t = LocalDateTime.of(Integer.parseInt(m.group(7)), Integer.parseInt(m.group(8)),
+                    Integer.parseInt(m.group(9)), Integer.parseInt(m.group(10)), Integer.parseInt(m.group(11)),
+                    Integer.parseInt(m.group(12)));
+        }
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 解析用户输入的时间：yyyy-MM-dd HH:mm[:ss] 或只有 HH:mm[:ss]（日期取 referenceMillis 当天，
+     * referenceMillis 为负时取今天）。无法识别时返回 -1。
+     */
+    static long parseTime(String text, long referenceMillis) {
+        String normalized = text.trim().replace('T', ' ');
+        LocalDateTime time = null;
+        for (String format : new String[]{"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm"}) {
+            try {
+                time = LocalDateTime.parse(normalized, DateTimeFormatter.ofPattern(format));
+                break;
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        if (time == null) {
+            LocalTime t;
+            try {
+                t = LocalTime.parse(normalized);
+            } catch (DateTimeParseException e) {
+                return -1;
+            }
+            LocalDate date = referenceMillis >= 0
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(referenceMillis), ZoneId.systemDefault()).toLocalDate()
+                    : LocalDate.now();
+            time = LocalDateTime.of(date, t);
+        }
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** 从 line 起向后最多探测若干行，返回第一个时间戳；没有时返回 -1。 */
+    long timestampAt(int line) {
+        int count = lineCount();
+        for (int i = line; i < count && i < line + TIMESTAMP_PROBE_LINES; i++) {
+            long t = timestampOf(readLine(i));
+            if (t >= 0) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /** 最后一个带时间戳的行的时间；没有时返回 -1。 */
+    long lastTimestamp() {
+        int count = lineCount();
+        for (int i = count - 1; i >= 0 && i >= count - TIMESTAMP_PROBE_LINES * 4; i--) {
+            long t = timestampOf(readLine(i));
+            if (t >= 0) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /** 二分查找第一条时间不早于 epochMillis 的行（日志按时间追加，近似有序）。 */
+    int findLine(long epochMillis) {
+        int lo = 0;
+        int hi = lineCount();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long t = timestampAt(mid);
+            if (t >= 0 && t < epochMillis) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return Math.min(lo, Math.max(0, lineCount() - 1));
+    }
+
+    @Override
+    public void close() {
+        synchronized (refreshLock) {
+            closeChannel();
+        }
+    }
+
+    private void reset() {
+        closeChannel();
+        offsets = new Offsets();
+        indexedBytes = 0;
+    }
+
+    private void open(BasicFileAttributes attrs) throws IOException {
+        synchronized (channelLock) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            fileKey = attrs.fileKey();
+            segments = new MappedByteBuffer[0];
+        }
+    }
+
+    private void closeChannel() {
+        synchronized (channelLock) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            channel = null;
+            fileKey = null;
+            segments = new MappedByteBuffer[0];
+        }
+    }
+
+    /** 读取 [pos, pos+len) 到 dst，返回实际读到的字节数。 */
+    private int readBytes(long pos, byte[] dst, int off, int len) throws IOException {
+        if (!MAP_FILES) {
+            FileChannel ch = channel;
+            if (ch == null) {
+                return 0;
+            }
+            ByteBuffer target = ByteBuffer.wrap(dst, off, len);
+            while (target.hasRemaining()) {
+                if (ch.read(target, pos + target.position() - off) < 0) {
+                    break;
+                }
+            }
+            return target.position() - off;
+        }
+        int done = 0;
+        while (done < len) {
+            long p = pos + done;
+            int s = (int) (p / SEGMENT_BYTES);
+            int inSegment = (int) (p - s * SEGMENT_BYTES);
+            int n = (int) Math.min(len - done, SEGMENT_BYTES - inSegment);
+            MappedByteBuffer segment = segment(s, inSegment + n);
+            if (segment == null) {
+                break;
+            }
+            n = Math.min(n, segment.capacity() - inSegment);
+            if (n <= 0) {
+                break;
+            }
+            segment.get(inSegment, dst, off + done, n);
+            done += n;
+        }
+        return done;
+    }
+
+    /** 第 s 段的映射，保证至少覆盖段内前 needed 字节（文件足够长时）。 */
+    private MappedByteBuffer segment(int s, int needed) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (s < current.length && current[s] != null && current[s].capacity() >= needed) {
+            return current[s];
+        }
+        synchronized (channelLock) {
+            if (channel == null) {
+                return null;
+            }
+            MappedByteBuffer[] updated = Arrays.copyOf(segments, Math.max(segments.length, s + 1));
+            MappedByteBuffer m = updated[s];
+            if (m == null || m.capacity() < needed) {
+                long start = s * SEGMENT_BYTES;
+                long size = Math.min(SEGMENT_BYTES, channel.size() - start);
+                if (size <= 0) {
+                    return null;
+                }
+                m = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                updated[s] = m;
+                segments = updated;
+            }
+            return m;
+        }
+    }
+
+    private static String decode(byte[] buf, int len) {
+        while (len > 0 && (buf[len - 1] == '\n' || buf[len - 1] == '\r')) {
+            len--;
+        }
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,514 @@
+package com.example.javafxtest;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.fxml.FXML;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 日志查看窗口。
+ * <p>
+ * 列表项只是行号，单元格显示时才从 {@link LogIndex} 读出该行，所以几 GB 的日志也只物化可见的几十行。
+ * 定时增量刷新索引以跟随追加；搜索与级别过滤在后台并行执行，结果是匹配行号数组，
+ * 可以逐个跳转，也可以只显示匹配行。
+ */
+public class LogViewerController {
+
+    /** 可查看的日志文件。 */
+    static final class LogSource {
+        final String name;
+        final Path file;
+
+        LogSource(String name, Path file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final long TAIL_INTERVAL_MS = 500;
+    private static final int MAX_DISPLAY_CHARS = 2000;
+    static final String[] LEVEL_CHOICES = {"全部级别", "INFO 及以上", "WARN 及以上", "仅 ERROR"};
+    static final LogIndex.Level[] LEVEL_FILTERS = {null, LogIndex.Level.INFO, LogIndex.Level.WARN,
+            LogIndex.Level.ERROR};
+
+    @FXML
+    private ComboBox<LogSource> sourceBox;
+    @FXML
+    private TextField jumpField;
+    @FXML
+    private CheckBox followCheck;
+    @FXML
+    private TextField searchField;
+    @FXML
+    private CheckBox regexCheck;
+    @FXML
+    private ComboBox<String> levelBox;
+    @FXML
+    private CheckBox matchesOnlyCheck;
+    @FXML
+    private ListView<Integer> lineList;
+    @FXML
+    private Label infoLabel;
+    @FXML
+    private ProgressBar progressBar;
+
+    private final LineItems items = new LineItems();
+    private final Timeline tail = new Timeline(new KeyFrame(Duration.millis(TAIL_INTERVAL_MS), e -> tick()));
+    private LogIndex index;
+    private boolean refreshing;
+    private String indexingText;
+
+    /** 当前过滤条件；两者都为 null 表示没有过滤。 */
+    private Pattern pattern;
+    private LogIndex.Level minLevel;
+    private LogIndex.Search search;
+    private long searchStartNanos;
+    private int[] matches = new int[0];
+    private int matchCount;
+    /** 已经过滤过的行数，之后追加的行增量过滤。 */
+    private int filteredUpTo;
+    /** 每次重新搜索加一，用来丢弃过期的增量结果。 */
+    private int searchGeneration;
+    private boolean appending;
+    private int currentMatch = -1;
+
+    /** 由 FXMLLoader 创建。 */
+    public LogViewerController() {
+    }
+
+    @FXML
+    public void initialize() {
+        levelBox.getItems().addAll(LEVEL_CHOICES);
+        levelBox.getSelectionModel().select(0);
+        lineList.setItems(items);
+        lineList.setFixedCellSize(18);
+        lineList.setCellFactory(list -> new LineCell());
+        tail.setCycleCount(Timeline.INDEFINITE);
+        tail.play();
+    }
+
+    void setSources(List<LogSource> sources) {
+        sourceBox.getItems().setAll(sources);
+        if (!sources.isEmpty()) {
+            sourceBox.getSelectionModel().select(0);
+            open(sources.get(0));
+        }
+    }
+
+    /** 窗口关闭时调用。 */
+    void close() {
+        tail.stop();
+        cancelSearch();
+        if (index != null) {
+            index.close();
+            index = null;
+        }
+    }
+
+    @FXML
+    private void handleSourceChanged() {
+        LogSource source = sourceBox.getValue();
+        if (source != null && (index == null || !index.getFile().equals(source.file))) {
+            open(source);
+        }
+    }
+
+    private void open(LogSource source) {
+        close();
+        index = new LogIndex(source.file);
+        items.showAll(0);
+        clearMatches();
+        indexingText = null;
+        tail.play();
+        refresh();
+    }
+
+    private void tick() {
+        LogIndex.Search s = search;
+        if (s != null) {
+            progressBar.setProgress(s.progress());
+        }
+        if (!refreshing) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        LogIndex current = index;
+        if (current == null) {
+            return;
+        }
+        refreshing = true;
+        long t0 = System.nanoTime();
+        current.refreshAsync((done, total) -> {
+            // 首次索引大文件时显示进度
+            if (total > 64L * 1024 * 1024) {
+                String text = String.format("正在建立索引 %d%%", done * 100 / total);
+                Platform.runLater(() -> {
+                    indexingText = text;
+                    infoLabel.setText(text);
+                });
+            }
+        }).whenComplete((added, e) -> Platform.runLater(() -> {
+            refreshing = false;
+            if (current != index) {
+                return;
+            }
+            if (e != null) {
+                infoLabel.setText("读取失败: " + StartupPipeline.unwrap(e).getMessage());
+                return;
+            }
+            if (indexingText != null) {
+                indexingText = null;
+                AsyncLogWriter.launcherLog().log("Indexed " + current.getFile() + ": " + current.lineCount()
+                        + " lines in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+            }
+            onRefreshed(added);
+        }));
+    }
+
+    private void onRefreshed(int added) {
+        int count = index.lineCount();
+        if (added < 0) {
+            // 文件被轮转：重新开始
+            items.showAll(count);
+            if (isFiltering()) {
+                startSearch();
+            }
+        } else if (added > 0) {
+            if (!items.isFiltered()) {
+                items.showAll(count);
+            }
+            if (isFiltering() && search == null && !appending) {
+                searchAppended(count);
+            }
+            if (followCheck.isSelected() && !items.isEmpty()) {
+                lineList.scrollTo(items.size() - 1);
+            }
+        }
+        updateInfo();
+    }
+
+    @FXML
+    private void handleSearch() {
+        String text = searchField.getText();
+        try {
+            if (text == null || text.isEmpty()) {
+                pattern = null;
+            } else if (regexCheck.isSelected()) {
+                pattern = Pattern.compile(text);
+            } else {
+                pattern = Pattern.compile(Pattern.quote(text), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            }
+        } catch (PatternSyntaxException ex) {
+            infoLabel.setText("正则表达式错误: " + ex.getDescription());
+            return;
+        }
+        minLevel = LEVEL_FILTERS[Math.max(0, levelBox.getSelectionModel().getSelectedIndex())];
+        startSearch();
+    }
+
+    private void startSearch() {
+        cancelSearch();
+        clearMatches();
+        if (index == null) {
+            return;
+        }
+        if (items.isFiltered() && isFiltering()) {
+            items.showLines(matches, 0);
+        }
+        if (!isFiltering()) {
+            items.showAll(index.lineCount());
+            updateInfo();
+            return;
+        }
+        int count = index.lineCount();
+        LogIndex current = index;
+        LogIndex.Search s = current.search(pattern, minLevel, 0, count);
+        search = s;
+        searchStartNanos = System.nanoTime();
+        progressBar.setProgress(0);
+        progressBar.setVisible(true);
+        infoLabel.setText("搜索中...");
+        s.result().whenComplete((lines, e) -> Platform.runLater(() -> {
+            if (search != s) {
+                return;
+            }
+            search = null;
+            progressBar.setVisible(false);
+            if (e != null || current != index) {
+                return;
+            }
+            appendMatches(lines, count);
+            long ms = (System.nanoTime() - searchStartNanos) / 1_000_000;
+            AsyncLogWriter.launcherLog().log("Log search over " + count + " lines found " + lines.length
+                    + " matches in " + ms + " ms");
+            if (matchCount > 0 && !matchesOnlyCheck.isSelected()) {
+                selectMatch(0);
+            }
+            updateInfo();
+            // 搜索期间追加的行
+            if (index.lineCount() > filteredUpTo && !appending) {
+                searchAppended(index.lineCount());
+            }
+        }));
+    }
+
+    /** 过滤 [filteredUpTo, count) 之间新追加的行。 */
+    private void searchAppended(int count) {
+        LogIndex current = index;
+        int generation = searchGeneration;
+        appending = true;
+        current.search(pattern, minLevel, filteredUpTo, count).result().whenComplete((lines, e) -> Platform.runLater(() -> {
+            appending = false;
+            if (e != null || current != index || generation != searchGeneration) {
+                return;
+            }
+            appendMatches(lines, count);
+            updateInfo();
+            if (index.lineCount() > filteredUpTo) {
+                searchAppended(index.lineCount());
+            }
+        }));
+    }
+
+    private void appendMatches(int[] lines, int upTo) {
+        if (matchCount + lines.length > matches.length) {
+            matches = Arrays.copyOf(matches, Math.max(matchCount + lines.length, matches.length * 2));
+        }
+        System.arraycopy(lines, 0, matches, matchCount, lines.length);
+        matchCount += lines.length;
+        filteredUpTo = Math.max(filteredUpTo, upTo);
+        if (matchesOnlyCheck.isSelected()) {
+            items.appendLines(matches, matchCount);
+            if (followCheck.isSelected() && !items.isEmpty() && lines.length > 0) {
+                lineList.scrollTo(items.size() - 1);
+            }
+        }
+    }
+
+    @FXML
+    private void handleMatchesOnly() {
+        if (index == null) {
+            return;
+        }
+        if (matchesOnlyCheck.isSelected() && isFiltering()) {
+            items.showLines(matches, matchCount);
+        } else {
+            items.showAll(index.lineCount());
+            if (currentMatch >= 0) {
+                selectMatch(currentMatch);
+            }
+        }
+        updateInfo();
+    }
+
+    @FXML
+    private void handlePrevMatch() {
+        if (matchCount > 0) {
+            selectMatch(currentMatch <= 0 ? matchCount - 1 : currentMatch - 1);
+        }
+    }
+
+    @FXML
+    private void handleNextMatch() {
+        if (matchCount > 0) {
+            selectMatch(currentMatch < 0 || currentMatch >= matchCount - 1 ? 0 : currentMatch + 1);
+        }
+    }
+
+    private void selectMatch(int k) {
+        currentMatch = k;
+        followCheck.setSelected(false);
+        showLine(items.isFiltered() ? k : matches[k]);
+        updateInfo();
+    }
+
+    /** 跳转到行号（从 1 开始）或时间：yyyy-MM-dd HH:mm[:ss] 或 HH:mm[:ss]（取日志最后日期）。 */
+    @FXML
+    private void handleJump() {
+        String text = jumpField.getText() == null ? "" : jumpField.getText().trim();
+        if (index == null || text.isEmpty()) {
+            return;
+        }
+        int line;
+        if (text.chars().allMatch(Character::isDigit)) {
+            line = (int) Math.min(Long.parseLong(text) - 1, Integer.MAX_VALUE);
+        } else {
+            long millis = LogIndex.parseTime(text, index.lastTimestamp());
+            if (millis < 0) {
+                infoLabel.setText("无法识别的时间: " + text);
+                return;
+            }
+            line = index.findLine(millis);
+        }
+        line = Math.max(0, Math.min(line, index.lineCount() - 1));
+        if (items.isFiltered()) {
+            matchesOnlyCheck.setSelected(false);
+            items.showAll(index.lineCount());
+        }
+        followCheck.setSelected(false);
+        showLine(line);
+    }
+
+    private void showLine(int row) {
+        if (row < 0 || row >= items.size()) {
+            return;
+        }
+        lineList.getSelectionModel().clearAndSelect(row);
+        lineList.scrollTo(Math.max(0, row - 5));
+    }
+
+    private boolean isFiltering() {
+        return pattern != null || minLevel != null;
+    }
+
+    private void cancelSearch() {
+        if (search != null) {
+            search.cancel();
+            search = null;
+        }
+        progressBar.setVisible(false);
+    }
+
+    private void clearMatches() {
+        searchGeneration++;
+        matches = new int[0];
+        matchCount = 0;
+        filteredUpTo = 0;
+        currentMatch = -1;
+    }
+
+    private void updateInfo() {
+        if (index == null || indexingText != null || search != null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("共 %,d 行, %.1f MB", index.lineCount(), index.indexedBytes() / (1024.0 * 1024.0)));
+        if (isFiltering()) {
+            sb.append(String.format("  |  匹配 %,d 行", matchCount));
+            if (currentMatch >= 0) {
+                sb.append(String.format(" (第 %,d 个)", currentMatch + 1));
+            }
+        }
+        infoLabel.setText(sb.toString());
+    }
+
+    private final class LineCell extends ListCell<Integer> {
+        @Override
+        protected void updateItem(Integer line, boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null || index == null) {
+                setText(null);
+                setStyle(null);
+                return;
+            }
+            String text = index.readLine(line);
+            if (text.length() > MAX_DISPLAY_CHARS) {
+                text = text.substring(0, MAX_DISPLAY_CHARS) + " …";
+            }
+            setText(String.format("%7d  %s", line + 1, text));
+            LogIndex.Level level = LogIndex.levelOf(text);
+            if (level == LogIndex.Level.ERROR) {
+                setStyle("-fx-text-fill: #dc3545;");
+            } else if (level == LogIndex.Level.WARN) {
+                setStyle("-fx-text-fill: #b8860b;");
+            } else {
+                setStyle(null);
+            }
+        }
+    }
+
+    /**
+     * 列表数据：要么是 0..count-1 的全部行号，要么是一段匹配行号数组。
+     * 不为每行创建对象，只在 get 时装箱。
+     */
+    private static final class LineItems extends ObservableListBase<Integer> {
+        private int[] lines;
+        private int size;
+
+        boolean isFiltered() {
+            return lines != null;
+        }
+
+        void showAll(int count) {
+            if (lines == null && count >= size) {
+                int old = size;
+                size = count;
+                if (count > old) {
+                    beginChange();
+                    nextAdd(old, count);
+                    endChange();
+                }
+                return;
+            }
+            replaceAll(null, count);
+        }
+
+        void showLines(int[] newLines, int count) {
+            replaceAll(newLines, count);
+        }
+
+        /** 匹配数组只会在末尾追加。 */
+        void appendLines(int[] newLines, int count) {
+            if (lines == null) {
+                replaceAll(newLines, count);
+                return;
+            }
+            int old = size;
+            lines = newLines;
+            size = count;
+            if (count > old) {
+                beginChange();
+                nextAdd(old, count);
+                endChange();
+            }
+        }
+
+        private void replaceAll(int[] newLines, int count) {
+            int old = size;
+            lines = newLines;
+            size = count;
+            if (old == 0 && count == 0) {
+                return;
+            }
+            beginChange();
+            nextReplace(0, count, Collections.nCopies(old, 0));
+            endChange();
+        }
+
+        @Override
+        public Integer get(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            return lines == null ? i : lines[i];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
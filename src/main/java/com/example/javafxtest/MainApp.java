@@ -6,18 +6,26 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Date;
 import java.util.ResourceBundle;
 import java.util.Locale;
 
 public class MainApp extends Application {
 
+    @Override
+    public void init() {
+        Trace.startRecordingIfConfigured(LauncherConfig.get());
+        Trace.instant("launcher.init");
+        // 在 FX 线程构建界面之前就开始准备 JDK/JAR（以及可选的预启动）
+        StartupPipeline.start();
+    }
+
     @Override
     public void start(Stage stage) {
+        long t0 = Trace.begin();
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(MainApp.class.getResource("ControlUI.fxml"));
             if (fxmlLoader.getLocation() == null) {
@@ -25,30 +33,31 @@ public class MainApp extends Application {
             }
             ResourceBundle bundle = ResourceBundle.getBundle("app", Locale.getDefault());
             fxmlLoader.setResources(bundle);
+            long loadStart = Trace.begin();
             Parent root = fxmlLoader.load();
+            Trace.end("ui.fxmlLoad", loadStart);
             Scene scene = new Scene(root, 800, 600);
             stage.setMinWidth(640);
             stage.setMinHeight(600);
             stage.setTitle(bundle.getString("app.title"));
             stage.setScene(scene);
             stage.show();
+            Trace.end("ui.start", t0);
         } catch (Exception e) {
             logErrorToFile(e);
         }
     }
 
     private void logErrorToFile(Exception e) {
-        String userHome = System.getProperty("user.home");
-        File logFile = new File(userHome, "jar_starter_error.log");
-        try (PrintWriter writer = new PrintWriter(new FileWriter(logFile, true))) {
+        StringWriter buffer = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(buffer)) {
             writer.println("----------------------------------------");
             writer.println("Timestamp: " + new Date());
             e.printStackTrace(writer);
             writer.println("----------------------------------------");
             writer.println();
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
         }
+        AsyncLogWriter.errorLog().logRaw(buffer.toString());
     }
 
 
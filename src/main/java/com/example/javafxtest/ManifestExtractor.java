@@ -0,0 +1,139 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 按清单并行解压资源：先顺序创建全部目录，再在 ForkJoinPool 中并行复制文件，
+ * 最后只输出一条汇总日志。
+ */
+final class ManifestExtractor {
+
+    /** 打开清单中某个相对路径对应的数据流。 */
+    interface Source {
+        InputStream open(String path) throws IOException;
+    }
+
+    /** 可以直接写入目标文件通道的数据源（例如映射后的压缩包），优先于 open() 使用。 */
+    interface ChannelSource extends Source {
+        long transfer(String path, FileChannel target) throws IOException;
+    }
+
+    static final class Result {
+        final int files;
+        final long bytes;
+        final long elapsedMs;
+        final int threads;
+
+        Result(int files, long bytes, long elapsedMs, int threads) {
+            this.files = files;
+            this.bytes = bytes;
+            this.elapsedMs = elapsedMs;
+            this.threads = threads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %.1f MB in %d ms using %d threads",
+                    files, bytes / (1024.0 * 1024.0), elapsedMs, threads);
+        }
+    }
+
+    private final Source source;
+    private final int parallelism;
+
+    ManifestExtractor(Source source) {
+        this(source, Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() * 2)));
+    }
+
+    ManifestExtractor(Source source, int parallelism) {
+        this.source = source;
+        this.parallelism = parallelism;
+    }
+
+    /** 从类路径目录（如 /embedded-jdk/）读取文件的数据源。 */
+    static Source classpath(String basePath) {
+        return path -> ManifestExtractor.class.getResourceAsStream(basePath + path);
+    }
+
+    Result extractAll(ExtractionManifest manifest, Path targetDir) throws IOException {
+        return extract(manifest.getDirectories(), manifest.getFiles(), targetDir);
+    }
+
+    Result extract(Collection<String> directories, Collection<ExtractionManifest.FileEntry> files, Path targetDir)
+            throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(targetDir);
+        for (String dir : directories) {
+            Files.createDirectories(targetDir.resolve(dir));
+        }
+
+        AtomicLong bytes = new AtomicLong();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> files.parallelStream().forEach(entry -> {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    bytes.addAndGet(copy(entry, targetDir));
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Extraction interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Extraction failed: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new Result(files.size(), bytes.get(), elapsedMs, parallelism);
+    }
+
+    private long copy(ExtractionManifest.FileEntry entry, Path targetDir) throws IOException {
+        Path target = targetDir.resolve(entry.path);
+        Path parent = target.getParent();
+        if (parent != null && !Files.isDirectory(parent)) {
+            Files.createDirectories(parent);
+        }
+        long written;
+        if (source instanceof ChannelSource) {
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ((ChannelSource) source).transfer(entry.path, out);
+                written = out.size();
+            }
+        } else {
+            try (InputStream in = source.open(entry.path)) {
+                if (in == null) {
+                    throw new IOException("Resource not found: " + entry.path);
+                }
+                written = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (written != entry.size) {
+            throw new IOException("Size mismatch for " + entry.path + ": expected " + entry.size + ", got " + written);
+        }
+        if (entry.path.endsWith(".exe") || entry.path.startsWith("bin/")) {
+            target.toFile().setExecutable(true);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.javafxtest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * 子进程输出的堆外环形缓冲区：始终保留最近 capacity 字节的输出（每行带 HH:mm:ss.SSS 时间前缀），
+ * 不受文件日志丢行的影响，服务崩溃或卡死时由 {@link ServiceFlightRecorder} 写入诊断包。
+ * <p>
+ * 由输出泵线程写入（进程重启后新旧两个泵可能短暂并存，因此写入也加锁，锁基本无竞争），快照可在任意线程读取。
+ */
+final class OutputRing {
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final byte[] stamp = "00:00:00.000 ".getBytes(StandardCharsets.US_ASCII);
+    private long stampMillis = -1;
+    private long written;
+
+    OutputRing(int capacity) {
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /** 设置之后追加的行所用的时间戳；输出泵每次 read 调用一次。 */
+    synchronized void setTime(long millis) {
+        if (millis == stampMillis) {
+            return;
+        }
+        stampMillis = millis;
+        LocalTime t = LocalTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+        digits(t.getHour(), 0, 2);
+        digits(t.getMinute(), 3, 2);
+        digits(t.getSecond(), 6, 2);
+        digits(t.getNano() / 1_000_000, 9, 3);
+    }
+
+    private void digits(int value, int at, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            stamp[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /** 追加一行（不含换行符）。 */
+    synchronized void append(byte[] line, int off, int len) {
+        put(stamp, 0, stamp.length);
+        put(line, off, len);
+        buffer.put((int) (written % capacity), (byte) '\n');
+        written++;
+    }
+
+    /** 追加一行启动器自己的标记，例如进程启动。 */
+    void mark(String text) {
+        setTime(System.currentTimeMillis());
+        byte[] bytes = ("--- " + text + " ---").getBytes(StandardCharsets.UTF_8);
+        append(bytes, 0, bytes.length);
+    }
+
+    private void put(byte[] src, int off, int len) {
+        if (len > capacity) {
+            off += len - capacity;
+            len = capacity;
+        }
+        int pos = (int) (written % capacity);
+        int first = Math.min(len, capacity - pos);
+        buffer.put(pos, src, off, first);
+        if (first < len) {
+            buffer.put(0, src, off + first, len - first);
+        }
+        written += len;
+    }
+
+    /** 按时间顺序复制当前内容；缓冲区已回绕时去掉开头不完整的一行。 */
+    synchronized byte[] snapshot() {
+        int size = (int) Math.min(written, capacity);
+        int start = (int) ((written - size) % capacity);
+        byte[] out = new byte[size];
+        int first = Math.min(size, capacity - start);
+        buffer.get(start, out, 0, first);
+        if (first < size) {
+            buffer.get(0, out, first, size - first);
+        }
+        if (written > capacity) {
+            for (int i = 0; i < size; i++) {
+                if (out[i] == '\n') {
+                    return Arrays.copyOfRange(out, i + 1, size);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** 自创建以来写入的总字节数（含已被覆盖的部分）。 */
+    synchronized long getWrittenBytes() {
+        return written;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.javafxtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 单文件分块压缩包（由 src/build/java/ResourcePack.java 生成）的解包数据源。
+ * <p>
+ * 类路径资源先以一次流式复制落盘，然后整体只读映射到内存。单块的存储文件用 transferTo 零拷贝写出，
+ * deflate 块用 Inflater 从映射区解压到线程本地的直接缓冲区，再按位置写入目标文件；
+ * 多块的大文件（如 rt.jar、modules）各块并行解压。
+ * <p>
+ * 落盘文件每次运行用不同的名字：Windows 上映射在 GC 回收前无法释放，关闭时可能删不掉，
+ * 留下的文件在下次启动时由 {@link #fromClasspath} 清理。
+ */
+final class PackedResourceSource implements ManifestExtractor.ChannelSource, Closeable {
+
+    private static final byte[] MAGIC = {'J', 'S', 'P', 'A', 'C', 'K', '0', '1'};
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+
+    private static final class Entry {
+        final long size;
+        final byte[] methods;
+        final long[] offsets;
+        final int[] lengths;
+
+        Entry(long size, int blocks) {
+            this.size = size;
+            this.methods = new byte[blocks];
+            this.offsets = new long[blocks];
+            this.lengths = new int[blocks];
+        }
+    }
+
+    private final Path packFile;
+    private final boolean deleteOnClose;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int blockSize;
+    private final long dataStart;
+    private final Map<String, Entry> entries;
+    private final ThreadLocal<ByteBuffer> outBuffers;
+    /** 所有线程创建过的 Inflater，关闭时统一释放本地内存。 */
+    private final Queue<Inflater> allInflaters = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> {
+        Inflater inflater = new Inflater();
+        allInflaters.add(inflater);
+        return inflater;
+    });
+
+    private PackedResourceSource(Path packFile, boolean deleteOnClose) throws IOException {
+        this.packFile = packFile;
+        this.deleteOnClose = deleteOnClose;
+        this.channel = FileChannel.open(packFile, StandardOpenOption.READ);
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Pack too large to map: " + fileSize);
+        }
+        this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+        MappedInputStream header = new MappedInputStream(mapped.duplicate());
+        DataInputStream in = new DataInputStream(header);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                channel.close();
+                throw new IOException("Not a resource pack: " + packFile);
+            }
+        }
+        this.blockSize = in.readInt();
+        int count = in.readInt();
+        this.entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String path = in.readUTF();
+            long size = in.readLong();
+            int blocks = in.readInt();
+            Entry e = new Entry(size, blocks);
+            for (int b = 0; b < blocks; b++) {
+                e.methods[b] = in.readByte();
+                e.offsets[b] = in.readLong();
+                e.lengths[b] = in.readInt();
+            }
+            entries.put(path, e);
+        }
+        this.dataStart = fileSize - header.remaining();
+        int bufferSize = blockSize;
+        this.outBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferSize));
+    }
+
+    /**
+     * 把类路径资源流式复制到 spillDir 下本次运行独有的文件并打开。资源不存在时返回 null。
+     * 先删除以前运行遗留的落盘文件；关闭时删除本次的落盘文件。
+     */
+    static PackedResourceSource fromClasspath(String resourcePath, Path spillDir) throws IOException {
+        InputStream in = PackedResourceSource.class.getResourceAsStream(resourcePath);
+        if (in == null) {
+            return null;
+        }
+        String prefix = resourcePath.substring(resourcePath.lastIndexOf('/') + 1);
+        Files.createDirectories(spillDir);
+        deleteStaleSpills(spillDir, prefix);
+        Path spillFile = spillDir.resolve(prefix + "." + ProcessHandle.current().pid() + "-" + System.nanoTime() + ".tmp");
+        try (ReadableByteChannel src = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = 0;
+            long n;
+            while ((n = out.transferFrom(src, pos, 8L * 1024 * 1024)) > 0) {
+                pos += n;
+            }
+        }
+        return new PackedResourceSource(spillFile, true);
+    }
+
+    /** 删除 prefix*.tmp；仍被其他进程映射的文件（Windows）删不掉，跳过即可。 */
+    private static void deleteStaleSpills(Path spillDir, String prefix) {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(spillDir, prefix + "*.tmp")) {
+            for (Path p : stale) {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    // 正在使用，留给以后
+                }
+            }
+        } catch (IOException e) {
+            // 目录不可读时不影响解包
+        }
+    }
+
+    static PackedResourceSource open(Path packFile) throws IOException {
+        return new PackedResourceSource(packFile, false);
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        // 仅作兜底：解压到内存；正常路径走 transfer()
+        Entry e = entries.get(path);
+        if (e == null) {
+            return null;
+        }
+        if (e.size > Integer.MAX_VALUE) {
+            throw new IOException("Entry too large for stream access: " + path);
+        }
+        byte[] out = new byte[(int) e.size];
+        for (int b = 0; b < e.methods.length; b++) {
+            ByteBuffer dst = ByteBuffer.wrap(out, b * blockSize, (int) Math.min(blockSize, e.size - (long) b * blockSize));
+            decodeBlock(e, b, dst);
+        }
+        return new ByteArrayInputStream(out);
+    }
+
+    @Override
+    public long transfer(String path, FileChannel target) throws IOException {
+        Entry e = entries.get(path);
+        if (e == null) {
+            throw new IOException("Resource not found in pack: " + path);
+        }
+        IntStream blocks = IntStream.range(0, e.methods.length);
+        if (e.methods.length > 1) {
+            blocks = blocks.parallel();
+        }
+        try {
+            blocks.forEach(b -> {
+                try {
+                    writeBlock(e, b, target);
+                } catch (IOException ex) {
+                    throw new PackException(ex);
+                }
+            });
+        } catch (PackException ex) {
+            throw (IOException) ex.getCause();
+        }
+        return e.size;
+    }
+
+    private void writeBlock(Entry e, int b, FileChannel target) throws IOException {
+        long position = (long) b * blockSize;
+        if (e.methods[b] == STORED) {
+            long from = dataStart + e.offsets[b];
+            if (e.methods.length == 1) {
+                // 单块文件只有当前线程写这个目标，可以用 transferTo 零拷贝
+                long remaining = e.lengths[b];
+                target.position(position);
+                while (remaining > 0) {
+                    long n = channel.transferTo(from, remaining, target);
+                    if (n <= 0) {
+                        break;
+                    }
+                    from += n;
+                    remaining -= n;
+                }
+                if (remaining == 0) {
+                    return;
+                }
+                position += e.lengths[b] - remaining;
+                writeFully(mapped.slice((int) from, (int) remaining), target, position);
+                return;
+            }
+            // 多块并行写同一个文件时用映射区按位置写出
+            writeFully(mapped.slice((int) from, e.lengths[b]), target, position);
+            return;
+        }
+        ByteBuffer out = outBuffers.get();
+        out.clear();
+        decodeBlock(e, b, out);
+        out.flip();
+        writeFully(out, target, position);
+    }
+
+    private static void writeFully(ByteBuffer src, FileChannel target, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += target.write(src, position);
+        }
+    }
+
+    private void decodeBlock(Entry e, int b, ByteBuffer dst) throws IOException {
+        ByteBuffer src = mapped.slice((int) (dataStart + e.offsets[b]), e.lengths[b]);
+        if (e.methods[b] == STORED) {
+            dst.put(src);
+            return;
+        }
+        if (e.methods[b] != DEFLATED) {
+            throw new IOException("Unknown block method " + e.methods[b]);
+        }
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(src);
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(dst) == 0 && (inflater.needsInput() || !dst.hasRemaining())) {
+                    break;
+                }
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupt block in pack " + packFile, ex);
+        }
+        if (!inflater.finished()) {
+            throw new IOException("Truncated block in pack " + packFile);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Inflater inflater;
+        while ((inflater = allInflaters.poll()) != null) {
+            inflater.end();
+        }
+        channel.close();
+        if (deleteOnClose) {
+            try {
+                Files.deleteIfExists(packFile);
+            } catch (IOException e) {
+                // Windows 上映射未释放时删除会失败，下次启动时清理
+            }
+        }
+    }
+
+    private static final class PackException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        PackException(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /** 在映射区上顺序读取索引的输入流。 */
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        MappedInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        int remaining() {
+            return buf.remaining();
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
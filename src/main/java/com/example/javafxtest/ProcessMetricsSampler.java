@@ -0,0 +1,451 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 服务进程资源采样器。
+ * <p>
+ * 按固定间隔采样每个实例进程及其子孙进程的 CPU 时间、RSS、线程数与磁盘读写字节，
+ * 全体实例的合计值写入定长的基本类型环形数组（每次采样不装箱、不扩容），供界面画走势线；
+ * 每个实例的最新值另存一份，供 Prometheus 文本格式导出。
+ * Linux 上读取 /proc/&lt;pid&gt;/stat、status、io（复用同一个读缓冲区）；其他系统只能通过
+ * {@link ProcessHandle} 得到 CPU 时间，RSS、线程数与 I/O 记为 -1。
+ */
+final class ProcessMetricsSampler implements Closeable {
+
+    static final int CAPACITY = 600;
+
+    private static final boolean PROC_FS = new File("/proc/self/stat").isFile();
+    /** Linux 的 USER_HZ，/proc/&lt;pid&gt;/stat 中 utime/stime 的单位。 */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    // 合计值环形缓冲区
+    private final long[] times = new long[CAPACITY];
+    private final double[] cpuPercent = new double[CAPACITY];
+    private final long[] rssBytes = new long[CAPACITY];
+    private final int[] threadCounts = new int[CAPACITY];
+    private final long[] readBytes = new long[CAPACITY];
+    private final long[] writeBytes = new long[CAPACITY];
+    private long written;
+
+    // 每个实例的最新值，按实例下标存放
+    private long[] instanceCpuNanos = new long[0];
+    private long[] instanceRss = new long[0];
+    private int[] instanceThreads = new int[0];
+    private int[] instanceProcesses = new int[0];
+    private long[] instanceRead = new long[0];
+    private long[] instanceWrite = new long[0];
+
+    // 采样线程私有
+    private final byte[] readBuffer = new byte[4096];
+    private final long[] procValues = new long[5];
+    private long lastCpuNanos = -1;
+    private long lastSampleNanos;
+
+    private final long intervalMs;
+    private final ScheduledExecutorService executor;
+    private volatile ServicePool pool;
+    private ScheduledFuture<?> task;
+
+    ProcessMetricsSampler(long intervalMs) {
+        this.intervalMs = intervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "process-metrics-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    static ProcessMetricsSampler fromConfig(LauncherConfig config) {
+        return new ProcessMetricsSampler(Math.max(100, config.getLong("metrics.intervalMs", 1000)));
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    static int cores() {
+        return CORES;
+    }
+
+    void setPool(ServicePool pool) {
+        this.pool = pool;
+    }
+
+    ServicePool getPool() {
+        return pool;
+    }
+
+    synchronized void start() {
+        if (task == null) {
+            task = executor.scheduleAtFixedRate(this::sampleSafely, 0, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        executor.shutdown();
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            AsyncLogWriter.launcherLog().log("Metrics sample failed: " + e);
+        }
+    }
+
+    private void sample() {
+        ServicePool current = pool;
+        List<ServiceInstance> instances = current != null ? current.getInstances() : List.of();
+        int n = instances.size();
+        long now = System.nanoTime();
+        long cpu = 0;
+        long rss = 0;
+        int threads = 0;
+        long read = 0;
+        long write = 0;
+        boolean anyAlive = false;
+        synchronized (this) {
+            ensureInstanceCapacity(n);
+        }
+        for (int i = 0; i < n; i++) {
+            Process p = instances.get(i).getProcess();
+            long iCpu = 0;
+            long iRss = 0;
+            int iThreads = 0;
+            int iProcesses = 0;
+            long iRead = 0;
+            long iWrite = 0;
+            if (p != null && p.isAlive()) {
+                anyAlive = true;
+                ProcessHandle root = p.toHandle();
+                // 根进程加上它的子孙进程
+                try (Stream<ProcessHandle> family = Stream.concat(Stream.of(root), root.descendants())) {
+                    for (ProcessHandle h : (Iterable<ProcessHandle>) family::iterator) {
+                        if (!readProcess(h)) {
+                            continue;
+                        }
+                        iProcesses++;
+                        iCpu += procValues[0];
+                        iRss += procValues[1];
+                        iThreads += (int) procValues[2];
+                        iRead += procValues[3];
+                        iWrite += procValues[4];
+                    }
+                }
+            }
+            synchronized (this) {
+                instanceCpuNanos[i] = iCpu;
+                instanceRss[i] = PROC_FS ? iRss : -1;
+                instanceThreads[i] = PROC_FS ? iThreads : -1;
+                instanceProcesses[i] = iProcesses;
+                instanceRead[i] = PROC_FS ? iRead : -1;
+                instanceWrite[i] = PROC_FS ? iWrite : -1;
+            }
+            cpu += iCpu;
+            rss += iRss;
+            threads += iThreads;
+            read += iRead;
+            write += iWrite;
+        }
+        double percent = 0;
+        if (anyAlive && lastCpuNanos >= 0 && cpu >= lastCpuNanos && now > lastSampleNanos) {
+            // 占整机 CPU 的百分比；子进程退出使累计值变小时本次记为 0
+            percent = 100.0 * (cpu - lastCpuNanos) / (double) (now - lastSampleNanos) / CORES;
+        }
+        lastCpuNanos = anyAlive ? cpu : -1;
+        lastSampleNanos = now;
+        synchronized (this) {
+            int slot = (int) (written % CAPACITY);
+            times[slot] = System.currentTimeMillis();
+            cpuPercent[slot] = percent;
+            rssBytes[slot] = anyAlive && PROC_FS ? rss : -1;
+            threadCounts[slot] = anyAlive && PROC_FS ? threads : -1;
+            readBytes[slot] = anyAlive && PROC_FS ? read : -1;
+            writeBytes[slot] = anyAlive && PROC_FS ? write : -1;
+            written++;
+        }
+    }
+
+    private void ensureInstanceCapacity(int n) {
+        if (instanceCpuNanos.length >= n) {
+            return;
+        }
+        instanceCpuNanos = new long[n];
+        instanceRss = new long[n];
+        instanceThreads = new int[n];
+        instanceProcesses = new int[n];
+        instanceRead = new long[n];
+        instanceWrite = new long[n];
+    }
+
+    /** 读取一个进程的 cpuNanos、rssBytes、threads、readBytes、writeBytes 到 procValues。 */
+    private boolean readProcess(ProcessHandle h) {
+        procValues[0] = 0;
+        procValues[1] = 0;
+        procValues[2] = 0;
+        procValues[3] = 0;
+        procValues[4] = 0;
+        if (!PROC_FS) {
+            Optional<Duration> cpu = h.info().totalCpuDuration();
+            if (cpu.isEmpty() && !h.isAlive()) {
+                return false;
+            }
+            procValues[0] = cpu.map(Duration::toNanos).orElse(0L);
+            return true;
+        }
+        String dir = "/proc/" + h.pid() + "/";
+        int len = readFile(dir + "stat");
+        if (len <= 0) {
+            return false;
+        }
+        // comm 字段可能含空格，从最后一个 ')' 之后开始数：state 是第 3 个字段
+        int pos = lastIndexOf(len, (byte) ')') + 2;
+        int field = 3;
+        long utime = 0;
+        long stime = 0;
+        while (pos < len && field <= 15) {
+            int end = pos;
+            while (end < len && readBuffer[end] != ' ') {
+                end++;
+            }
+            if (field == 14) {
+                utime = parseLong(pos, end);
+            } else if (field == 15) {
+                stime = parseLong(pos, end);
+            }
+            field++;
+            pos = end + 1;
+        }
+        procValues[0] = (utime + stime) * (1_000_000_000L / CLOCK_TICKS_PER_SECOND);
+        len = readFile(dir + "status");
+        if (len > 0) {
+            procValues[1] = findValue(len, "VmRSS:") * 1024;
+            procValues[2] = findValue(len, "Threads:");
+        }
+        len = readFile(dir + "io");
+        if (len > 0) {
+            procValues[3] = findValue(len, "read_bytes:");
+            procValues[4] = findValue(len, "write_bytes:");
+        }
+        return true;
+    }
+
+    private int readFile(String path) {
+        try (InputStream in = new FileInputStream(path)) {
+            int total = 0;
+            int n;
+            while (total < readBuffer.length && (n = in.read(readBuffer, total, readBuffer.length - total)) > 0) {
+                total += n;
+            }
+            return total;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private int lastIndexOf(int len, byte b) {
+        for (int i = len - 1; i >= 0; i--) {
+            if (readBuffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 在 "Key:   123 kB" 形式的行中取数值，找不到返回 0。 */
+    private long findValue(int len, String key) {
+        int k = key.length();
+        outer:
+        for (int i = 0; i + k <= len; i++) {
+            if (i > 0 && readBuffer[i - 1] != '\n') {
+                continue;
+            }
+            for (int j = 0; j < k; j++) {
+                if (readBuffer[i + j] != key.charAt(j)) {
+                    continue outer;
+                }
+            }
+            int start = i + k;
+            while (start < len && (readBuffer[start] == ' ' || readBuffer[start] == '\t')) {
+                start++;
+            }
+            int end = start;
+            while (end < len && readBuffer[end] >= '0' && readBuffer[end] <= '9') {
+                end++;
+            }
+            return parseLong(start, end);
+        }
+        return 0;
+    }
+
+    private long parseLong(int start, int end) {
+        long v = 0;
+        for (int i = start; i < end; i++) {
+            byte c = readBuffer[i];
+            if (c < '0' || c > '9') {
+                break;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /** 最近的采样数。 */
+    synchronized int size() {
+        return (int) Math.min(written, CAPACITY);
+    }
+
+    /**
+     * 把最近 max 个合计采样（从旧到新）复制到调用方提供的数组，返回复制的个数。
+     * 任一数组可为 null。
+     */
+    synchronized int snapshot(int max, long[] outTimes, double[] outCpu, long[] outRss, int[] outThreads,
+                              long[] outRead, long[] outWrite) {
+        int n = (int) Math.min(Math.min(written, CAPACITY), max);
+        long first = written - n;
+        for (int i = 0; i < n; i++) {
+            int slot = (int) ((first + i) % CAPACITY);
+            if (outTimes != null) {
+                outTimes[i] = times[slot];
+            }
+            if (outCpu != null) {
+                outCpu[i] = cpuPercent[slot];
+            }
+            if (outRss != null) {
+                outRss[i] = rssBytes[slot];
+            }
+            if (outThreads != null) {
+                outThreads[i] = threadCounts[slot];
+            }
+            if (outRead != null) {
+                outRead[i] = readBytes[slot];
+            }
+            if (outWrite != null) {
+                outWrite[i] = writeBytes[slot];
+            }
+        }
+        return n;
+    }
+
+    /** 某个实例进程树的最新 RSS（字节），未采到或系统不支持时为 -1。 */
+    long latestRss(ServiceInstance instance) {
+        ServicePool current = pool;
+        int i = current != null ? current.getInstances().indexOf(instance) : -1;
+        synchronized (this) {
+            return i >= 0 && i < instanceRss.length ? instanceRss[i] : -1;
+        }
+    }
+
+    /** 以 Prometheus 文本格式（0.0.4）写出各实例的最新值。 */
+    void writePrometheus(StringBuilder out) {
+        ServicePool current = pool;
+        List<ServiceInstance> instances = current != null ? current.getInstances() : List.of();
+        long[] cpu;
+        long[] rss;
+        int[] threads;
+        int[] processes;
+        long[] read;
+        long[] write;
+        double lastCpuPercent;
+        synchronized (this) {
+            cpu = instanceCpuNanos.clone();
+            rss = instanceRss.clone();
+            threads = instanceThreads.clone();
+            processes = instanceProcesses.clone();
+            read = instanceRead.clone();
+            write = instanceWrite.clone();
+            lastCpuPercent = written > 0 ? cpuPercent[(int) ((written - 1) % CAPACITY)] : 0;
+        }
+        int n = Math.min(instances.size(), cpu.length);
+        header(out, "jarstarter_service_up", "gauge", "1 if the instance is ready");
+        for (int i = 0; i < instances.size(); i++) {
+            ServiceInstance inst = instances.get(i);
+            line(out, "jarstarter_service_up", inst, inst.getState() == ServiceHealthMonitor.State.READY ? 1 : 0);
+        }
+        header(out, "jarstarter_service_processes", "gauge", "Processes in the instance process tree");
+        for (int i = 0; i < n; i++) {
+            line(out, "jarstarter_service_processes", instances.get(i), processes[i]);
+        }
+        header(out, "jarstarter_service_cpu_seconds_total", "counter", "CPU time of the instance process tree");
+        for (int i = 0; i < n; i++) {
+            line(out, "jarstarter_service_cpu_seconds_total", instances.get(i), cpu[i] / 1e9);
+        }
+        if (PROC_FS) {
+            header(out, "jarstarter_service_resident_memory_bytes", "gauge", "Resident set size of the instance process tree");
+            for (int i = 0; i < n; i++) {
+                line(out, "jarstarter_service_resident_memory_bytes", instances.get(i), rss[i]);
+            }
+            header(out, "jarstarter_service_threads", "gauge", "Threads in the instance process tree");
+            for (int i = 0; i < n; i++) {
+                line(out, "jarstarter_service_threads", instances.get(i), threads[i]);
+            }
+            header(out, "jarstarter_service_io_read_bytes_total", "counter", "Bytes read from storage");
+            for (int i = 0; i < n; i++) {
+                line(out, "jarstarter_service_io_read_bytes_total", instances.get(i), read[i]);
+            }
+            header(out, "jarstarter_service_io_write_bytes_total", "counter", "Bytes written to storage");
+            for (int i = 0; i < n; i++) {
+                line(out, "jarstarter_service_io_write_bytes_total", instances.get(i), write[i]);
+            }
+        }
+        header(out, "jarstarter_service_restarts_total", "counter", "Restarts scheduled by the supervisor");
+        for (ServiceInstance inst : instances) {
+            line(out, "jarstarter_service_restarts_total", inst, current.getRestarts(inst.getIndex()));
+        }
+        header(out, "jarstarter_service_time_to_ready_seconds", "gauge", "Launch to first ready for the current process");
+        for (ServiceInstance inst : instances) {
+            long ms = inst.getMonitor().getTimeToReadyMs();
+            if (ms >= 0) {
+                line(out, "jarstarter_service_time_to_ready_seconds", inst, ms / 1000.0);
+            }
+        }
+        header(out, "jarstarter_service_cpu_utilization_percent", "gauge", "CPU of all instances as a share of all cores");
+        out.append("jarstarter_service_cpu_utilization_percent ").append(lastCpuPercent).append('\n');
+        TcpFrontProxy proxy = current != null ? current.getProxy() : null;
+        if (proxy != null) {
+            header(out, "jarstarter_proxy_connections_accepted_total", "counter", "Connections accepted by the front proxy");
+            out.append("jarstarter_proxy_connections_accepted_total ").append(proxy.getAcceptedCount()).append('\n');
+            header(out, "jarstarter_proxy_connections_dropped_total", "counter", "Connections refused for lack of a backend");
+            out.append("jarstarter_proxy_connections_dropped_total ").append(proxy.getDroppedCount()).append('\n');
+            header(out, "jarstarter_proxy_active_connections", "gauge", "Open connections per backend");
+            for (TcpFrontProxy.Backend b : proxy.getBackends()) {
+                out.append("jarstarter_proxy_active_connections{backend=\"").append(b.name).append("\"} ")
+                        .append(b.active.get()).append('\n');
+            }
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void line(StringBuilder out, String name, ServiceInstance inst, double value) {
+        out.append(name).append("{instance=\"").append(inst.getIndex()).append("\",port=\"").append(inst.getPort())
+                .append("\"} ").append(value).append('\n');
+    }
+
+    private static void line(StringBuilder out, String name, ServiceInstance inst, long value) {
+        out.append(name).append("{instance=\"").append(inst.getIndex()).append("\",port=\"").append(inst.getPort())
+                .append("\"} ").append(value).append('\n');
+    }
+}
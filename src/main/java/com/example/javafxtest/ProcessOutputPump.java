@@ -0,0 +1,233 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 子进程输出泵。
+ * <p>
+ * 用可复用的字节缓冲区读取子进程 stdout，按字节状态机剥离 ANSI 转义序列并切分行，
+ * 每次 read 得到的完整行作为一批非阻塞地交给日志写入器。写入器跟不上时丢弃并计数，
+ * 从而保证子进程不会因为管道写满而阻塞。设置了 {@link OutputRing} 时，每行在交给写入器之前先写入环形缓冲区，
+ * 写入器丢弃的行在那里仍然保留。
+ */
+final class ProcessOutputPump implements Runnable {
+
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_LINES = 256;
+    private static final long STATS_INTERVAL_NANOS = 10_000_000_000L;
+
+    // ANSI 解析状态
+    private static final int NORMAL = 0;
+    private static final int ESCAPE = 1;
+    private static final int CSI = 2;
+    private static final int STRING = 3;
+    private static final int STRING_ESCAPE = 4;
+
+    private final InputStream in;
+    private final AsyncLogWriter sink;
+    private final String linePrefix;
+    private final Charset charset;
+
+    private final byte[] readBuffer = new byte[READ_BUFFER_BYTES];
+    private byte[] lineBuffer = new byte[1024];
+    private int lineLength;
+    private int state = NORMAL;
+    private final String[] batch = new String[MAX_BATCH_LINES];
+    private int batchCount;
+
+    private volatile long totalLines;
+    private volatile long droppedLines;
+    private long windowLines;
+    private long windowStart;
+    private long firstOutputSince = -1;
+    private OutputRing ring;
+
+    ProcessOutputPump(InputStream in, AsyncLogWriter sink, String linePrefix) {
+        this(in, sink, linePrefix, StandardCharsets.UTF_8);
+    }
+
+    ProcessOutputPump(InputStream in, AsyncLogWriter sink, String linePrefix, Charset charset) {
+        this.in = in;
+        this.sink = sink;
+        this.linePrefix = linePrefix;
+        this.charset = charset;
+    }
+
+    Thread start(String threadName) {
+        Thread t = new Thread(this, threadName);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /** 收到第一批输出时记录一个从 since（nanoTime）开始的 service.firstOutput 区间。 */
+    void traceFirstOutputSince(long since) {
+        firstOutputSince = since;
+    }
+
+    /** 每行同时写入 ring；须在 {@link #start(String)} 之前调用。 */
+    void recordTo(OutputRing ring) {
+        this.ring = ring;
+    }
+
+    long getTotalLines() {
+        return totalLines;
+    }
+
+    long getDroppedLines() {
+        return droppedLines;
+    }
+
+    @Override
+    public void run() {
+        windowStart = System.nanoTime();
+        try (InputStream stream = in) {
+            int n;
+            while ((n = stream.read(readBuffer)) != -1) {
+                if (ring != null) {
+                    ring.setTime(System.currentTimeMillis());
+                }
+                process(readBuffer, 0, n);
+                flushBatch();
+                reportStatsIfDue(false);
+            }
+            if (lineLength > 0) {
+                emitLine();
+                flushBatch();
+            }
+        } catch (IOException e) {
+            sink.log("Error reading JAR output: " + e.getMessage());
+        }
+        reportStatsIfDue(true);
+    }
+
+    /**
+     * 处理一段原始字节：剥离转义序列，遇到换行时产出一行。
+     * 换行在任何状态下都结束当前行并回到 NORMAL，截断或未终止的序列（例如缺少 BEL 的 OSC）不会吞掉后面的行。
+     */
+    void process(byte[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            int b = buf[i] & 0xFF;
+            if (b == '\n') {
+                state = NORMAL;
+                emitLine();
+                continue;
+            }
+            switch (state) {
+                case NORMAL:
+                    if (b == 0x1B) {
+                        state = ESCAPE;
+                    } else if (b != '\r') {
+                        appendByte(b);
+                    }
+                    break;
+                case ESCAPE:
+                    if (b == '[') {
+                        state = CSI;
+                    } else if (b == ']' || b == 'P' || b == 'X' || b == '^' || b == '_') {
+                        // OSC / DCS / SOS / PM / APC，以 BEL 或 ESC \ 结束
+                        state = STRING;
+                    } else if (b >= 0x20 && b <= 0x2F) {
+                        // 中间字节，继续等待终止字节
+                        state = ESCAPE;
+                    } else {
+                        state = NORMAL;
+                    }
+                    break;
+                case CSI:
+                    if (b >= 0x40 && b <= 0x7E) {
+                        state = NORMAL;
+                    }
+                    break;
+                case STRING:
+                    if (b == 0x07) {
+                        state = NORMAL;
+                    } else if (b == 0x1B) {
+                        state = STRING_ESCAPE;
+                    }
+                    break;
+                case STRING_ESCAPE:
+                    state = b == '\\' ? NORMAL : STRING;
+                    break;
+                default:
+                    state = NORMAL;
+            }
+        }
+    }
+
+    private void appendByte(int b) {
+        if (lineLength == lineBuffer.length) {
+            if (lineLength >= MAX_LINE_BYTES) {
+                // 超长行强制切分，避免缓冲区无限增长；UTF-8 时不切断多字节字符，未完成的字符留到下一段
+                int split = charset.equals(StandardCharsets.UTF_8) ? utf8Boundary() : lineLength;
+                int rest = lineLength - split;
+                lineLength = split;
+                emitLine();
+                System.arraycopy(lineBuffer, split, lineBuffer, 0, rest);
+                lineLength = rest;
+            } else {
+                lineBuffer = Arrays.copyOf(lineBuffer, Math.min(lineBuffer.length * 2, MAX_LINE_BYTES));
+            }
+        }
+        lineBuffer[lineLength++] = (byte) b;
+    }
+
+    /** 缓冲区末尾若是不完整的 UTF-8 序列，返回其首字节位置，否则返回 lineLength。 */
+    private int utf8Boundary() {
+        int i = lineLength - 1;
+        while (i > 0 && lineLength - i < 4 && (lineBuffer[i] & 0xC0) == 0x80) {
+            i--;
+        }
+        int lead = lineBuffer[i] & 0xFF;
+        int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return i > 0 && lineLength - i < expected ? i : lineLength;
+    }
+
+    private void emitLine() {
+        if (ring != null) {
+            ring.append(lineBuffer, 0, lineLength);
+        }
+        batch[batchCount++] = new String(lineBuffer, 0, lineLength, charset);
+        lineLength = 0;
+        if (batchCount == MAX_BATCH_LINES) {
+            flushBatch();
+        }
+    }
+
+    private void flushBatch() {
+        if (batchCount == 0) {
+            return;
+        }
+        if (totalLines == 0 && firstOutputSince >= 0) {
+            Trace.span("service.firstOutput", firstOutputSince, System.nanoTime());
+        }
+        if (!sink.offerLines(linePrefix, batch, batchCount)) {
+            droppedLines += batchCount;
+        }
+        totalLines += batchCount;
+        windowLines += batchCount;
+        Arrays.fill(batch, 0, batchCount, null);
+        batchCount = 0;
+    }
+
+    private void reportStatsIfDue(boolean finished) {
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (!finished && elapsed < STATS_INTERVAL_NANOS) {
+            return;
+        }
+        if (windowLines > 0 || finished) {
+            double perSecond = elapsed > 0 ? windowLines * 1_000_000_000.0 / elapsed : 0;
+            sink.log(String.format("JAR output stats: %.0f lines/s, %d lines total, %d dropped%s",
+                    perSecond, totalLines, droppedLines, finished ? " (stream closed)" : ""));
+        }
+        windowLines = 0;
+        windowStart = now;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.javafxtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 分阶段终止一个服务进程及其子孙进程，全程不阻塞调用线程。
+ * <ol>
+ *     <li>GRACEFUL：向进程发送正常终止信号（Unix 上为 SIGTERM），最多等待 graceMs；</li>
+ *     <li>FORCED：仍未退出时 destroyForcibly，最多再等 forceTimeoutMs；</li>
+ *     <li>DESCENDANTS：强制结束仍存活的子孙进程（在发信号前记录的快照，父进程退出后它们不再挂在其下）。</li>
+ * </ol>
+ * 每个阶段开始时通知 {@link Listener}，结束后在 {@link Report} 中给出各阶段耗时。
+ * {@link #forceNow()} 跳过剩余的等待直接强制结束；取消返回的 future 则放弃后续阶段。
+ * Windows 不支持正常终止，destroy 本身即强制结束，GRACEFUL 阶段通常立即完成。
+ */
+final class ProcessTerminator {
+
+    enum Phase {
+        GRACEFUL, FORCED, DESCENDANTS, DONE
+    }
+
+    interface Listener {
+        void onPhase(Phase phase, long pid, long elapsedMs);
+    }
+
+    /** 一次终止的结果与各阶段耗时。 */
+    static final class Report {
+        final long pid;
+        final long gracefulMs;
+        final long forcedMs;
+        final long descendantsMs;
+        final long totalMs;
+        /** 进程在宽限期内没有退出，被强制结束。 */
+        final boolean forced;
+        final int descendantsKilled;
+        /** 强制结束后仍未确认退出的进程数。 */
+        final int survivors;
+
+        Report(long pid, long gracefulMs, long forcedMs, long descendantsMs, long totalMs, boolean forced,
+               int descendantsKilled, int survivors) {
+            this.pid = pid;
+            this.gracefulMs = gracefulMs;
+            this.forcedMs = forcedMs;
+            this.descendantsMs = descendantsMs;
+            this.totalMs = totalMs;
+            this.forced = forced;
+            this.descendantsKilled = descendantsKilled;
+            this.survivors = survivors;
+        }
+
+        @Override
+        public String toString() {
+            return "Stopped pid " + pid + " in " + totalMs + " ms (graceful " + gracefulMs + " ms"
+                    + (forced ? ", forced " + forcedMs + " ms" : "")
+                    + ", " + descendantsKilled + " descendants killed in " + descendantsMs + " ms"
+                    + (survivors > 0 ? ", " + survivors + " still alive" : "") + ")";
+        }
+    }
+
+    private final Process process;
+    private final long graceMs;
+    private final long forceTimeoutMs;
+    private final AsyncLogWriter log;
+    private final CompletableFuture<Report> result = new CompletableFuture<>();
+    private volatile CompletableFuture<Boolean> graceWait;
+    private volatile Listener listener;
+    private long startNanos;
+    private long phaseNanos;
+
+    ProcessTerminator(Process process, long graceMs, long forceTimeoutMs, AsyncLogWriter log) {
+        this.process = process;
+        this.graceMs = graceMs;
+        this.forceTimeoutMs = forceTimeoutMs;
+        this.log = log;
+    }
+
+    /** 开始终止，返回在全部阶段结束后完成的 future。只能调用一次。 */
+    CompletableFuture<Report> terminate(Listener listener) {
+        this.listener = listener;
+        startNanos = System.nanoTime();
+        phaseNanos = startNanos;
+        // 先记下子孙进程：父进程退出后它们会被过继，再也查不到
+        List<ProcessHandle> tree = process.descendants().collect(Collectors.toList());
+        phase(Phase.GRACEFUL);
+        process.destroy();
+        CompletableFuture<Boolean> wait = process.onExit().thenApply(p -> true)
+                .completeOnTimeout(false, graceMs, TimeUnit.MILLISECONDS);
+        graceWait = wait;
+        wait.thenCompose(exited -> {
+            long gracefulMs = lap();
+            if (exited || result.isDone()) {
+                return CompletableFuture.completedFuture(new long[]{gracefulMs, 0, 0});
+            }
+            phase(Phase.FORCED);
+            process.destroyForcibly();
+            return process.onExit().thenApply(p -> true)
+                    .completeOnTimeout(false, forceTimeoutMs, TimeUnit.MILLISECONDS)
+                    .thenApply(ignored -> new long[]{gracefulMs, lap(), 1});
+        }).thenCompose(timings -> {
+            if (result.isDone()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            phase(Phase.DESCENDANTS);
+            List<ProcessHandle> alive = new ArrayList<>();
+            for (ProcessHandle h : tree) {
+                if (h.isAlive()) {
+                    alive.add(h);
+                }
+            }
+            process.descendants().filter(h -> !tree.contains(h)).forEach(alive::add);
+            List<CompletableFuture<ProcessHandle>> exits = new ArrayList<>();
+            for (ProcessHandle h : alive) {
+                h.destroyForcibly();
+                exits.add(h.onExit());
+            }
+            return CompletableFuture.allOf(exits.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(v -> true)
+                    .completeOnTimeout(false, forceTimeoutMs, TimeUnit.MILLISECONDS)
+                    .thenAccept(ignored -> finish(timings, alive));
+        }).exceptionally(e -> {
+            result.completeExceptionally(e);
+            return null;
+        });
+        return result;
+    }
+
+    /** 不再等待宽限期，立即进入强制结束阶段。 */
+    void forceNow() {
+        CompletableFuture<Boolean> wait = graceWait;
+        if (wait != null && wait.complete(false)) {
+            log.log("Grace period for pid " + process.pid() + " cut short");
+        }
+    }
+
+    private void finish(long[] timings, List<ProcessHandle> killed) {
+        int survivors = process.isAlive() ? 1 : 0;
+        for (ProcessHandle h : killed) {
+            if (h.isAlive()) {
+                survivors++;
+            }
+        }
+        Report report = new Report(process.pid(), timings[0], timings[1], lap(),
+                (System.nanoTime() - startNanos) / 1_000_000, timings[2] != 0, killed.size(), survivors);
+        log.log(report.toString());
+        phase(Phase.DONE);
+        result.complete(report);
+    }
+
+    private void phase(Phase phase) {
+        Listener l = listener;
+        if (l != null) {
+            l.onPhase(phase, process.pid(), (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    /** 距上一阶段结束的毫秒数。 */
+    private synchronized long lap() {
+        long now = System.nanoTime();
+        long ms = (now - phaseNanos) / 1_000_000;
+        phaseNanos = now;
+        return ms;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务的“黑匣子”：为每个实例保留一个堆外的输出环形缓冲区（{@link OutputRing}），
+ * 在服务崩溃或卡死时自动写出带时间戳的诊断包到 ~/AppData/Local/JarStarter/diagnostics。
+ * <ul>
+ *     <li>卡死：健康探测进入 UNRESPONSIVE 后 recorder.hangAfterMs 内仍未恢复且进程存活。此时用服务所用 JDK 的 jcmd
+ *     （找不到时用启动器自身运行时的）抓取若干次 Thread.print 与一次 GC.class_histogram；</li>
+ *     <li>崩溃：进程以非 0 退出码退出（守护进程安排重启或放弃时），稍等输出泵读完最后的输出后写出。</li>
+ * </ul>
+ * 诊断包包含事件说明、输出缓冲、线程转储、类直方图、启动器指标以及 {@link DiagnosticsExporter} 的追踪时间线与配置；
+ * 同一实例两次之间至少间隔 recorder.minIntervalMs，最多保留 recorder.maxBundles 个，避免崩溃循环写满磁盘。
+ * 所有抓取都在独立线程上进行，不阻塞健康探测与守护线程。
+ */
+final class ServiceFlightRecorder implements Closeable {
+
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+    /** 崩溃后等待输出泵读完管道中剩余输出的时间。 */
+    private static final long CRASH_SETTLE_MS = 500;
+
+    private final AsyncLogWriter log;
+    private final Path dir;
+    private final Path jcmd;
+    private final int bufferBytes;
+    private final long hangAfterMs;
+    private final int threadDumps;
+    private final long threadDumpIntervalMs;
+    private final boolean heapHistogram;
+    private final long toolTimeoutMs;
+    private final long minIntervalMs;
+    private final int maxBundles;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<ServiceInstance, ScheduledFuture<?>> hangChecks = new ConcurrentHashMap<>();
+    private final Map<ServiceInstance, Long> lastBundleAt = new ConcurrentHashMap<>();
+    private volatile ProcessMetricsSampler metrics;
+
+    ServiceFlightRecorder(AsyncLogWriter log, Path dir, Path jcmd, int bufferBytes, long hangAfterMs, int threadDumps,
+                          long threadDumpIntervalMs, boolean heapHistogram, long toolTimeoutMs, long minIntervalMs,
+                          int maxBundles) {
+        this.log = log;
+        this.dir = dir;
+        this.jcmd = jcmd;
+        this.bufferBytes = bufferBytes;
+        this.hangAfterMs = hangAfterMs;
+        this.threadDumps = threadDumps;
+        this.threadDumpIntervalMs = threadDumpIntervalMs;
+        this.heapHistogram = heapHistogram;
+        this.toolTimeoutMs = toolTimeoutMs;
+        this.minIntervalMs = minIntervalMs;
+        this.maxBundles = maxBundles;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "flight-recorder");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /** recorder.enabled=false 时返回 null。 */
+    static ServiceFlightRecorder fromConfig(LauncherConfig config, String javaPath, AsyncLogWriter log) {
+        if (!config.getBoolean("recorder.enabled", true)) {
+            return null;
+        }
+        Path jcmd = findJcmd(javaPath);
+        if (jcmd == null) {
+            log.log("jcmd not found next to " + javaPath + " or in the launcher runtime; hang bundles will have no thread dumps");
+        }
+        return new ServiceFlightRecorder(log, new File(LauncherConfig.dataDir(), "diagnostics").toPath(), jcmd,
+                (int) Math.min(Integer.MAX_VALUE, Math.max(64, config.getLong("recorder.bufferKb", 4096)) * 1024),
+                config.getLong("recorder.hangAfterMs", 15000),
+                config.getInt("recorder.threadDumps", 2),
+                config.getLong("recorder.threadDumpIntervalMs", 2000),
+                config.getBoolean("recorder.heapHistogram", true),
+                config.getLong("recorder.toolTimeoutMs", 20000),
+                config.getLong("recorder.minIntervalMs", 60000),
+                config.getInt("recorder.maxBundles", 10));
+    }
+
+    /** 服务所用 JDK 的 jcmd；精简运行时不带 jcmd 时退回启动器自身运行时的。 */
+    static Path findJcmd(String javaPath) {
+        boolean windows = javaPath.toLowerCase(Locale.ROOT).endsWith(".exe");
+        File bin = new File(javaPath).getAbsoluteFile().getParentFile();
+        if (bin != null) {
+            Path p = new File(bin, windows ? "jcmd.exe" : "jcmd").toPath();
+            if (Files.isExecutable(p)) {
+                return p;
+            }
+        }
+        File ownBin = new File(System.getProperty("java.home"), "bin");
+        for (String name : new String[]{"jcmd.exe", "jcmd"}) {
+            Path p = new File(ownBin, name).toPath();
+            if (Files.isExecutable(p)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /** 为一个实例创建输出缓冲。 */
+    OutputRing newRing() {
+        return new OutputRing(bufferBytes);
+    }
+
+    /** 诊断包中附带该采样器的当前指标。 */
+    void setMetrics(ProcessMetricsSampler sampler) {
+        this.metrics = sampler;
+    }
+
+    /** 健康状态变化：进入 UNRESPONSIVE 时开始计时，恢复或退出时取消。 */
+    void onTransition(ServiceInstance instance, ServiceHealthMonitor.Transition t) {
+        if (t.to == ServiceHealthMonitor.State.UNRESPONSIVE) {
+            Process p = instance.getProcess();
+            if (p == null) {
+                return;
+            }
+            ScheduledFuture<?> check = executor.schedule(() -> checkHang(instance, p, t),
+                    hangAfterMs, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> previous = hangChecks.put(instance, check);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        } else {
+            ScheduledFuture<?> pending = hangChecks.remove(instance);
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    /** 进程异常退出。 */
+    void onCrash(ServiceInstance instance, ServiceSupervisor.CrashRecord crash) {
+        if (crash.exitCode == 0) {
+            return;
+        }
+        executor.schedule(() -> capture(instance, null, "crash", "Process exited with " + crash),
+                CRASH_SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkHang(ServiceInstance instance, Process p, ServiceHealthMonitor.Transition t) {
+        hangChecks.remove(instance);
+        if (instance.getState() != ServiceHealthMonitor.State.UNRESPONSIVE || instance.getProcess() != p
+                || !p.isAlive()) {
+            return;
+        }
+        capture(instance, p, "hang", "Process " + p.pid() + " alive but unresponsive for "
+                + (System.currentTimeMillis() - t.timeMillis) + " ms (" + t.detail + ")");
+    }
+
+    private void capture(ServiceInstance instance, Process process, String kind, String reason) {
+        long now = System.currentTimeMillis();
+        Long last = lastBundleAt.get(instance);
+        if (last != null && now - last < minIntervalMs) {
+            log.log("Skipped " + kind + " diagnostics for " + instance + ": previous bundle " + (now - last) + " ms ago");
+            return;
+        }
+        lastBundleAt.put(instance, now);
+        long t0 = Trace.begin();
+        log.log("Capturing " + kind + " diagnostics for " + instance + ": " + reason);
+
+        DiagnosticsExporter exporter = new DiagnosticsExporter().includeLogs(false);
+        StringBuilder event = new StringBuilder(512);
+        event.append("kind: ").append(kind).append('\n')
+                .append("time: ").append(Instant.ofEpochMilli(now)).append('\n')
+                .append("instance: ").append(instance).append('\n')
+                .append("state: ").append(instance.getState()).append('\n')
+                .append("reason: ").append(reason).append('\n');
+        if (process != null) {
+            event.append("pid: ").append(process.pid()).append('\n');
+        }
+        event.append("java: ").append(instance.getLauncher().getJavaPath()).append('\n')
+                .append("jcmd: ").append(jcmd != null ? jcmd : "not found").append('\n');
+
+        if (process != null && jcmd != null) {
+            for (int i = 1; i <= threadDumps && process.isAlive(); i++) {
+                if (i > 1) {
+                    try {
+                        Thread.sleep(threadDumpIntervalMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                byte[] dump = runJcmd(process, "Thread.print", "-l");
+                if (dump != null) {
+                    exporter.addEntry("thread-dump-" + i + ".txt", dump);
+                }
+            }
+            if (heapHistogram && process.isAlive()) {
+                byte[] histogram = runJcmd(process, "GC.class_histogram");
+                if (histogram != null) {
+                    exporter.addEntry("class-histogram.txt", histogram);
+                }
+            }
+        }
+        OutputRing ring = instance.getLauncher().getOutputRing();
+        if (ring != null) {
+            exporter.addEntry("service-output.log", ring.snapshot());
+            event.append("output: last ").append(Math.min(ring.getWrittenBytes(), ring.getCapacity()))
+                    .append(" of ").append(ring.getWrittenBytes()).append(" bytes\n");
+        }
+        ProcessMetricsSampler sampler = metrics;
+        if (sampler != null) {
+            StringBuilder prom = new StringBuilder(4096);
+            sampler.writePrometheus(prom);
+            exporter.addEntry("metrics.prom", prom.toString());
+        }
+        exporter.addEntry("event.txt", event.toString());
+
+        Path zip = dir.resolve(kind + "-instance-" + instance.getIndex() + "-" + FILE_TIME.format(Instant.ofEpochMilli(now))
+                + ".zip");
+        try {
+            exporter.export(zip);
+            prune();
+        } catch (IOException e) {
+            log.log("Failed to write " + kind + " diagnostics: " + e.getMessage());
+        }
+        Trace.end("recorder." + kind, t0);
+    }
+
+    /** 运行一次 jcmd，输出先落到临时文件，超时强制结束，避免卡死的目标进程拖住本线程。 */
+    private byte[] runJcmd(Process target, String... command) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(jcmd.toString());
+        cmd.add(Long.toString(target.pid()));
+        cmd.addAll(List.of(command));
+        long start = System.nanoTime();
+        Path out = null;
+        try {
+            out = Files.createTempFile("jarstarter-jcmd", ".txt");
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(out.toFile()).start();
+            if (!p.waitFor(toolTimeoutMs, TimeUnit.MILLISECONDS)) {
+                p.destroyForcibly();
+                log.log("jcmd " + command[0] + " timed out after " + toolTimeoutMs + " ms");
+                return null;
+            }
+            byte[] data = Files.readAllBytes(out);
+            if (p.exitValue() != 0) {
+                log.log("jcmd " + command[0] + " failed (exit " + p.exitValue() + ")");
+            }
+            log.log("jcmd " + command[0] + " took " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                    + data.length + " bytes");
+            return data;
+        } catch (IOException e) {
+            log.log("jcmd " + command[0] + " failed: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (out != null) {
+                try {
+                    Files.deleteIfExists(out);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /** 只保留最新的 maxBundles 个诊断包。 */
+    private void prune() throws IOException {
+        List<Path> bundles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "{crash,hang}-*.zip")) {
+            for (Path p : stream) {
+                bundles.add(p);
+            }
+        }
+        if (bundles.size() <= maxBundles) {
+            return;
+        }
+        bundles.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+        for (Path p : bundles.subList(0, bundles.size() - maxBundles)) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    /** 不再检测卡死；已安排的崩溃抓取仍会完成（进程退出后服务池往往随即关闭）。 */
+    @Override
+    public void close() {
+        for (ScheduledFuture<?> check : hangChecks.values()) {
+            check.cancel(false);
+        }
+        hangChecks.clear();
+        executor.shutdown();
+    }
+
+    /** 等待进行中的抓取写完，启动器退出前调用。 */
+    boolean awaitTermination(long timeoutMs) {
+        try {
+            return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务健康监视器。
+ * <p>
+ * 进程退出通过 {@link Process#onExit()} 立即得知；端口可用性由一个 NIO Selector 线程做非阻塞探测：
+ * 启动阶段快速轮询，就绪后逐步退避，出现失败时恢复快速轮询。可选地对配置的路径发 HTTP GET，
+ * 返回 2xx/3xx 才算就绪。状态变化以带时间戳的 {@link Transition} 发布给监听器，
+ * 并记录每次启动到就绪的耗时。
+ * <p>
+ * 状态在持有本对象锁时更新并按顺序排入队列，监听器在释放锁之后才被调用（同一时刻只有一个线程投递，
+ * 其他线程发现有人在投递时直接返回），监听器可以放心地调用持有自己锁的对象（例如 {@link ServiceSupervisor}）。
+ */
+final class ServiceHealthMonitor implements Closeable {
+
+    enum State {
+        STARTING, READY, UNRESPONSIVE, EXITED, STOPPED
+    }
+
+    static final class Transition {
+        final State from;
+        final State to;
+        final long timeMillis;
+        final long sinceLaunchMs;
+        final String detail;
+        /** 发生变化时被监视进程的 pid，未监视进程时为 -1。 */
+        final long pid;
+
+        Transition(State from, State to, long timeMillis, long sinceLaunchMs, String detail, long pid) {
+            this.from = from;
+            this.to = to;
+            this.timeMillis = timeMillis;
+            this.sinceLaunchMs = sinceLaunchMs;
+            this.detail = detail;
+            this.pid = pid;
+        }
+
+        @Override
+        public String toString() {
+            return from + " -> " + to + " at +" + sinceLaunchMs + " ms" + (detail == null ? "" : " (" + detail + ")");
+        }
+    }
+
+    interface Listener {
+        void onTransition(Transition transition);
+    }
+
+    private static final String[] TRACE_NAMES = {
+            "health.starting", "health.ready", "health.unresponsive", "health.exited", "health.stopped"
+    };
+
+    private final String host;
+    private final int port;
+    private final String httpPath;
+    private final long probeTimeoutMs;
+    private final long fastIntervalMs;
+    private final long stableIntervalMs;
+    private final long maxIntervalMs;
+    private final int failureThreshold;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<Transition> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    private volatile State state = State.STOPPED;
+    private volatile Process process;
+    private volatile long launchNanos;
+    private volatile long timeToReadyMs = -1;
+    private volatile boolean probing;
+    private volatile int generation;
+    private volatile boolean running;
+    private Thread loopThread;
+    private Selector selector;
+
+    // 以下字段只由探测线程访问
+    private Probe probe;
+    private long nextProbeAt;
+    private long currentIntervalMs;
+    private int consecutiveFailures;
+
+    private final class Probe {
+        final SocketChannel channel;
+        final long deadline;
+        final ByteBuffer request;
+        final ByteBuffer response = ByteBuffer.allocate(256);
+
+        Probe(SocketChannel channel, long deadline) {
+            this.channel = channel;
+            this.deadline = deadline;
+            this.request = httpPath == null ? null : ByteBuffer.wrap(("GET " + httpPath + " HTTP/1.1\r\nHost: " + host
+                    + ":" + port + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    ServiceHealthMonitor(String host, int port, String httpPath, long probeTimeoutMs, long fastIntervalMs,
+                         long stableIntervalMs, long maxIntervalMs, int failureThreshold) {
+        this.host = host;
+        this.port = port;
+        this.httpPath = httpPath;
+        this.probeTimeoutMs = probeTimeoutMs;
+        this.fastIntervalMs = fastIntervalMs;
+        this.stableIntervalMs = stableIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.failureThreshold = failureThreshold;
+    }
+
+    static ServiceHealthMonitor fromConfig(LauncherConfig config, int port) {
+        return new ServiceHealthMonitor(
+                config.getString("health.host", "127.0.0.1"),
+                port,
+                config.getString("health.http.path", null),
+                config.getLong("health.timeoutMs", 800),
+                config.getLong("health.fastIntervalMs", 100),
+                config.getLong("health.stableIntervalMs", 500),
+                config.getLong("health.maxIntervalMs", 5000),
+                config.getInt("health.failureThreshold", 2));
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    State getState() {
+        return state;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    /** 最近一次启动到首次就绪的毫秒数，尚未就绪时为 -1。 */
+    long getTimeToReadyMs() {
+        return timeToReadyMs;
+    }
+
+    /** 开始监视一个刚启动的进程。 */
+    void watch(Process p) throws IOException {
+        synchronized (this) {
+            ensureLoop();
+            process = p;
+            launchNanos = System.nanoTime();
+            timeToReadyMs = -1;
+            transition(State.STARTING, "pid " + p.pid());
+            generation++;
+            probing = true;
+            selector.wakeup();
+        }
+        deliverPending();
+        p.onExit().thenAccept(exited -> onExit(exited));
+    }
+
+    /** 用户主动停止：不再探测。 */
+    void stop() {
+        synchronized (this) {
+            probing = false;
+            process = null;
+            transition(State.STOPPED, null);
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+        deliverPending();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        probing = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (loopThread != null) {
+            try {
+                loopThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void onExit(Process exited) {
+        synchronized (this) {
+            if (exited != process) {
+                return;
+            }
+            probing = false;
+            transition(State.EXITED, "exit code " + exited.exitValue());
+            selector.wakeup();
+        }
+        deliverPending();
+    }
+
+    /** 更新状态并把变化排入队列；调用方持有本对象锁，释放后调用 {@link #deliverPending()}。 */
+    private void transition(State to, String detail) {
+        State from = state;
+        if (from == to) {
+            return;
+        }
+        state = to;
+        long sinceLaunch = (System.nanoTime() - launchNanos) / 1_000_000;
+        if (to == State.READY && timeToReadyMs < 0) {
+            timeToReadyMs = sinceLaunch;
+            Trace.span("service.timeToReady", launchNanos, System.nanoTime());
+            detail = (detail == null ? "" : detail + ", ") + "time to ready " + sinceLaunch + " ms";
+        }
+        Trace.instant(TRACE_NAMES[to.ordinal()], detail);
+        Process p = process;
+        Transition t = new Transition(from, to, System.currentTimeMillis(), sinceLaunch, detail, p != null ? p.pid() : -1);
+        AsyncLogWriter.launcherLog().log("Service port " + port + " state " + t);
+        pending.add(t);
+    }
+
+    /** 不持有本对象锁时按顺序通知监听器；已有线程在投递时由它负责投递新排入的变化。 */
+    private void deliverPending() {
+        while (!pending.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                Transition t;
+                while ((t = pending.poll()) != null) {
+                    for (Listener l : listeners) {
+                        try {
+                            l.onTransition(t);
+                        } catch (RuntimeException e) {
+                            AsyncLogWriter.launcherLog().log("Health listener failed: " + e);
+                        }
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+        }
+    }
+
+    private void ensureLoop() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        running = true;
+        loopThread = new Thread(this::runLoop, "health-monitor-" + port);
+        loopThread.setDaemon(true);
+        loopThread.start();
+    }
+
+    private void runLoop() {
+        int seenGeneration = -1;
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (!probing) {
+                    cancelProbe();
+                    seenGeneration = -1;
+                    selector.select();
+                    continue;
+                }
+                if (seenGeneration != generation) {
+                    // 新一轮监视：立即探测，快速间隔
+                    seenGeneration = generation;
+                    cancelProbe();
+                    consecutiveFailures = 0;
+                    currentIntervalMs = fastIntervalMs;
+                    nextProbeAt = now;
+                }
+                if (probe == null && now >= nextProbeAt) {
+                    startProbe(now);
+                }
+                long wakeAt = probe != null ? Math.min(probe.deadline, nextProbeAt) : nextProbeAt;
+                long waitMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeAt - System.nanoTime()));
+                selector.select(waitMs);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid() && probe != null && key.channel() == probe.channel) {
+                        handleReady(key);
+                    }
+                }
+                if (probe != null && System.nanoTime() >= probe.deadline) {
+                    completeProbe(false, "timeout after " + probeTimeoutMs + " ms");
+                }
+            }
+        } catch (IOException e) {
+            AsyncLogWriter.launcherLog().log("Health monitor loop failed: " + e.getMessage());
+        } finally {
+            cancelProbe();
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private void startProbe(long now) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            probe = new Probe(channel, now + TimeUnit.MILLISECONDS.toNanos(probeTimeoutMs));
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                onConnected(channel.register(selector, 0));
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException e) {
+            completeProbe(false, e.getMessage());
+        }
+    }
+
+    private void handleReady(SelectionKey key) {
+        SocketChannel channel = probe.channel;
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                onConnected(key);
+            } else if (key.isWritable()) {
+                channel.write(probe.request);
+                if (!probe.request.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (key.isReadable()) {
+                int n = channel.read(probe.response);
+                String head = new String(probe.response.array(), 0, probe.response.position(), StandardCharsets.US_ASCII);
+                int eol = head.indexOf("\r\n");
+                if (eol > 0) {
+                    // HTTP/1.1 200 OK
+                    String[] parts = head.substring(0, eol).split(" ");
+                    int code = parts.length > 1 ? parseCode(parts[1]) : -1;
+                    completeProbe(code >= 200 && code < 400, "HTTP " + code);
+                } else if (n < 0 || !probe.response.hasRemaining()) {
+                    completeProbe(false, "no HTTP status line");
+                }
+            }
+        } catch (IOException e) {
+            completeProbe(false, e.getMessage());
+        }
+    }
+
+    private void onConnected(SelectionKey key) {
+        if (probe.request == null) {
+            completeProbe(true, null);
+        } else {
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void completeProbe(boolean ok, String detail) {
+        cancelProbe();
+        synchronized (this) {
+            if (!probing) {
+                return;
+            }
+            updateAfterProbe(ok, detail);
+        }
+        deliverPending();
+        nextProbeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(currentIntervalMs);
+    }
+
+    private void updateAfterProbe(boolean ok, String detail) {
+        State current = state;
+        if (ok) {
+            consecutiveFailures = 0;
+            if (current == State.STARTING || current == State.UNRESPONSIVE) {
+                transition(State.READY, detail);
+                currentIntervalMs = stableIntervalMs;
+            } else {
+                // 稳定运行，逐步退避
+                currentIntervalMs = Math.min(maxIntervalMs, Math.max(stableIntervalMs, currentIntervalMs * 2));
+            }
+        } else {
+            consecutiveFailures++;
+            if (current == State.READY && consecutiveFailures >= failureThreshold) {
+                transition(State.UNRESPONSIVE, detail);
+            }
+            currentIntervalMs = current == State.STARTING ? fastIntervalMs : Math.max(fastIntervalMs, stableIntervalMs / 2);
+        }
+    }
+
+    private void cancelProbe() {
+        if (probe != null) {
+            try {
+                probe.channel.close();
+            } catch (IOException ignore) {
+            }
+            probe = null;
+        }
+    }
+
+    private static int parseCode(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 服务的一个运行实例：独立的端口、工作目录、输出日志、健康监视与守护。
+ */
+final class ServiceInstance {
+
+    private final int index;
+    private final int port;
+    private final ServiceLauncher launcher;
+    private final AsyncLogWriter outputLog;
+    private final ServiceHealthMonitor monitor;
+    private final ServiceSupervisor supervisor;
+    private volatile TcpFrontProxy.Backend backend;
+
+    ServiceInstance(int index, int port, ServiceLauncher launcher, AsyncLogWriter outputLog,
+                    ServiceHealthMonitor monitor, ServiceSupervisor.Listener supervisorListener, LauncherConfig config) {
+        this.index = index;
+        this.port = port;
+        this.launcher = launcher;
+        this.outputLog = outputLog;
+        this.monitor = monitor;
+        this.supervisor = ServiceSupervisor.fromConfig(config, launcher, monitor, supervisorListener,
+                AsyncLogWriter.launcherLog());
+        monitor.addListener(t -> {
+            TcpFrontProxy.Backend b = backend;
+            if (b != null) {
+                b.healthy = t.to == ServiceHealthMonitor.State.READY;
+            }
+        });
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    File getWorkingDir() {
+        return launcher.getWorkingDir();
+    }
+
+    ServiceLauncher getLauncher() {
+        return launcher;
+    }
+
+    AsyncLogWriter getOutputLog() {
+        return outputLog;
+    }
+
+    ServiceHealthMonitor getMonitor() {
+        return monitor;
+    }
+
+    ServiceSupervisor getSupervisor() {
+        return supervisor;
+    }
+
+    ServiceHealthMonitor.State getState() {
+        return monitor.getState();
+    }
+
+    Process getProcess() {
+        return supervisor.getProcess();
+    }
+
+    TcpFrontProxy.Backend getBackend() {
+        return backend;
+    }
+
+    void setBackend(TcpFrontProxy.Backend backend) {
+        this.backend = backend;
+        if (backend != null) {
+            backend.healthy = monitor.getState() == ServiceHealthMonitor.State.READY;
+        }
+    }
+
+    boolean isActive() {
+        Process p = supervisor.getProcess();
+        return (p != null && p.isAlive()) || supervisor.isRestartPending();
+    }
+
+    Process start() throws IOException {
+        return supervisor.start();
+    }
+
+    /** 主动停止守护并返回当前进程，由调用方负责终止。 */
+    Process stop() {
+        return supervisor.stop();
+    }
+
+    void close() {
+        monitor.close();
+    }
+
+    @Override
+    public String toString() {
+        return "instance-" + index + "@" + port;
+    }
+}
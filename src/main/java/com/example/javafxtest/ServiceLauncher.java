@@ -0,0 +1,136 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 负责拼装命令行并启动一次服务 JAR 进程，同时挂上输出泵。
+ * 不关心进程之后的生命周期，由 {@link ServiceSupervisor} 管理。
+ */
+final class ServiceLauncher {
+
+    private final String javaPath;
+    private final File jar;
+    private final File workingDir;
+    private final AsyncLogWriter log;
+    private final List<String> appArgs;
+    private final String outputPrefix;
+    private volatile CdsArchive cds;
+    private volatile OutputRing outputRing;
+    private volatile List<String> jvmOptions = List.of();
+    private volatile List<String> lastCommand;
+
+    ServiceLauncher(String javaPath, File jar, File workingDir, AsyncLogWriter log) {
+        this(javaPath, jar, workingDir, log, List.of(), "JAR output: ");
+    }
+
+    /**
+     * @param appArgs      追加在 JAR 之后的程序参数（例如多实例模式下的 --server.port=12124）
+     * @param outputPrefix 子进程输出写入日志时的行前缀
+     */
+    ServiceLauncher(String javaPath, File jar, File workingDir, AsyncLogWriter log, List<String> appArgs,
+                    String outputPrefix) {
+        this.javaPath = javaPath;
+        this.jar = jar;
+        this.workingDir = workingDir;
+        this.log = log;
+        this.appArgs = appArgs;
+        this.outputPrefix = outputPrefix;
+    }
+
+    /** 设置后每次启动按归档状态附加 CDS 训练或使用参数。 */
+    void setCdsArchive(CdsArchive cds) {
+        this.cds = cds;
+    }
+
+    /** 每次启动都附加的 JVM 参数（{@link JvmTuning} 按配置计算），放在 CDS 参数之前。 */
+    void setJvmOptions(List<String> options) {
+        this.jvmOptions = List.copyOf(options);
+    }
+
+    /** 最近一次启动所用的完整命令行，尚未启动过时为 null。 */
+    List<String> getLastCommand() {
+        return lastCommand;
+    }
+
+    /** 设置后每次启动的输出同时写入该环形缓冲区（跨重启保留）。 */
+    void setOutputRing(OutputRing ring) {
+        this.outputRing = ring;
+    }
+
+    OutputRing getOutputRing() {
+        return outputRing;
+    }
+
+    String getJavaPath() {
+        return javaPath;
+    }
+
+    File getJar() {
+        return jar;
+    }
+
+    File getWorkingDir() {
+        return workingDir;
+    }
+
+    List<String> buildCommand() {
+        return buildCommand(List.of());
+    }
+
+    List<String> buildCommand(List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(javaPath);
+        command.addAll(jvmOptions);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-Dspring.output.ansi.enabled=never");
+        command.add("-jar");
+        command.add(jar.getAbsolutePath());
+        command.addAll(appArgs);
+        return command;
+    }
+
+    Process launch() throws IOException {
+        if (!workingDir.exists()) {
+            workingDir.mkdirs();
+            log.log("Created writable working directory: " + workingDir.getAbsolutePath());
+        }
+        log.log("Setting JAR working directory to: " + workingDir.getAbsolutePath());
+
+        CdsArchive.Launch cdsLaunch = cds != null ? cds.nextLaunch() : null;
+        List<String> options = new ArrayList<>(jvmOptions);
+        if (cdsLaunch != null) {
+            options.addAll(cdsLaunch.options);
+        }
+        List<String> command = buildCommand(options);
+        lastCommand = command;
+        log.log("Launch command: " + String.join(" ", command));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workingDir);
+        pb.redirectErrorStream(true);
+        // Disable ANSI colors via environment variables as an extra safeguard
+        pb.environment().put("SPRING_OUTPUT_ANSI_ENABLED", "never");
+        pb.environment().put("NO_COLOR", "1");
+        pb.environment().put("CLICOLOR", "0");
+        pb.environment().put("ANSICON", "");
+        long spawnStart = Trace.begin();
+        Process process = pb.start();
+        Trace.end("service.spawn", spawnStart);
+        if (cdsLaunch != null) {
+            cdsLaunch.started(process);
+        }
+        log.log("JAR process started successfully with PID: " + process.pid() + " (with -Dfile.encoding=UTF-8)");
+
+        ProcessOutputPump pump = new ProcessOutputPump(process.getInputStream(), log, outputPrefix);
+        pump.traceFirstOutputSince(spawnStart);
+        OutputRing ring = outputRing;
+        if (ring != null) {
+            ring.mark("process " + process.pid() + " started");
+            pump.recordTo(ring);
+        }
+        pump.start("jar-output-pump-" + process.pid());
+        return process;
+    }
+}
@@ -0,0 +1,540 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一组服务实例。
+ * <p>
+ * 每个实例的端口都通过 instance.portArg（默认 --server.port={port}）传入，探测与监听的始终是同一个端口。
+ * 只有一个实例时服务自己监听公共端口（旧行为）。多实例（或显式设置 proxy.enabled=true）时由 {@link TcpFrontProxy}
+ * 监听公共端口，实例在 basePort + i 上运行，转发器只把连接分配给健康实例；
+ * 停止实例前先排空其连接。多实例时每个实例有独立的工作目录与输出日志。
+ * <p>
+ * {@link #rollingRestart()} 逐个实例做蓝绿切换：在备用端口 basePort + N + i 上启动新进程，
+ * 健康探测通过后加入转发器，再排空并停止旧进程，期间公共端口始终可用。单实例要不停机地滚动重启，
+ * 须显式设置 proxy.enabled=true（服务须接受 --server.port），否则只能先停后启。
+ */
+final class ServicePool {
+
+    interface Listener {
+        /** 任一实例的健康状态发生变化。 */
+        void onPoolStateChanged(ServicePool pool);
+
+        void onRestartScheduled(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, long delayMs);
+
+        void onGaveUp(ServiceInstance instance, ServiceSupervisor.CrashRecord crash, String reason);
+    }
+
+    /** 一次滚动重启的结果。 */
+    static final class RolloutReport {
+        final boolean success;
+        final int replaced;
+        final long totalMs;
+        /** 各实例从新进程就绪到旧进程排空完成的最长耗时。 */
+        final long maxSwitchoverMs;
+        /** 转发器因没有可用后端而拒绝的连接数。 */
+        final long droppedConnections;
+        /** 排空超时后被强制断开的连接数。 */
+        final long forcedConnections;
+        /** 不经转发器时公共端口关闭的时长，经转发器时为 0。 */
+        final long downtimeMs;
+        final String failure;
+
+        RolloutReport(boolean success, int replaced, long totalMs, long maxSwitchoverMs, long droppedConnections,
+                      long forcedConnections, long downtimeMs, String failure) {
+            this.success = success;
+            this.replaced = replaced;
+            this.totalMs = totalMs;
+            this.maxSwitchoverMs = maxSwitchoverMs;
+            this.droppedConnections = droppedConnections;
+            this.forcedConnections = forcedConnections;
+            this.downtimeMs = downtimeMs;
+            this.failure = failure;
+        }
+
+        @Override
+        public String toString() {
+            return (success ? "Rolling restart finished" : "Rolling restart aborted: " + failure)
+                    + " (" + replaced + " replaced, total " + totalMs + " ms, switchover " + maxSwitchoverMs
+                    + " ms, downtime " + downtimeMs + " ms, dropped " + droppedConnections
+                    + ", forced " + forcedConnections + ")";
+        }
+    }
+
+    private final List<ServiceInstance> instances = new CopyOnWriteArrayList<>();
+    private final List<AsyncLogWriter> ownedLogs = new ArrayList<>();
+    /** 按实例序号累计的重启次数，滚动重启替换实例后继续累加。 */
+    private final AtomicLong[] restarts;
+    private final TcpFrontProxy proxy;
+    private volatile Listener listener;
+    private final AsyncLogWriter log;
+    private final LauncherConfig config;
+    private final String javaPath;
+    private final File jar;
+    private final File workingDir;
+    private final int publicPort;
+    private final int count;
+    private final int basePort;
+    private final String portArg;
+    private final long drainTimeoutMs;
+    private final long readyTimeoutMs;
+    private final long stopGraceMs;
+    private final long stopForceTimeoutMs;
+    private final List<ProcessTerminator> terminators = new CopyOnWriteArrayList<>();
+    private volatile boolean forceStopRequested;
+    private final AtomicBoolean rolling = new AtomicBoolean();
+    private final CdsArchive cds;
+    private final ServiceFlightRecorder recorder;
+    private final JvmTuning tuning;
+    private final LaunchHistory history;
+
+    private ServicePool(LauncherConfig config, String javaPath, File jar, File workingDir, int publicPort,
+                        Listener listener) {
+        this.config = config;
+        this.javaPath = javaPath;
+        this.jar = jar;
+        this.workingDir = workingDir;
+        this.publicPort = publicPort;
+        this.listener = listener;
+        this.log = AsyncLogWriter.launcherLog();
+        this.count = Math.max(1, config.getInt("instances", 1));
+        this.proxy = config.getBoolean("proxy.enabled", count > 1) || count > 1
+                ? new TcpFrontProxy(config.getString("proxy.bindHost", "0.0.0.0"), publicPort, log)
+                : null;
+        this.basePort = config.getInt("instance.basePort", publicPort + 1);
+        this.portArg = config.getString("instance.portArg", "--server.port={port}");
+        this.drainTimeoutMs = config.getLong("proxy.drainTimeoutMs", 10000);
+        this.readyTimeoutMs = config.getLong("rollout.readyTimeoutMs", 120000);
+        this.stopGraceMs = config.getLong("stop.graceMs", 10000);
+        this.stopForceTimeoutMs = config.getLong("stop.forceTimeoutMs", 5000);
+        this.cds = CdsArchive.fromConfig(config, javaPath, jar, log);
+        this.recorder = ServiceFlightRecorder.fromConfig(config, javaPath, log);
+        this.tuning = JvmTuning.fromConfig(config, javaPath, count, log);
+        this.history = LaunchHistory.fromConfig(config, tuning, log);
+        this.restarts = new AtomicLong[count];
+        for (int i = 0; i < count; i++) {
+            restarts[i] = new AtomicLong();
+            AsyncLogWriter outputLog = log;
+            if (count > 1) {
+                outputLog = new AsyncLogWriter(new File(instanceDir(i), "service.log").toPath(), "[LOG] ",
+                        AsyncLogWriter.OverflowPolicy.DROP, 20L * 1024 * 1024, 5);
+                ownedLogs.add(outputLog);
+            }
+            instances.add(createInstance(i, proxy != null ? basePort + i : publicPort, outputLog));
+        }
+    }
+
+    static ServicePool fromConfig(LauncherConfig config, String javaPath, File jar, File workingDir, int publicPort,
+                                  Listener listener) {
+        return new ServicePool(config, javaPath, jar, workingDir, publicPort, listener);
+    }
+
+    private File instanceDir(int index) {
+        return count > 1 ? new File(workingDir, "instance-" + index) : workingDir;
+    }
+
+    private ServiceInstance createInstance(int index, int port, AsyncLogWriter outputLog) {
+        List<String> args = List.of(portArg.replace("{port}", Integer.toString(port)));
+        ServiceLauncher launcher = new ServiceLauncher(javaPath, jar, instanceDir(index), outputLog, args, "JAR output: ");
+        launcher.setCdsArchive(cds);
+        launcher.setJvmOptions(tuning.getOptions());
+        if (recorder != null) {
+            launcher.setOutputRing(recorder.newRing());
+        }
+        ServiceHealthMonitor monitor = ServiceHealthMonitor.fromConfig(config, port);
+        ServiceInstance[] holder = new ServiceInstance[1];
+        ServiceSupervisor.Listener supervisorListener = new ServiceSupervisor.Listener() {
+            @Override
+            public void onStarted(Process process) {
+                if (history != null) {
+                    history.onStarted(holder[0], process);
+                }
+            }
+
+            @Override
+            public void onRestartScheduled(ServiceSupervisor.CrashRecord crash, long delayMs) {
+                restarts[index].incrementAndGet();
+                if (recorder != null) {
+                    recorder.onCrash(holder[0], crash);
+                }
+                Listener l = listener;
+                if (l != null) {
+                    l.onRestartScheduled(holder[0], crash, delayMs);
+                }
+            }
+
+            @Override
+            public void onGaveUp(ServiceSupervisor.CrashRecord crash, String reason) {
+                if (recorder != null) {
+                    recorder.onCrash(holder[0], crash);
+                }
+                Listener l = listener;
+                if (l != null) {
+                    l.onGaveUp(holder[0], crash, reason);
+                }
+            }
+        };
+        ServiceInstance instance = new ServiceInstance(index, port, launcher, outputLog, monitor, supervisorListener, config);
+        holder[0] = instance;
+        monitor.addListener(t -> {
+            if (cds != null && t.to == ServiceHealthMonitor.State.READY && t.from == ServiceHealthMonitor.State.STARTING) {
+                cds.onReady(instance.getProcess(), t.sinceLaunchMs);
+            }
+            if (recorder != null) {
+                recorder.onTransition(instance, t);
+            }
+            if (history != null && t.to == ServiceHealthMonitor.State.READY) {
+                history.onReady(instance, t);
+            }
+            fireStateChanged();
+        });
+        return instance;
+    }
+
+    /** 更换监听器（例如预启动的服务池由界面接管时）。 */
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    private void fireStateChanged() {
+        Listener l = listener;
+        if (l != null) {
+            l.onPoolStateChanged(this);
+        }
+    }
+
+    List<ServiceInstance> getInstances() {
+        return instances;
+    }
+
+    /** 该序号的实例被守护进程重启的总次数（单调递增）。 */
+    long getRestarts(int index) {
+        return restarts[index].get();
+    }
+
+    /** 诊断包与启动记录中附带该采样器的数据。 */
+    void setMetrics(ProcessMetricsSampler sampler) {
+        if (recorder != null) {
+            recorder.setMetrics(sampler);
+        }
+        if (history != null) {
+            history.setMetrics(sampler);
+        }
+    }
+
+    /** 本服务池所用的 JVM 调优配置。 */
+    JvmTuning getTuning() {
+        return tuning;
+    }
+
+    /** 崩溃与卡死诊断；recorder.enabled=false 时为 null。 */
+    ServiceFlightRecorder getRecorder() {
+        return recorder;
+    }
+
+    TcpFrontProxy getProxy() {
+        return proxy;
+    }
+
+    int getPublicPort() {
+        return publicPort;
+    }
+
+    int size() {
+        return instances.size();
+    }
+
+    int readyCount() {
+        int n = 0;
+        for (ServiceInstance i : instances) {
+            if (i.getState() == ServiceHealthMonitor.State.READY) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    boolean isRunning() {
+        for (ServiceInstance i : instances) {
+            if (i.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isRestartPending() {
+        for (ServiceInstance i : instances) {
+            if (i.getSupervisor().isRestartPending()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isRollingRestart() {
+        return rolling.get();
+    }
+
+    /** 汇总状态：有任一实例就绪即为 READY，否则取最"活跃"的状态。 */
+    ServiceHealthMonitor.State aggregateState() {
+        ServiceHealthMonitor.State best = ServiceHealthMonitor.State.STOPPED;
+        for (ServiceInstance i : instances) {
+            ServiceHealthMonitor.State s = i.getState();
+            if (rank(s) > rank(best)) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    private static int rank(ServiceHealthMonitor.State s) {
+        switch (s) {
+            case READY:
+                return 4;
+            case STARTING:
+                return 3;
+            case UNRESPONSIVE:
+                return 2;
+            case EXITED:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    void start() throws IOException {
+        forceStopRequested = false;
+        if (proxy != null) {
+            proxy.start();
+            for (ServiceInstance i : instances) {
+                attach(i);
+            }
+        }
+        for (ServiceInstance i : instances) {
+            i.start();
+        }
+        log.log("Started " + instances.size() + " service instance(s)"
+                + (proxy != null ? " behind front proxy on port " + publicPort : ""));
+    }
+
+    private void attach(ServiceInstance instance) {
+        if (instance.getBackend() == null) {
+            instance.setBackend(proxy.addBackend("instance-" + instance.getIndex() + "-" + instance.getPort(),
+                    "127.0.0.1", instance.getPort()));
+        }
+    }
+
+    /** 排空并停止全部实例，返回在所有进程退出后完成的 future。 */
+    CompletableFuture<Void> stopAsync() {
+        return stopAsync(null);
+    }
+
+    /** 同 {@link #stopAsync()}，progress 接收各进程终止阶段的进度（在后台线程上调用）。 */
+    CompletableFuture<Void> stopAsync(ProcessTerminator.Listener progress) {
+        List<CompletableFuture<?>> exits = new ArrayList<>();
+        for (ServiceInstance i : instances) {
+            exits.add(stopInstance(i, progress));
+        }
+        return CompletableFuture.allOf(exits.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((r, e) -> {
+                    if (e != null) {
+                        log.log("Error while stopping instances: " + e.getMessage());
+                    }
+                    if (proxy != null) {
+                        proxy.close();
+                    }
+                });
+    }
+
+    /** 正在停止（或仍在排空、尚未开始终止）的进程不再等待宽限期，立即强制结束（连同子孙进程）。 */
+    void forceStop() {
+        forceStopRequested = true;
+        for (ProcessTerminator t : terminators) {
+            t.forceNow();
+        }
+    }
+
+    CompletableFuture<Integer> stopInstance(ServiceInstance instance) {
+        return stopInstance(instance, null);
+    }
+
+    /**
+     * 先从前置转发器排空连接（有超时），再停止守护并由 {@link ProcessTerminator} 分阶段终止进程树。
+     * future 的值是排空超时时仍未结束、随进程一起被断开的连接数。
+     */
+    CompletableFuture<Integer> stopInstance(ServiceInstance instance, ProcessTerminator.Listener progress) {
+        CompletableFuture<Integer> drained = CompletableFuture.completedFuture(0);
+        TcpFrontProxy.Backend b = instance.getBackend();
+        if (proxy != null && b != null && b.active.get() > 0) {
+            log.log("Draining " + instance + " (" + b.active.get() + " active connections)");
+            drained = proxy.drain(b).thenApply(ignored -> 0)
+                    .orTimeout(drainTimeoutMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        int left = b.active.get();
+                        if (e instanceof TimeoutException) {
+                            log.log("Drain of " + instance + " timed out with " + left + " connections left");
+                        }
+                        return left;
+                    });
+        } else if (b != null) {
+            b.draining = true;
+        }
+        return drained.thenCompose(forced -> {
+            Process p = instance.stop();
+            if (p == null || !p.isAlive()) {
+                return CompletableFuture.completedFuture(forced);
+            }
+            ProcessTerminator terminator = new ProcessTerminator(p, stopGraceMs, stopForceTimeoutMs, log);
+            terminators.add(terminator);
+            CompletableFuture<ProcessTerminator.Report> done = terminator.terminate(progress);
+            if (forceStopRequested) {
+                terminator.forceNow();
+            }
+            return done.whenComplete((report, e) -> terminators.remove(terminator))
+                    .thenApply(report -> forced);
+        }).whenComplete((r, e) -> {
+            if (b != null) {
+                b.draining = false;
+            }
+        });
+    }
+
+    /**
+     * 逐个实例蓝绿替换。没有前置转发器时只能先停后启，报告中记录端口关闭的时长。
+     * 已有滚动重启在进行时返回 null。
+     */
+    CompletableFuture<RolloutReport> rollingRestart() {
+        if (!rolling.compareAndSet(false, true)) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        long droppedBefore = proxy != null ? proxy.getDroppedCount() : 0;
+        long[] stats = new long[3]; // replaced, maxSwitchoverMs, forced
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        if (proxy == null) {
+            long[] downtime = new long[1];
+            chain = chain.thenCompose(ignored -> restartInPlace(instances.get(0), downtime))
+                    .thenRun(() -> stats[0] = 1);
+            return finishRollout(chain, startNanos, droppedBefore, stats, downtime);
+        }
+        for (int i = 0; i < instances.size(); i++) {
+            int index = i;
+            chain = chain.thenCompose(ignored -> replace(index, stats));
+        }
+        return finishRollout(chain, startNanos, droppedBefore, stats, new long[1]);
+    }
+
+    private CompletableFuture<RolloutReport> finishRollout(CompletableFuture<Void> chain, long startNanos,
+                                                           long droppedBefore, long[] stats, long[] downtime) {
+        return chain.handle((r, e) -> {
+            long totalMs = (System.nanoTime() - startNanos) / 1_000_000;
+            long dropped = proxy != null ? proxy.getDroppedCount() - droppedBefore : 0;
+            Throwable cause = e != null && e.getCause() != null ? e.getCause() : e;
+            RolloutReport report = new RolloutReport(e == null, (int) stats[0], totalMs, stats[1], dropped, stats[2],
+                    downtime[0], cause == null ? null : String.valueOf(cause.getMessage()));
+            log.log(report.toString());
+            Trace.span("rollout", startNanos, System.nanoTime());
+            rolling.set(false);
+            fireStateChanged();
+            return report;
+        });
+    }
+
+    /** 在备用端口启动替身，就绪后切换流量并停止旧实例；替身未能就绪时保留旧实例。 */
+    private CompletableFuture<Void> replace(int index, long[] stats) {
+        ServiceInstance old = instances.get(index);
+        int standbyPort = old.getPort() == basePort + index ? basePort + count + index : basePort + index;
+        ServiceInstance green = createInstance(index, standbyPort, old.getOutputLog());
+        log.log("Rolling restart: starting " + green + " to replace " + old);
+        CompletableFuture<Void> ready = awaitReady(green);
+        try {
+            green.start();
+        } catch (IOException e) {
+            green.close();
+            return CompletableFuture.failedFuture(e);
+        }
+        return ready.handle((r, e) -> {
+            if (e == null) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            // 新进程没能就绪：撤掉它，旧实例继续服务
+            Process p = green.stop();
+            if (p != null && p.isAlive()) {
+                new ProcessTerminator(p, stopGraceMs, stopForceTimeoutMs, log).terminate(null);
+            }
+            green.close();
+            return CompletableFuture.<Void>failedFuture(e);
+        }).thenCompose(f -> f).thenCompose(ignored -> {
+            long switchStart = System.nanoTime();
+            attach(green);
+            instances.set(index, green);
+            return stopInstance(old).thenAccept(forced -> {
+                proxy.removeBackend(old.getBackend());
+                old.close();
+                long switchMs = (System.nanoTime() - switchStart) / 1_000_000;
+                stats[0]++;
+                stats[1] = Math.max(stats[1], switchMs);
+                stats[2] += forced;
+                log.log("Rolling restart: " + green + " took over from " + old + " in " + switchMs + " ms");
+            });
+        });
+    }
+
+    private CompletableFuture<Void> restartInPlace(ServiceInstance instance, long[] downtime) {
+        log.log("Rolling restart without front proxy: the service port is closed until the new process is ready"
+                + " (set proxy.enabled=true for a zero-downtime restart of a single instance)");
+        long closedAt = System.nanoTime();
+        return stopInstance(instance).thenCompose(forced -> {
+            CompletableFuture<Void> ready = awaitReady(instance);
+            try {
+                instance.start();
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return ready;
+        }).thenRun(() -> downtime[0] = (System.nanoTime() - closedAt) / 1_000_000);
+    }
+
+    /** 在实例首次就绪时完成；进程先退出或超时则失败。 */
+    private CompletableFuture<Void> awaitReady(ServiceInstance instance) {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        ServiceHealthMonitor.Listener l = t -> {
+            if (t.to == ServiceHealthMonitor.State.READY) {
+                ready.complete(null);
+            } else if (t.to == ServiceHealthMonitor.State.EXITED || t.to == ServiceHealthMonitor.State.STOPPED) {
+                ready.completeExceptionally(new IOException(instance + " did not become ready: " + t));
+            }
+        };
+        instance.getMonitor().addListener(l);
+        return ready.orTimeout(readyTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> instance.getMonitor().removeListener(l));
+    }
+
+    void close() {
+        for (ServiceInstance i : instances) {
+            i.close();
+        }
+        if (proxy != null) {
+            proxy.close();
+        }
+        if (recorder != null) {
+            recorder.close();
+        }
+        if (history != null) {
+            history.close();
+        }
+        for (AsyncLogWriter w : ownedLogs) {
+            w.close();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.javafxtest;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务进程守护。
+ * <p>
+ * 通过 {@link Process#onExit()} 得知进程退出（不为每个进程占用阻塞线程），按重启策略决定是否重启；
+ * 重启延迟按指数退避并加随机抖动，在时间窗口内超过最大重启次数后放弃。每次崩溃记录退出码与运行时长，
+ * 重启后服务再次就绪时记录恢复耗时。
+ */
+final class ServiceSupervisor {
+
+    enum RestartPolicy {
+        ALWAYS, ON_FAILURE, NEVER;
+
+        static RestartPolicy parse(String value, RestartPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    static final class CrashRecord {
+        final long timeMillis;
+        final int exitCode;
+        final long uptimeMs;
+
+        CrashRecord(long timeMillis, int exitCode, long uptimeMs) {
+            this.timeMillis = timeMillis;
+            this.exitCode = exitCode;
+            this.uptimeMs = uptimeMs;
+        }
+
+        @Override
+        public String toString() {
+            return "exit code " + exitCode + " after " + uptimeMs + " ms uptime";
+        }
+    }
+
+    interface Listener {
+        /** 进程（首次或重启后）已启动。 */
+        void onStarted(Process process);
+
+        /** 进程退出且已安排在 delayMs 毫秒后重启。 */
+        void onRestartScheduled(CrashRecord crash, long delayMs);
+
+        /** 进程退出且不再重启。 */
+        void onGaveUp(CrashRecord crash, String reason);
+    }
+
+    private static final int MAX_CRASH_RECORDS = 100;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "service-supervisor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ServiceLauncher launcher;
+    private final ServiceHealthMonitor monitor;
+    private final Listener listener;
+    private final AsyncLogWriter log;
+    private final RestartPolicy policy;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxRestarts;
+    private final long windowMs;
+    private final long stableAfterMs;
+
+    private final Deque<Long> restartTimes = new ArrayDeque<>();
+    private final List<CrashRecord> crashes = new ArrayList<>();
+    /** 只在持有本对象锁时写入，读取不加锁（健康监视器的监听器会在探测线程上读取）。 */
+    private volatile Process process;
+    private long startedAt;
+    private int consecutiveFailures;
+    private boolean stopping;
+    private ScheduledFuture<?> pendingRestart;
+    private volatile long lastCrashAt;
+
+    ServiceSupervisor(ServiceLauncher launcher, ServiceHealthMonitor monitor, Listener listener, AsyncLogWriter log,
+                      RestartPolicy policy, long initialBackoffMs, long maxBackoffMs, int maxRestarts, long windowMs,
+                      long stableAfterMs) {
+        this.launcher = launcher;
+        this.monitor = monitor;
+        this.listener = listener;
+        this.log = log;
+        this.policy = policy;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxRestarts = maxRestarts;
+        this.windowMs = windowMs;
+        this.stableAfterMs = stableAfterMs;
+        monitor.addListener(this::onHealthTransition);
+    }
+
+    static ServiceSupervisor fromConfig(LauncherConfig config, ServiceLauncher launcher, ServiceHealthMonitor monitor,
+                                        Listener listener, AsyncLogWriter log) {
+        return new ServiceSupervisor(launcher, monitor, listener, log,
+                RestartPolicy.parse(config.getString("supervisor.restartPolicy", null), RestartPolicy.ON_FAILURE),
+                config.getLong("supervisor.backoff.initialMs", 1000),
+                config.getLong("supervisor.backoff.maxMs", 30000),
+                config.getInt("supervisor.maxRestarts", 5),
+                config.getLong("supervisor.windowMs", 10 * 60 * 1000),
+                config.getLong("supervisor.stableAfterMs", 60 * 1000));
+    }
+
+    synchronized Process start() throws IOException {
+        stopping = false;
+        consecutiveFailures = 0;
+        cancelPendingRestart();
+        return launchNow();
+    }
+
+    /** 主动停止：取消待执行的重启，之后的退出不再触发重启。返回当前进程（可能为 null）。 */
+    synchronized Process stop() {
+        stopping = true;
+        cancelPendingRestart();
+        monitor.stop();
+        return process;
+    }
+
+    synchronized boolean isRestartPending() {
+        return pendingRestart != null;
+    }
+
+    Process getProcess() {
+        return process;
+    }
+
+    synchronized List<CrashRecord> getCrashes() {
+        return Collections.unmodifiableList(new ArrayList<>(crashes));
+    }
+
+    ServiceLauncher getLauncher() {
+        return launcher;
+    }
+
+    private Process launchNow() throws IOException {
+        Process p = launcher.launch();
+        process = p;
+        startedAt = System.currentTimeMillis();
+        monitor.watch(p);
+        p.onExit().thenAccept(this::onExit);
+        listener.onStarted(p);
+        return p;
+    }
+
+    /** 监听器回调在离开同步块之后执行，回调里可以安全地查询本实例或其他实例。 */
+    private void onExit(Process exited) {
+        Runnable notify = handleExit(exited);
+        if (notify != null) {
+            notify.run();
+        }
+    }
+
+    private synchronized Runnable handleExit(Process exited) {
+        if (exited != process) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CrashRecord crash = new CrashRecord(now, exited.exitValue(), now - startedAt);
+        log.log("JAR process exited with code: " + crash.exitCode + " (uptime " + crash.uptimeMs + " ms)");
+        if (stopping) {
+            return null;
+        }
+        if (crashes.size() == MAX_CRASH_RECORDS) {
+            crashes.remove(0);
+        }
+        crashes.add(crash);
+        lastCrashAt = now;
+
+        if (policy == RestartPolicy.NEVER || (policy == RestartPolicy.ON_FAILURE && crash.exitCode == 0)) {
+            return giveUp(crash, "restart policy " + policy);
+        }
+        while (!restartTimes.isEmpty() && now - restartTimes.peekFirst() > windowMs) {
+            restartTimes.removeFirst();
+        }
+        if (restartTimes.size() >= maxRestarts) {
+            return giveUp(crash, maxRestarts + " restarts within " + windowMs / 1000 + " s");
+        }
+        if (crash.uptimeMs >= stableAfterMs) {
+            consecutiveFailures = 0;
+        }
+        long delay = backoffDelay(consecutiveFailures++);
+        restartTimes.addLast(now);
+        log.log("Service crashed (" + crash + "), restarting in " + delay + " ms (restart "
+                + restartTimes.size() + "/" + maxRestarts + " in window)");
+        pendingRestart = SCHEDULER.schedule(this::restart, delay, TimeUnit.MILLISECONDS);
+        Trace.instant("supervisor.restartScheduled", "exit code " + crash.exitCode);
+        return () -> listener.onRestartScheduled(crash, delay);
+    }
+
+    private void restart() {
+        Runnable notify;
+        synchronized (this) {
+            pendingRestart = null;
+            if (stopping) {
+                return;
+            }
+            try {
+                launchNow();
+                return;
+            } catch (IOException e) {
+                log.log("Restart failed: " + e.getMessage());
+                notify = giveUp(new CrashRecord(System.currentTimeMillis(), -1, 0), "restart failed: " + e.getMessage());
+            }
+        }
+        notify.run();
+    }
+
+    /** 记录放弃重启，返回在锁外执行的监听器通知。 */
+    private Runnable giveUp(CrashRecord crash, String reason) {
+        log.log("Service will not be restarted: " + reason);
+        Trace.instant("supervisor.gaveUp", reason);
+        return () -> listener.onGaveUp(crash, reason);
+    }
+
+    private long backoffDelay(int attempt) {
+        long base = initialBackoffMs << Math.min(attempt, 20);
+        long capped = Math.min(maxBackoffMs, base);
+        // ±20% 抖动，避免多个实例同时重启
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(0, (long) (capped * jitter));
+    }
+
+    private void cancelPendingRestart() {
+        if (pendingRestart != null) {
+            pendingRestart.cancel(false);
+            pendingRestart = null;
+        }
+    }
+
+    private void onHealthTransition(ServiceHealthMonitor.Transition t) {
+        long crashedAt = lastCrashAt;
+        if (t.to == ServiceHealthMonitor.State.READY && crashedAt > 0) {
+            lastCrashAt = 0;
+            log.log("Service recovered " + (t.timeMillis - crashedAt) + " ms after crash.");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.javafxtest;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+/**
+ * 画在 Canvas 上的小走势图：折线按当前窗口内的最大值缩放，左上角显示标题与最新值。
+ * 负值表示没有数据，不参与绘制。
+ */
+public class Sparkline extends Canvas {
+
+    private static final Font CAPTION_FONT = Font.font(10);
+
+    private Color lineColor = Color.web("#007bff");
+
+    public Sparkline() {
+        this(180, 44);
+    }
+
+    public Sparkline(double width, double height) {
+        super(width, height);
+    }
+
+    public void setLineColor(String color) {
+        this.lineColor = Color.web(color);
+    }
+
+    public String getLineColor() {
+        return lineColor.toString();
+    }
+
+    /** 绘制 values[0..n)（从旧到新），floor 为纵轴最大值的下限（例如 CPU 用 100）。 */
+    void draw(double[] values, int n, double floor, String caption) {
+        GraphicsContext g = getGraphicsContext2D();
+        double w = getWidth();
+        double h = getHeight();
+        g.setFill(Color.web("#f8f9fa"));
+        g.fillRect(0, 0, w, h);
+        double max = floor;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, values[i]);
+        }
+        if (n > 1 && max > 0) {
+            double top = 14;
+            double step = w / (n - 1);
+            g.setStroke(lineColor);
+            g.setLineWidth(1.2);
+            g.beginPath();
+            boolean open = false;
+            for (int i = 0; i < n; i++) {
+                if (values[i] < 0) {
+                    open = false;
+                    continue;
+                }
+                double x = i * step;
+                double y = h - 1 - (h - top - 2) * values[i] / max;
+                if (open) {
+                    g.lineTo(x, y);
+                } else {
+                    g.moveTo(x, y);
+                    open = true;
+                }
+            }
+            g.stroke();
+        }
+        g.setFill(Color.web("#495057"));
+        g.setFont(CAPTION_FONT);
+        g.setTextBaseline(VPos.TOP);
+        g.fillText(caption, 3, 1);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 启动流程的依赖图。
+ * <p>
+ * 由 {@link MainApp#init()} 在界面构建之前启动，各阶段在后台线程并发执行：
+ * 网络信息、内置 JDK、内置 JAR 互不依赖；{@link #launchInputs()} 在 JDK 与 JAR 都完成后可用，
+ * 启动按钮只等它。配置 startup.prelaunch=true 时，服务会在界面构建的同时被启动，
+ * 控制器随后通过 {@link #prelaunchedPool()} 接管。
+ */
+final class StartupPipeline {
+
+    static final int SERVICE_PORT = 12123;
+    static final String JAR_RESOURCE = "/jar/myJar.jar";
+
+    interface ProgressListener {
+        void onProgress(String stage, String message);
+    }
+
+    /** 启动服务所需的输入：JDK 解压失败时 javaPath 回退到系统 Java，jdkError 记录原因。 */
+    static final class LaunchInputs {
+        final String javaPath;
+        final boolean bundledJava;
+        final File jar;
+        final Throwable jdkError;
+
+        LaunchInputs(String javaPath, boolean bundledJava, File jar, Throwable jdkError) {
+            this.javaPath = javaPath;
+            this.bundledJava = bundledJava;
+            this.jar = jar;
+            this.jdkError = jdkError;
+        }
+    }
+
+    private static volatile StartupPipeline instance;
+
+    private final AsyncLogWriter log = AsyncLogWriter.launcherLog();
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<String> network;
+    private final CompletableFuture<String> jdk;
+    private final CompletableFuture<File> jar;
+    private final CompletableFuture<LaunchInputs> launchInputs;
+    private final CompletableFuture<ServicePool> prelaunch;
+
+    private StartupPipeline(LauncherConfig config) {
+        AtomicInteger n = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "startup-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        EmbeddedArtifacts artifacts = new EmbeddedArtifacts(log);
+        network = stage("network", () -> {
+            try {
+                return InetAddress.getLocalHost().getHostAddress();
+            } catch (IOException e) {
+                throw new StageException(e);
+            }
+        });
+        jdk = stage("jdk", () -> {
+            try {
+                return artifacts.prepareJdk();
+            } catch (IOException e) {
+                throw new StageException(e);
+            }
+        });
+        jar = stage("jar", () -> {
+            try {
+                return artifacts.prepareJar(JAR_RESOURCE);
+            } catch (IOException e) {
+                throw new StageException(e);
+            }
+        });
+        // 主机名解析可能阻塞，趁解包时在后台线程上完成，避免首次启动服务时卡住 FX 线程
+        executor.execute(JvmTuning::host);
+        launchInputs = jdk.handle((javaPath, error) -> error)
+                .thenCombine(jar, (jdkError, jarFile) -> {
+                    String javaPath = jdkError == null ? jdk.join() : EmbeddedArtifacts.findJavaExecutable();
+                    return new LaunchInputs(javaPath, jdkError == null, jarFile, unwrap(jdkError));
+                });
+        launchInputs.whenComplete((r, e) -> executor.shutdown());
+        if (config.getBoolean("startup.prelaunch", false)) {
+            prelaunch = launchInputs.thenApply(inputs -> prelaunch(config, inputs));
+        } else {
+            prelaunch = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /** 启动（或返回已启动的）流程。 */
+    static StartupPipeline start() {
+        StartupPipeline p = instance;
+        if (p == null) {
+            synchronized (StartupPipeline.class) {
+                p = instance;
+                if (p == null) {
+                    p = new StartupPipeline(LauncherConfig.get());
+                    instance = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    void addProgressListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    CompletableFuture<String> network() {
+        return network;
+    }
+
+    CompletableFuture<String> jdk() {
+        return jdk;
+    }
+
+    CompletableFuture<File> jar() {
+        return jar;
+    }
+
+    CompletableFuture<LaunchInputs> launchInputs() {
+        return launchInputs;
+    }
+
+    /** 预启动的服务池；未开启预启动或预启动失败时值为 null。 */
+    CompletableFuture<ServicePool> prelaunchedPool() {
+        return prelaunch;
+    }
+
+    static File serviceWorkingDir() {
+        return new File(LauncherConfig.dataDir(), "logs");
+    }
+
+    private <T> CompletableFuture<T> stage(String name, Supplier<T> work) {
+        String traceName = "startup." + name;
+        return CompletableFuture.supplyAsync(() -> {
+            long t0 = Trace.begin();
+            progress(name, "started");
+            try {
+                T result = work.get();
+                Trace.end(traceName, t0);
+                progress(name, "done in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+                return result;
+            } catch (RuntimeException e) {
+                Trace.end(traceName, "failed", t0);
+                progress(name, "failed after " + (System.nanoTime() - t0) / 1_000_000 + " ms: "
+                        + unwrap(e).getMessage());
+                throw e;
+            }
+        }, executor);
+    }
+
+    private void progress(String stage, String message) {
+        log.log("Startup stage " + stage + " " + message + " (+" + (System.nanoTime() - startNanos) / 1_000_000 + " ms)");
+        for (ProgressListener l : listeners) {
+            l.onProgress(stage, message);
+        }
+    }
+
+    private ServicePool prelaunch(LauncherConfig config, LaunchInputs inputs) {
+        if (inputs.jar == null || !inputs.jar.exists()) {
+            log.log("Prelaunch skipped: embedded JAR not available");
+            return null;
+        }
+        ServicePool pool = ServicePool.fromConfig(config, inputs.javaPath, inputs.jar, serviceWorkingDir(),
+                SERVICE_PORT, null);
+        try {
+            pool.start();
+            progress("prelaunch", "service started");
+            return pool;
+        } catch (IOException e) {
+            progress("prelaunch", "failed: " + e.getMessage());
+            pool.close();
+            return null;
+        }
+    }
+
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof StageException || e instanceof CompletionException)
+                && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static final class StageException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StageException(IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.javafxtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内置的 TCP 前置转发器。
+ * <p>
+ * 单个 NIO Selector 线程在公共端口上接受连接，轮询分配到健康且未在排空的后端，
+ * 双向转发字节（带背压：对端写不动时暂停读取）。后端可以被标记为排空，
+ * 不再接收新连接，已有连接全部结束后完成对应的 future。
+ * <p>
+ * 也可以监听 Unix 域套接字（例如把本地控制接口转发到回环 HTTP 端口），套接字文件只对当前用户可读写。
+ */
+final class TcpFrontProxy implements Closeable {
+
+    private static final int BUFFER_BYTES = 16 * 1024;
+
+    static final class Backend {
+        final String name;
+        final InetSocketAddress address;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicLong total = new AtomicLong();
+        volatile boolean healthy;
+        volatile boolean draining;
+        volatile CompletableFuture<Void> drained;
+
+        Backend(String name, InetSocketAddress address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        @Override
+        public String toString() {
+            return name + "@" + address.getPort() + (healthy ? "" : " (down)") + (draining ? " (draining)" : "")
+                    + " active=" + active.get();
+        }
+    }
+
+    private final class Pipe {
+        final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        boolean eof;
+        boolean outputShut;
+    }
+
+    private final class Connection {
+        final SocketChannel client;
+        SocketChannel upstream;
+        SelectionKey clientKey;
+        SelectionKey upstreamKey;
+        Backend backend;
+        boolean connected;
+        boolean counted;
+        int attempts;
+        final Pipe up = new Pipe();
+        final Pipe down = new Pipe();
+
+        Connection(SocketChannel client) {
+            this.client = client;
+        }
+    }
+
+    private final SocketAddress listenAddress;
+    private final int listenPort;
+    private final List<Backend> backends = new CopyOnWriteArrayList<>();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AsyncLogWriter log;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loopThread;
+    private volatile boolean running;
+    private int nextBackend;
+
+    TcpFrontProxy(String bindHost, int listenPort, AsyncLogWriter log) {
+        this(new InetSocketAddress(bindHost, listenPort), log);
+    }
+
+    /** 监听任意地址，包括 {@link UnixDomainSocketAddress}。 */
+    TcpFrontProxy(SocketAddress listenAddress, AsyncLogWriter log) {
+        this.listenAddress = listenAddress;
+        this.listenPort = listenAddress instanceof InetSocketAddress ? ((InetSocketAddress) listenAddress).getPort() : -1;
+        this.log = log;
+    }
+
+    int getListenPort() {
+        return listenPort;
+    }
+
+    long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /** 因没有可用后端或连接后端失败而被关闭的客户端连接数。 */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    List<Backend> getBackends() {
+        return backends;
+    }
+
+    Backend addBackend(String name, String host, int port) {
+        Backend b = new Backend(name, new InetSocketAddress(host, port));
+        backends.add(b);
+        return b;
+    }
+
+    void removeBackend(Backend backend) {
+        backends.remove(backend);
+    }
+
+    /** 停止向该后端分配新连接，返回在已有连接全部结束时完成的 future。 */
+    CompletableFuture<Void> drain(Backend backend) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        backend.drained = f;
+        backend.draining = true;
+        if (backend.active.get() == 0) {
+            f.complete(null);
+        }
+        return f;
+    }
+
+    synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        if (listenAddress instanceof UnixDomainSocketAddress) {
+            // 上次异常退出可能留下套接字文件，不删除就无法绑定
+            Files.deleteIfExists(((UnixDomainSocketAddress) listenAddress).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(listenAddress, 256);
+            try {
+                Files.setPosixFilePermissions(((UnixDomainSocketAddress) listenAddress).getPath(),
+                        PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignore) {
+                // Windows：套接字文件继承所在目录的访问控制
+            }
+        } else {
+            server = ServerSocketChannel.open();
+            server.bind(listenAddress, 256);
+        }
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        loopThread = new Thread(this::runLoop, "tcp-front-proxy-" + (listenPort >= 0 ? listenPort : "unix"));
+        loopThread.setDaemon(true);
+        loopThread.start();
+        log.log("Front proxy listening on " + describe());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            loopThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (listenAddress instanceof UnixDomainSocketAddress) {
+            try {
+                Files.deleteIfExists(((UnixDomainSocketAddress) listenAddress).getPath());
+            } catch (IOException ignore) {
+            }
+        }
+        log.log("Front proxy on " + describe() + " closed: " + accepted.get() + " accepted, "
+                + dropped.get() + " dropped");
+    }
+
+    private String describe() {
+        if (listenAddress instanceof InetSocketAddress) {
+            InetSocketAddress a = (InetSocketAddress) listenAddress;
+            return a.getHostString() + ":" + a.getPort();
+        }
+        return listenAddress.toString();
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select(1000);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection c = (Connection) key.attachment();
+                        if (key.isConnectable()) {
+                            finishConnect(c);
+                        } else {
+                            transfer(c);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.log("Front proxy loop failed: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            accepted.incrementAndGet();
+            client.configureBlocking(false);
+            if (listenPort >= 0) {
+                client.socket().setTcpNoDelay(true);
+            }
+            Connection c = new Connection(client);
+            c.clientKey = client.register(selector, 0, c);
+            connectUpstream(c);
+        }
+    }
+
+    private Backend pickBackend(Backend exclude) {
+        Backend[] snapshot = backends.toArray(new Backend[0]);
+        int n = snapshot.length;
+        for (int i = 0; i < n; i++) {
+            Backend b = snapshot[Math.floorMod(nextBackend++, n)];
+            if (b.healthy && !b.draining && b != exclude) {
+                return b;
+            }
+        }
+        return null;
+    }
+
+    private void connectUpstream(Connection c) {
+        while (c.attempts < Math.max(1, backends.size())) {
+            Backend b = pickBackend(c.backend);
+            if (b == null) {
+                break;
+            }
+            c.attempts++;
+            try {
+                SocketChannel upstream = SocketChannel.open();
+                upstream.configureBlocking(false);
+                upstream.socket().setTcpNoDelay(true);
+                c.upstream = upstream;
+                c.backend = b;
+                b.active.incrementAndGet();
+                b.total.incrementAndGet();
+                c.counted = true;
+                if (upstream.connect(b.address)) {
+                    c.upstreamKey = upstream.register(selector, 0, c);
+                    c.connected = true;
+                    updateInterest(c);
+                } else {
+                    c.upstreamKey = upstream.register(selector, SelectionKey.OP_CONNECT, c);
+                }
+                return;
+            } catch (IOException e) {
+                releaseBackend(c);
+            }
+        }
+        dropped.incrementAndGet();
+        closeQuietly(c.client);
+    }
+
+    private void finishConnect(Connection c) {
+        try {
+            c.upstream.finishConnect();
+            c.connected = true;
+            updateInterest(c);
+        } catch (IOException e) {
+            // 该后端不可用，换一个重试
+            closeQuietly(c.upstream);
+            releaseBackend(c);
+            connectUpstream(c);
+        }
+    }
+
+    private void transfer(Connection c) {
+        try {
+            pump(c.client, c.upstream, c.up);
+            pump(c.upstream, c.client, c.down);
+            if (c.up.outputShut && c.down.outputShut) {
+                close(c);
+            } else {
+                updateInterest(c);
+            }
+        } catch (IOException e) {
+            close(c);
+        }
+    }
+
+    private void pump(SocketChannel from, SocketChannel to, Pipe pipe) throws IOException {
+        if (!pipe.eof && pipe.buf.hasRemaining()) {
+            if (from.read(pipe.buf) < 0) {
+                pipe.eof = true;
+            }
+        }
+        if (pipe.buf.position() > 0) {
+            pipe.buf.flip();
+            to.write(pipe.buf);
+            pipe.buf.compact();
+        }
+        if (pipe.eof && pipe.buf.position() == 0 && !pipe.outputShut) {
+            to.shutdownOutput();
+            pipe.outputShut = true;
+        }
+    }
+
+    private void updateInterest(Connection c) {
+        if (!c.connected) {
+            return;
+        }
+        int clientOps = (c.up.eof || c.up.buf.position() > 0 ? 0 : SelectionKey.OP_READ)
+                | (c.down.buf.position() > 0 ? SelectionKey.OP_WRITE : 0);
+        int upstreamOps = (c.down.eof || c.down.buf.position() > 0 ? 0 : SelectionKey.OP_READ)
+                | (c.up.buf.position() > 0 ? SelectionKey.OP_WRITE : 0);
+        c.clientKey.interestOps(clientOps);
+        c.upstreamKey.interestOps(upstreamOps);
+    }
+
+    private void close(Connection c) {
+        closeQuietly(c.client);
+        closeQuietly(c.upstream);
+        releaseBackend(c);
+    }
+
+    private void releaseBackend(Connection c) {
+        Backend b = c.backend;
+        if (b == null || !c.counted) {
+            return;
+        }
+        c.counted = false;
+        if (c.upstreamKey != null) {
+            c.upstreamKey.cancel();
+            c.upstreamKey = null;
+        }
+        int left = b.active.decrementAndGet();
+        CompletableFuture<Void> drained = b.drained;
+        if (left == 0 && b.draining && drained != null) {
+            drained.complete(null);
+        }
+        // 保留 c.backend 以便重试时排除刚失败的后端
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
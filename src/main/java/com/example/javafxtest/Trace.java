@@ -0,0 +1,253 @@
+package com.example.javafxtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 启动器的轻量级时间线追踪。
+ * <p>
+ * 区间记录在预分配的环形数组里（名称只保存引用，调用方传字符串常量），记录一次不分配对象也不加锁：
+ * 用 AtomicLong 领取槽位，每个槽位带一个序号，导出时序号前后一致才采用（写到一半的槽位跳过），
+ * 满了覆盖最早的记录。用法：
+ * <pre>
+ * long t0 = Trace.begin();
+ * ...
+ * Trace.end("startup.jdk", t0);
+ * </pre>
+ * 有 JFR 录制启用了该事件时同时作为 JFR 自定义事件提交（只在这时创建事件对象）：-XX:StartFlightRecording 下直接可见；配置 trace.jfr=true 时
+ * 启动器自己在内存里保持一段只含这些事件的录制，导出诊断时一起写出。
+ * {@link #writeChromeTrace(Path)} 导出 chrome://tracing / Perfetto 可读的 trace-event JSON。
+ */
+final class Trace {
+
+    private static final int CAPACITY = 4096;
+
+    private static final String[] NAMES = new String[CAPACITY];
+    private static final String[] DETAILS = new String[CAPACITY];
+    private static final long[] STARTS = new long[CAPACITY];
+    private static final long[] DURATIONS = new long[CAPACITY];
+    private static final long[] THREADS = new long[CAPACITY];
+    private static final String[] THREAD_NAMES = new String[CAPACITY];
+    /** 槽位中记录的序号；写入中为 -1。 */
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong NEXT = new AtomicLong();
+
+    /** 追踪原点：进程启动时刻（墙钟微秒）与对应的 nanoTime。 */
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long ORIGIN_EPOCH_MICROS = System.currentTimeMillis() * 1000;
+    private static final long JVM_START_MILLIS = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli).orElse(ORIGIN_EPOCH_MICROS / 1000);
+
+    private static volatile Recording recording;
+
+    @Name("com.example.javafxtest.Span")
+    @Label("Launcher Span")
+    @Category("JarStarter")
+    @Description("A timed section of the launcher lifecycle")
+    @StackTrace(false)
+    static class SpanEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Detail")
+        String detail;
+
+        @Label("Span Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long spanNanos;
+    }
+
+    private static final EventType SPAN_EVENT_TYPE = EventType.getEventType(SpanEvent.class);
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCES.set(i, -1);
+        }
+    }
+
+    private Trace() {
+    }
+
+    static long begin() {
+        return System.nanoTime();
+    }
+
+    static void end(String name, long beginNanos) {
+        record(name, null, beginNanos, System.nanoTime());
+    }
+
+    static void end(String name, String detail, long beginNanos) {
+        record(name, detail, beginNanos, System.nanoTime());
+    }
+
+    /** 已知起止时刻的区间（例如跨线程的"启动进程到首行输出"）。 */
+    static void span(String name, long beginNanos, long endNanos) {
+        record(name, null, beginNanos, endNanos);
+    }
+
+    /** 时间点事件。 */
+    static void instant(String name) {
+        long now = System.nanoTime();
+        record(name, null, now, now);
+    }
+
+    static void instant(String name, String detail) {
+        long now = System.nanoTime();
+        record(name, detail, now, now);
+    }
+
+    private static void record(String name, String detail, long beginNanos, long endNanos) {
+        long seq = NEXT.getAndIncrement();
+        int slot = (int) (seq % CAPACITY);
+        Thread t = Thread.currentThread();
+        SEQUENCES.set(slot, -1);
+        VarHandle.storeStoreFence();
+        NAMES[slot] = name;
+        DETAILS[slot] = detail;
+        STARTS[slot] = beginNanos;
+        DURATIONS[slot] = endNanos - beginNanos;
+        THREADS[slot] = t.getId();
+        THREAD_NAMES[slot] = t.getName();
+        SEQUENCES.set(slot, seq);
+        if (SPAN_EVENT_TYPE.isEnabled()) {
+            SpanEvent event = new SpanEvent();
+            event.name = name;
+            event.detail = detail;
+            event.spanNanos = endNanos - beginNanos;
+            event.commit();
+        }
+    }
+
+    /** 按配置 trace.jfr 开启内存中的 JFR 录制（只含启动器事件）。 */
+    static synchronized void startRecordingIfConfigured(LauncherConfig config) {
+        if (recording != null || !config.getBoolean("trace.jfr", false)) {
+            return;
+        }
+        try {
+            Recording r = new Recording();
+            r.setName("jarstarter-trace");
+            r.enable(SpanEvent.class).withoutStackTrace();
+            r.setToDisk(false);
+            r.setMaxAge(Duration.ofHours(config.getLong("trace.jfr.maxAgeHours", 24)));
+            r.start();
+            recording = r;
+        } catch (RuntimeException e) {
+            AsyncLogWriter.launcherLog().log("Failed to start JFR recording: " + e.getMessage());
+        }
+    }
+
+    /** 把当前录制写到文件；未开启录制时返回 false。 */
+    static boolean dumpJfr(Path file) throws IOException {
+        Recording r = recording;
+        if (r == null) {
+            return false;
+        }
+        r.dump(file);
+        return true;
+    }
+
+    static long recordedCount() {
+        return Math.min(NEXT.get(), CAPACITY);
+    }
+
+    /** 导出 Chrome trace-event JSON（"X" 完整事件，时间以微秒计，原点为 JVM 启动）。 */
+    static void writeChromeTrace(Path file) throws IOException {
+        try (Writer w = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writeChromeTrace(w);
+        }
+    }
+
+    static void writeChromeTrace(Writer w) throws IOException {
+        long next = NEXT.get();
+        String[] names = new String[CAPACITY];
+        String[] details = new String[CAPACITY];
+        String[] threadNames = new String[CAPACITY];
+        long[] starts = new long[CAPACITY];
+        long[] durations = new long[CAPACITY];
+        long[] threads = new long[CAPACITY];
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            long seq = SEQUENCES.get(slot);
+            names[slot] = NAMES[slot];
+            details[slot] = DETAILS[slot];
+            threadNames[slot] = THREAD_NAMES[slot];
+            starts[slot] = STARTS[slot];
+            durations[slot] = DURATIONS[slot];
+            threads[slot] = THREADS[slot];
+            VarHandle.acquireFence();
+            if (seq < 0 || seq != SEQUENCES.get(slot) || seq >= next || seq < next - CAPACITY) {
+                // 正在写入、复制期间被覆盖，或不属于这一轮快照
+                names[slot] = null;
+            }
+        }
+        long count = Math.min(next, CAPACITY);
+        long first = next - count;
+        // 以 JVM 启动为 0，便于看到 JVM 自身启动到 main 之间的耗时
+        long originMicros = ORIGIN_EPOCH_MICROS - JVM_START_MILLIS * 1000;
+        long pid = ProcessHandle.current().pid();
+        w.write("{\"displayTimeUnit\":\"ms\",\"otherData\":{\"jvmStartEpochMs\":" + JVM_START_MILLIS + "},\n");
+        w.write("\"traceEvents\":[\n");
+        w.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"args\":{\"name\":\"JarStarter\"}}");
+        Set<Long> namedThreads = new HashSet<>();
+        for (long i = first; i < next; i++) {
+            int slot = (int) (i % CAPACITY);
+            if (names[slot] == null) {
+                continue;
+            }
+            if (namedThreads.add(threads[slot])) {
+                w.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + pid + ",\"tid\":" + threads[slot]
+                        + ",\"args\":{\"name\":\"" + escape(threadNames[slot]) + "\"}}");
+            }
+            long ts = originMicros + (starts[slot] - ORIGIN_NANOS) / 1000;
+            boolean instant = durations[slot] == 0;
+            w.write(",\n{\"name\":\"" + escape(names[slot]) + "\",\"cat\":\"" + category(names[slot])
+                    + "\",\"ph\":\"" + (instant ? "i\",\"s\":\"t" : "X") + "\",\"ts\":" + ts
+                    + (instant ? "" : ",\"dur\":" + Math.max(1, durations[slot] / 1000))
+                    + ",\"pid\":" + pid + ",\"tid\":" + threads[slot]
+                    + (details[slot] == null ? "" : ",\"args\":{\"detail\":\"" + escape(details[slot]) + "\"}")
+                    + "}");
+        }
+        w.write("\n]}\n");
+    }
+
+    private static String category(String name) {
+        int dot = name.indexOf('.');
+        return dot > 0 ? escape(name.substring(0, dot)) : "launcher";
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                if (sb == null) {
+                    sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+                }
+                sb.append(c == '"' ? "\\\"" : c == '\\' ? "\\\\" : String.format("\\u%04x", (int) c));
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+}
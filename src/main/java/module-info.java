@@ -1,6 +1,10 @@
 module com.example.javafxtest {
-    requires javafx.controls;
-    requires javafx.fxml;
+    // 图形界面专用；--headless 模式不需要 JavaFX，运行时由 --add-modules 引入
+    requires static javafx.controls;
+    requires static javafx.fxml;
+    requires jdk.jfr;
+    requires jdk.httpserver;
+    requires jdk.management;
  
     opens com.example.javafxtest to javafx.fxml;
     exports com.example.javafxtest;
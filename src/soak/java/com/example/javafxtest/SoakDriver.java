@@ -0,0 +1,499 @@
+package com.example.javafxtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * 启动器端到端浸泡测试：mvn -Psoak test [-Dsoak.durationSec=600] [-Dsoak.linesPerSec=500]
+ * <p>
+ * 用 {@link SoakStubService} 打出的 JAR 代替内置 JAR，按轮次反复走界面"启动"/"停止"按钮背后的同一条路径
+ * （{@link ServicePool#fromConfig} + start / stopAsync），每轮注入一种故障：崩溃、挂起、端口关闭、慢启动或无故障。
+ * 期间以日志查看器的方式（{@link LogIndex} 增量刷新）追踪启动器日志，统计：
+ * <ul>
+ *     <li>日志延迟：替身输出一行到它出现在启动器日志里的时间；</li>
+ *     <li>丢行：按 run/seq 计算缺失的行，以及写入器自身的丢弃计数；</li>
+ *     <li>探测延迟：端口开始监听到 READY、故障注入到 EXITED/UNRESPONSIVE 的时间；</li>
+ *     <li>启动器堆、线程数与文件描述符数，每轮停止后各采一次用于发现泄漏。</li>
+ * </ul>
+ * 结果打印为表格，并连同时间序列写入 soak.report（JSON）。全程无界面，不依赖显示设备。
+ * 有任何失败（启动/停止失败、等不到预期状态、追踪日志出错）时以状态 1 退出，mvn -Psoak 随之失败。
+ */
+public final class SoakDriver {
+
+    private static final String[] SCENARIOS = {"steady", "crash", "hang", "portDown", "slowStart"};
+    private static final long AWAIT_MS = 60_000;
+    private static final int LAG_BUCKET_MS = 10;
+
+    private final long durationMs = Long.getLong("soak.durationSec", 600) * 1000;
+    private final long cycleMs = Long.getLong("soak.cycleSec", 20) * 1000;
+    private final int linesPerSec = Integer.getInteger("soak.linesPerSec", 500);
+    private final int port = Integer.getInteger("soak.port", 23123);
+    private final long sampleMs = Long.getLong("soak.sampleMs", 1000);
+    private final Path reportFile = Paths.get(System.getProperty("soak.report", "target/soak/soak-report.json"));
+
+    private final AsyncLogWriter log = AsyncLogWriter.launcherLog();
+    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final Map<Long, long[]> runs = new ConcurrentHashMap<>(); // pid -> {下一个期望的 seq, 收到的行数}
+    private final Map<Long, Long> listenAt = new ConcurrentHashMap<>();
+    private final long[] lagHistogram = new long[6001];
+    private final Map<String, List<Long>> latencies = new LinkedHashMap<>();
+    private final List<long[]> series = new ArrayList<>();
+    private final List<long[]> afterStop = new ArrayList<>();
+    private final List<String> failures = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private volatile long windowLagMax;
+    private volatile long linesSeen;
+    private long startMillis;
+
+    private static final class Event {
+        final ServiceHealthMonitor.State to;
+        final long timeMillis;
+        final long pid;
+
+        Event(ServiceHealthMonitor.State to, long timeMillis, long pid) {
+            this.to = to;
+            this.timeMillis = timeMillis;
+            this.pid = pid;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int failures = new SoakDriver().run();
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /** 返回失败次数。 */
+    private int run() throws Exception {
+        // 快速的健康探测与重启设置；命令行上的 -Djarstarter.xxx 优先
+        defaultProperty("health.http.path", "/health");
+        defaultProperty("health.timeoutMs", "300");
+        defaultProperty("health.stableIntervalMs", "200");
+        defaultProperty("health.failureThreshold", "2");
+        defaultProperty("supervisor.backoff.initialMs", "200");
+        defaultProperty("supervisor.maxRestarts", "1000");
+        LauncherConfig config = LauncherConfig.get();
+        File workingDir = StartupPipeline.serviceWorkingDir();
+        Files.createDirectories(workingDir.toPath());
+        File jar = buildStubJar(new File(workingDir.getParentFile(), "app/stub-service.jar"));
+        String javaPath = EmbeddedArtifacts.findJavaExecutable();
+
+        startMillis = System.currentTimeMillis();
+        log.log("Soak run started: duration " + durationMs / 1000 + " s, cycle " + cycleMs / 1000 + " s, "
+                + linesPerSec + " lines/s, port " + port);
+        Thread tailer = daemon("soak-tailer", this::tail);
+        Thread sampler = daemon("soak-sampler", this::sampleLoop);
+        System.out.printf("%-6s %-10s %9s %9s %9s %9s %7s %7s %9s%n",
+                "cycle", "scenario", "ready ms", "fault ms", "stop ms", "heap MB", "threads", "fds", "lag p99");
+        int cycle = 0;
+        while (System.currentTimeMillis() - startMillis < durationMs) {
+            runCycle(cycle, SCENARIOS[cycle % SCENARIOS.length], config, javaPath, jar, workingDir);
+            cycle++;
+        }
+        running = false;
+        tailer.join(5000);
+        sampler.join(5000);
+        writeReport(cycle);
+        return failures.size();
+    }
+
+    private void runCycle(int cycle, String scenario, LauncherConfig config, String javaPath, File jar,
+                          File workingDir) throws Exception {
+        long cycleStart = System.currentTimeMillis();
+        Files.write(new File(workingDir, "stub.properties").toPath(), List.of(
+                "linesPerSec=" + linesPerSec,
+                "startDelayMs=" + (scenario.equals("slowStart") ? 5000 : 0)));
+        events.clear();
+        ServicePool pool = ServicePool.fromConfig(config, javaPath, jar, workingDir, port, null);
+        ServiceInstance instance = pool.getInstances().get(0);
+        instance.getMonitor().addListener(t -> {
+            Process p = instance.getProcess();
+            events.add(new Event(t.to, t.timeMillis, p != null ? p.pid() : -1));
+        });
+        long readyMs = -1;
+        long faultMs = -1;
+        try {
+            pool.start();
+            Event ready = await(ServiceHealthMonitor.State.READY, scenario + " start");
+            if (ready != null) {
+                readyMs = ready.timeMillis - cycleStart;
+                record(scenario.equals("slowStart") ? "timeToReady.slowStart" : "timeToReady", readyMs);
+                recordUpLatency(ready);
+            }
+            sleepUntil(cycleStart + cycleMs / 2);
+            long t0 = System.currentTimeMillis();
+            switch (scenario) {
+                case "crash":
+                    command(instance.getPort(), "/crash");
+                    Event exited = await(ServiceHealthMonitor.State.EXITED, "crash");
+                    if (exited != null) {
+                        faultMs = exited.timeMillis - t0;
+                        record("down.exit", faultMs);
+                    }
+                    Event recovered = await(ServiceHealthMonitor.State.READY, "restart after crash");
+                    if (recovered != null) {
+                        record("recovery.crash", recovered.timeMillis - t0);
+                        recordUpLatency(recovered);
+                    }
+                    break;
+                case "hang":
+                case "portDown":
+                    command(instance.getPort(), scenario.equals("hang") ? "/hang" : "/close");
+                    Event down = await(ServiceHealthMonitor.State.UNRESPONSIVE, scenario);
+                    if (down != null) {
+                        faultMs = down.timeMillis - t0;
+                        record("down." + scenario, faultMs);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            sleepUntil(cycleStart + cycleMs);
+        } catch (IOException e) {
+            failures.add("cycle " + cycle + ": start failed: " + e.getMessage());
+        }
+        long stopStart = System.nanoTime();
+        try {
+            pool.stopAsync().get(AWAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            failures.add("cycle " + cycle + ": stop failed: " + e);
+        }
+        long stopMs = (System.nanoTime() - stopStart) / 1_000_000;
+        record("stop", stopMs);
+        pool.close();
+
+        // 停止后的资源基线：连续多轮上涨说明有泄漏
+        log.flush(2000);
+        System.gc();
+        long[] r = resources();
+        afterStop.add(new long[]{cycle, r[0], r[1], r[2]});
+        System.out.printf("%-6d %-10s %9d %9d %9d %9.1f %7d %7d %9d%n", cycle, scenario, readyMs, faultMs, stopMs,
+                r[0] / 1048576.0, r[1], r[2], percentile(0.99));
+    }
+
+    private void recordUpLatency(Event ready) {
+        // LISTENING 行要经过输出管道才能读到，稍等片刻
+        long deadline = System.currentTimeMillis() + 5000;
+        Long at;
+        while ((at = listenAt.get(ready.pid)) == null && System.currentTimeMillis() < deadline) {
+            sleepQuietly(20);
+        }
+        if (at != null) {
+            record("up.ready", ready.timeMillis - at);
+        }
+    }
+
+    private Event await(ServiceHealthMonitor.State state, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MS;
+        long left;
+        while ((left = deadline - System.currentTimeMillis()) > 0) {
+            Event e = events.poll(left, TimeUnit.MILLISECONDS);
+            if (e != null && e.to == state) {
+                return e;
+            }
+        }
+        failures.add(what + ": no " + state + " within " + AWAIT_MS + " ms");
+        return null;
+    }
+
+    private synchronized void record(String name, long value) {
+        latencies.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+    }
+
+    /** 以日志查看器的方式增量追踪启动器日志；轮转时先读完旧文件剩下的部分。 */
+    private void tail() {
+        Path file = log.getFile();
+        try (LogIndex index = new LogIndex(file)) {
+            int next = 0;
+            while (running) {
+                long indexed = index.indexedBytes();
+                int added = index.refresh(null);
+                if (added < 0) {
+                    readRemainder(log.rotatedName(1), indexed);
+                    next = 0;
+                }
+                int count = index.lineCount();
+                for (; next < count; next++) {
+                    onLine(index.readLine(next));
+                }
+                sleepQuietly(50);
+            }
+        } catch (IOException e) {
+            failures.add("tailer: " + e);
+        }
+    }
+
+    private void readRemainder(Path rotated, long from) throws IOException {
+        if (!Files.exists(rotated)) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(rotated.toFile(), "r")) {
+            if (from >= raf.length()) {
+                return;
+            }
+            byte[] rest = new byte[(int) (raf.length() - from)];
+            raf.seek(from);
+            raf.readFully(rest);
+            for (String line : new String(rest, StandardCharsets.UTF_8).split("\n")) {
+                onLine(line);
+            }
+        }
+    }
+
+    private void onLine(String line) {
+        long now = System.currentTimeMillis();
+        long pid = field(line, " run=");
+        if (pid < 0) {
+            return;
+        }
+        long seq = field(line, " seq=");
+        if (seq < 0) {
+            long at = field(line, " at=");
+            if (at >= startMillis && line.contains("LISTENING")) {
+                listenAt.put(pid, at);
+            }
+            return;
+        }
+        // 启动器日志跨运行追加，之前运行留下的行不计入本次统计
+        long t = field(line, " t=");
+        if (t < startMillis) {
+            return;
+        }
+        long[] run = runs.computeIfAbsent(pid, k -> new long[2]);
+        run[0] = Math.max(run[0], seq + 1);
+        run[1]++;
+        linesSeen++;
+        long lag = Math.max(0, now - t);
+        lagHistogram[(int) Math.min(lagHistogram.length - 1, lag / LAG_BUCKET_MS)]++;
+        if (lag > windowLagMax) {
+            windowLagMax = lag;
+        }
+    }
+
+    private static long field(String line, String key) {
+        int i = line.indexOf(key);
+        if (i < 0) {
+            return -1;
+        }
+        long v = 0;
+        int p = i + key.length();
+        int start = p;
+        for (; p < line.length() && Character.isDigit(line.charAt(p)); p++) {
+            v = v * 10 + (line.charAt(p) - '0');
+        }
+        return p > start ? v : -1;
+    }
+
+    private void sampleLoop() {
+        long lastLines = 0;
+        while (running) {
+            sleepQuietly(sampleMs);
+            long[] r = resources();
+            long lines = linesSeen;
+            long lagMax = windowLagMax;
+            windowLagMax = 0;
+            synchronized (series) {
+                series.add(new long[]{System.currentTimeMillis() - startMillis, r[0], r[1], r[2],
+                        (lines - lastLines) * 1000 / sampleMs, lagMax, log.getDroppedCount()});
+            }
+            lastLines = lines;
+        }
+    }
+
+    /** {堆已用字节, 线程数, 文件描述符数} */
+    private static long[] resources() {
+        Runtime rt = Runtime.getRuntime();
+        long heap = rt.totalMemory() - rt.freeMemory();
+        long fds = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(Paths.get("/proc/self/fd"))) {
+            for (Path ignored : ds) {
+                fds++;
+            }
+        } catch (IOException e) {
+            fds = -1;
+        }
+        return new long[]{heap, Thread.getAllStackTraces().size(), fds};
+    }
+
+    private long percentile(double q) {
+        long total = 0;
+        for (long c : lagHistogram) {
+            total += c;
+        }
+        long target = (long) Math.ceil(total * q);
+        long acc = 0;
+        for (int i = 0; i < lagHistogram.length; i++) {
+            acc += lagHistogram[i];
+            if (acc >= target && acc > 0) {
+                return (long) (i + 1) * LAG_BUCKET_MS;
+            }
+        }
+        return 0;
+    }
+
+    private void writeReport(int cycles) throws IOException {
+        long expected = 0;
+        long seen = 0;
+        for (long[] r : runs.values()) {
+            expected += r[0];
+            seen += r[1];
+        }
+        long[] first = afterStop.isEmpty() ? new long[4] : afterStop.get(0);
+        long[] last = afterStop.isEmpty() ? new long[4] : afterStop.get(afterStop.size() - 1);
+
+        System.out.println();
+        System.out.printf("cycles %d, service runs %d, lines %d of %d (dropped %d), writer dropped %d%n",
+                cycles, runs.size(), seen, expected, expected - seen, log.getDroppedCount());
+        System.out.printf("log lag p50 %d ms, p99 %d ms, max %d ms%n", percentile(0.5), percentile(0.99),
+                percentile(1.0));
+        for (Map.Entry<String, List<Long>> e : latencies.entrySet()) {
+            long[] s = stats(e.getValue());
+            System.out.printf("%-22s n=%-4d min %6d  avg %6d  max %6d ms%n", e.getKey(), s[0], s[1], s[2], s[3]);
+        }
+        System.out.printf("after stop: heap %.1f -> %.1f MB, threads %d -> %d, fds %d -> %d%n",
+                first[1] / 1048576.0, last[1] / 1048576.0, first[2], last[2], first[3], last[3]);
+        for (String f : failures) {
+            System.out.println("FAILURE " + f);
+        }
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        try (Writer w = Files.newBufferedWriter(reportFile)) {
+            w.write("{\n  \"durationMs\": " + (System.currentTimeMillis() - startMillis)
+                    + ",\n  \"cycles\": " + cycles
+                    + ",\n  \"linesPerSec\": " + linesPerSec
+                    + ",\n  \"lines\": {\"expected\": " + expected + ", \"seen\": " + seen
+                    + ", \"dropped\": " + (expected - seen) + ", \"writerDropped\": " + log.getDroppedCount() + "}"
+                    + ",\n  \"logLagMs\": {\"p50\": " + percentile(0.5) + ", \"p99\": " + percentile(0.99)
+                    + ", \"max\": " + percentile(1.0) + "}"
+                    + ",\n  \"latenciesMs\": {");
+            String sep = "\n";
+            for (Map.Entry<String, List<Long>> e : latencies.entrySet()) {
+                long[] s = stats(e.getValue());
+                w.write(sep + "    \"" + e.getKey() + "\": {\"n\": " + s[0] + ", \"min\": " + s[1] + ", \"avg\": "
+                        + s[2] + ", \"max\": " + s[3] + "}");
+                sep = ",\n";
+            }
+            w.write("\n  },\n  \"afterStop\": [");
+            writeRows(w, afterStop, "cycle", "heapBytes", "threads", "fds");
+            w.write("],\n  \"series\": [");
+            synchronized (series) {
+                writeRows(w, series, "elapsedMs", "heapBytes", "threads", "fds", "linesPerSec", "lagMaxMs",
+                        "writerDropped");
+            }
+            w.write("],\n  \"failures\": [");
+            for (int i = 0; i < failures.size(); i++) {
+                w.write((i == 0 ? "" : ", ") + "\"" + failures.get(i).replace("\\", "\\\\").replace("\"", "\\\"")
+                        + "\"");
+            }
+            w.write("]\n}\n");
+        }
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+        log.log("Soak run finished after " + cycles + " cycles, " + failures.size() + " failure(s)");
+        log.flush(2000);
+    }
+
+    private static void writeRows(Writer w, List<long[]> rows, String... names) throws IOException {
+        for (int i = 0; i < rows.size(); i++) {
+            StringBuilder sb = new StringBuilder(i == 0 ? "\n    {" : ",\n    {");
+            long[] row = rows.get(i);
+            for (int k = 0; k < names.length; k++) {
+                sb.append(k == 0 ? "" : ", ").append('"').append(names[k]).append("\": ").append(row[k]);
+            }
+            w.write(sb.append('}').toString());
+        }
+        if (!rows.isEmpty()) {
+            w.write("\n  ");
+        }
+    }
+
+    /** {n, min, avg, max} */
+    private static long[] stats(List<Long> values) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0;
+        for (long v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            sum += v;
+        }
+        return values.isEmpty() ? new long[4] : new long[]{values.size(), min, sum / values.size(), max};
+    }
+
+    /** 把替身服务的类打成可执行 JAR。 */
+    private static File buildStubJar(File target) throws IOException {
+        Files.createDirectories(target.toPath().getParent());
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, SoakStubService.class.getName());
+        String entry = SoakStubService.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(target.toPath()), manifest)) {
+            out.putNextEntry(new JarEntry(entry));
+            out.write(SoakStubService.class.getResourceAsStream("/" + entry).readAllBytes());
+            out.closeEntry();
+        }
+        return target;
+    }
+
+    /** 给替身服务下令；/crash 不会有应答，只管发出。 */
+    private static void command(int port, String path) {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress("127.0.0.1", port), 2000);
+            s.setSoTimeout(2000);
+            OutputStream out = s.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            s.getInputStream().read();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty("jarstarter." + key) == null) {
+            System.setProperty("jarstarter." + key, value);
+        }
+    }
+
+    private static void sleepUntil(long epochMillis) {
+        long left = epochMillis - System.currentTimeMillis();
+        if (left > 0) {
+            sleepQuietly(left);
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Thread daemon(String name, Runnable r) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
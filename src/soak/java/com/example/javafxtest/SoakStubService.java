@@ -0,0 +1,208 @@
+package com.example.javafxtest;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 浸泡测试用的替身服务，由 {@link SoakDriver} 打成 JAR 代替 jar/myJar.jar。
+ * <p>
+ * 行为在启动时从工作目录下的 stub.properties（或同名 --stub.xxx= 参数）读取：
+ * startDelayMs 模拟慢启动，linesPerSec 控制输出量，crashAfterMs 到点后以退出码 3 崩溃。
+ * 运行中可通过 HTTP 下令：/health 健康检查，/crash 立即崩溃，/hang 挂起（不再应答、不再输出），
+ * /close 关闭监听端口但进程不退出，/rate?n=N 改变输出速率。
+ * <p>
+ * 每行输出都带 Spring Boot 风格的 ANSI 颜色，以及 run=（进程号）seq=（行序号）t=（生成时刻）字段，
+ * 驱动据此计算日志延迟与丢行；端口开始监听时输出一行 LISTENING，带进程号与监听时刻。
+ */
+public final class SoakStubService {
+
+    private static final String[] LEVELS = {" INFO", " WARN", "DEBUG", "ERROR"};
+    private static final String[] LOGGERS = {
+            "o.s.b.w.embedded.tomcat.TomcatWebServer  ",
+            "o.s.web.servlet.DispatcherServlet        ",
+            "c.e.demo.service.OrderService            ",
+            "o.h.engine.jdbc.spi.SqlExceptionHelper   ",
+    };
+
+    private static volatile int linesPerSec;
+    private static volatile boolean hung;
+    private static volatile ServerSocket server;
+    private static final long PID = ProcessHandle.current().pid();
+    private static final PrintStream OUT = new PrintStream(new BufferedOutputStream(
+            new FileOutputStream(FileDescriptor.out), 64 * 1024), false, StandardCharsets.UTF_8);
+    private static long seq;
+
+    private SoakStubService() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties p = new Properties();
+        File file = new File("stub.properties");
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                p.load(in);
+            }
+        }
+        int port = 8080;
+        for (String a : args) {
+            if (a.startsWith("--server.port=")) {
+                port = Integer.parseInt(a.substring("--server.port=".length()));
+            } else if (a.startsWith("--stub.") && a.indexOf('=') > 0) {
+                p.setProperty(a.substring(7, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            }
+        }
+        long startDelayMs = Long.parseLong(p.getProperty("startDelayMs", "0"));
+        long crashAfterMs = Long.parseLong(p.getProperty("crashAfterMs", "0"));
+        linesPerSec = Integer.parseInt(p.getProperty("linesPerSec", "200"));
+
+        emit(" INFO", "c.e.demo.StubApplication                 ",
+                "Starting StubApplication using Java " + System.getProperty("java.version")
+                        + " (startDelayMs=" + startDelayMs + ")");
+        OUT.flush();
+        if (startDelayMs > 0) {
+            Thread.sleep(startDelayMs);
+        }
+        ServerSocket ss = new ServerSocket();
+        ss.setReuseAddress(true);
+        ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        server = ss;
+        synchronized (OUT) {
+            emit(" INFO", LOGGERS[0], "LISTENING run=" + PID + " port=" + port + " at=" + System.currentTimeMillis());
+            OUT.flush();
+        }
+        if (crashAfterMs > 0) {
+            daemon("stub-crash-timer", () -> {
+                sleepQuietly(crashAfterMs);
+                crash();
+            });
+        }
+        daemon("stub-output", SoakStubService::emitLoop);
+        while (true) {
+            Socket s;
+            try {
+                s = ss.accept();
+            } catch (IOException e) {
+                if (ss.isClosed()) {
+                    // /close：端口关闭，进程保持运行
+                    Thread.sleep(Long.MAX_VALUE);
+                }
+                continue;
+            }
+            daemon("stub-http", () -> handle(s));
+        }
+    }
+
+    private static void emitLoop() {
+        long next = System.nanoTime();
+        while (true) {
+            next += 10_000_000L;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                sleepQuietly(wait / 1_000_000, (int) (wait % 1_000_000));
+            } else if (wait < -1_000_000_000L) {
+                next = System.nanoTime();
+            }
+            if (hung) {
+                continue;
+            }
+            // 每 10 ms 一批，凑足每秒 linesPerSec 行
+            int n = linesPerSec / 100 + (ThreadLocalRandom.current().nextInt(100) < linesPerSec % 100 ? 1 : 0);
+            if (n == 0) {
+                continue;
+            }
+            synchronized (OUT) {
+                for (int i = 0; i < n; i++) {
+                    int k = ThreadLocalRandom.current().nextInt(LOGGERS.length);
+                    emit(LEVELS[k], LOGGERS[k], "run=" + PID + " seq=" + seq++ + " t=" + System.currentTimeMillis()
+                            + " payload=" + "x".repeat(ThreadLocalRandom.current().nextInt(20, 120)));
+                }
+                OUT.flush();
+            }
+        }
+    }
+
+    private static void emit(String level, String logger, String message) {
+        String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date());
+        String color = level.equals("ERROR") ? "31" : level.equals(" WARN") ? "33" : "32";
+        OUT.print("\u001b[2m" + ts + "\u001b[0;39m \u001b[" + color + "m" + level + "\u001b[0;39m \u001b[35m" + PID
+                + "\u001b[0;39m \u001b[2m---\u001b[0;39m \u001b[2m[           main]\u001b[0;39m \u001b[36m" + logger
+                + "\u001b[0;39m \u001b[2m:\u001b[0;39m " + message + "\n");
+    }
+
+    private static void handle(Socket s) {
+        try (Socket socket = s) {
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            StringBuilder request = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1 && c != '\n') {
+                request.append((char) c);
+            }
+            String[] parts = request.toString().trim().split(" ");
+            String target = parts.length > 1 ? parts[1] : "/";
+            while (hung) {
+                Thread.sleep(1000);
+            }
+            String body = "ok";
+            if (target.equals("/crash")) {
+                crash();
+            } else if (target.equals("/hang")) {
+                hung = true;
+                body = "hanging";
+            } else if (target.equals("/close")) {
+                server.close();
+                body = "closed";
+            } else if (target.startsWith("/rate?n=")) {
+                linesPerSec = Integer.parseInt(target.substring("/rate?n=".length()));
+                body = "rate=" + linesPerSec;
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length()
+                    + "\r\nConnection: close\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        } catch (IOException | InterruptedException ignored) {
+        }
+    }
+
+    private static void crash() {
+        synchronized (OUT) {
+            emit("ERROR", LOGGERS[3], "Simulated crash");
+            OUT.flush();
+        }
+        Runtime.getRuntime().halt(3);
+    }
+
+    private static void daemon(String name, Runnable r) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void sleepQuietly(long ms) {
+        sleepQuietly(ms, 0);
+    }
+
+    private static void sleepQuietly(long ms, int nanos) {
+        try {
+            Thread.sleep(ms, nanos);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}